@@ -0,0 +1,83 @@
+/**
+ * Where the four bands are painted on the resistor body image
+ * (res/drawable-nodpi/resistor_blank_moderate_crop.png), in pixels of that image.
+ *
+ * ResistorView and the server side renderers both place the bands from here, so every picture
+ * of a resistor lines up with the body it is painted on.
+ *
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class BandGeometry {
+
+	// Body image size in actual pixels.
+	public static final int BG_WIDTH = 256;
+	public static final int BG_HEIGHT = 80;
+
+	public static final int MSB_LEFT = 72;
+	public static final int MSB_TOP = 18;
+	public static final int MSB_RIGHT = 87;
+	public static final int MSB_BOTTOM = 62;
+	public static final int LSB_LEFT = 105;
+	public static final int LSB_TOP = 21;
+	public static final int LSB_RIGHT = 119;
+	public static final int LSB_BOTTOM = 59;
+	public static final int MULT_LEFT = 135;
+	public static final int MULT_TOP = 21;
+	public static final int MULT_RIGHT = 151;
+	public static final int MULT_BOTTOM = 59;
+	public static final int TOL_LEFT = 169;
+	public static final int TOL_TOP = 17;
+	public static final int TOL_RIGHT = 183;
+	public static final int TOL_BOTTOM = 62;
+
+	// Band indexes, in the order the bands are read.
+	public static final int MSB = 0;
+	public static final int LSB = 1;
+	public static final int MULTIPLIER = 2;
+	public static final int TOLERANCE = 3;
+	public static final int BANDS = 4;
+
+	private static final int[] BOUNDS = { MSB_LEFT, MSB_TOP, MSB_RIGHT, MSB_BOTTOM,
+			LSB_LEFT, LSB_TOP, LSB_RIGHT, LSB_BOTTOM,
+			MULT_LEFT, MULT_TOP, MULT_RIGHT, MULT_BOTTOM,
+			TOL_LEFT, TOL_TOP, TOL_RIGHT, TOL_BOTTOM };
+
+	/**
+	 * Scales the bounds of a band to the body image drawn at width x height.
+	 *
+	 * @param band		MSB, LSB, MULTIPLIER or TOLERANCE.
+	 * @param width		Width the body image is drawn at.
+	 * @param height	Height the body image is drawn at.
+	 * @param out		Receives left, top, right and bottom; at least 4 long.
+	 */
+	public static void scale(int band, int width, int height, int[] out) {
+		int i = band * 4;
+		out[0] = Math.round(((float) BOUNDS[i] / BG_WIDTH) * width);
+		out[1] = Math.round(((float) BOUNDS[i + 1] / BG_HEIGHT) * height);
+		out[2] = Math.round(((float) BOUNDS[i + 2] / BG_WIDTH) * width);
+		out[3] = Math.round(((float) BOUNDS[i + 3] / BG_HEIGHT) * height);
+	}
+
+	/**
+	 * Returns the value of a band of a packed code.
+	 * @param code		A packed code (see ResistorCode).
+	 * @param band		MSB, LSB, MULTIPLIER or TOLERANCE.
+	 * @return			The value of the band (-2 to 9).
+	 */
+	public static int getBandValue(int code, int band) {
+		switch (band) {
+		case MSB:
+			return ResistorCode.getMSB(code);
+		case LSB:
+			return ResistorCode.getLSB(code);
+		case MULTIPLIER:
+			return ResistorCode.getMultiplier(code);
+		default:
+			return ResistorCode.getTolerance(code);
+		}
+	}
+}
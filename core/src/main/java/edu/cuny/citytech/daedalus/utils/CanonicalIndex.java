@@ -0,0 +1,89 @@
+/**
+ * A minimal perfect hash from the canonical resistance strings to their packed codes. The
+ * canonical strings are the engineering notation of every 3 band code (first digit 1 to 9,
+ * multiplier -2 to 9), as ResistorTables.getFormatted() prints them, with and without a
+ * trailing '\u03A9': 2160 strings in all, ie. "4.7k", "0.22", "10M\u03A9".
+ *
+ * The index is precomputed at build time, with ResistorTables (see tools/tables.xml), by hash
+ * and displace: keys are hashed into buckets, and each bucket, largest first, is given the
+ * first seed that puts all of its keys in free slots. Loading it only reads the generated
+ * CanonicalIndexTables. A lookup is then two hashes of the characters, one read of the
+ * bucket's seed and of the slot, and one compare against the key of the code found there, so
+ * any other string is rejected without parsing. The seeds, slots and key characters take
+ * about 20 KB.
+ *
+ * Resistance uses this class and the table generator uses Resistance, so the generator builds
+ * CanonicalIndexTables first, from CanonicalKeys alone.
+ *
+ * Thread-safety: immutable once loaded; lookup() may be called from any number of threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class CanonicalIndex {
+
+	private static final int[] SEEDS = CanonicalIndexTables.SEEDS;
+	private static final int[] SLOTS = CanonicalIndexTables.SLOTS;
+	private static final char[] KEY_CHARS = CanonicalIndexTables.KEY_CHARS.toCharArray();
+	private static final int[] KEY_START = CanonicalIndexTables.KEY_START;
+	private static final int MAX_LENGTH = CanonicalIndexTables.MAX_LENGTH;
+
+	/**
+	 * Returns the canonical string of a code, its engineering notation.
+	 * @param code		A packed code with a first band of 1 to 9.
+	 * @return			The canonical string, without '\u03A9'.
+	 */
+	static String getKey(int code) {
+		return CanonicalKeys.getKey(code);
+	}
+
+	/**
+	 * Looks up the code of a canonical resistance string.
+	 * @param resistance	Any characters, may be null; they are read in place, not copied.
+	 * @return				The packed code (see ResistorCode) with a gold tolerance band, or -1
+	 * 						if resistance is not one of the canonical strings.
+	 */
+	public static int lookup(CharSequence resistance) {
+		if (resistance == null) {
+			return -1;
+		}
+
+		int length = resistance.length();
+		if (length == 0 || length > MAX_LENGTH) {
+			return -1;
+		}
+
+		int seed = SEEDS[CanonicalKeys.reduce(CanonicalKeys.hash(resistance, 0), SEEDS.length)];
+		int slot = SLOTS[CanonicalKeys.reduce(CanonicalKeys.hash(resistance, seed), SLOTS.length)];
+		int code = slot & CanonicalKeys.CODE_MASK;
+
+		// The slot holds some key's code; it is only ours if the strings are equal.
+		int index = CanonicalKeys.index(code);
+		int start = KEY_START[index];
+		int keyLength = KEY_START[index + 1] - start;
+		if ((slot & CanonicalKeys.OMEGA_FLAG) != 0) {
+			if (length != keyLength + 1 || resistance.charAt(keyLength) != CanonicalKeys.OMEGA) {
+				return -1;
+			}
+		}
+
+		else if (length != keyLength) {
+			return -1;
+		}
+
+		for (int i = 0; i < keyLength; i++) {
+			if (resistance.charAt(i) != KEY_CHARS[start + i]) {
+				return -1;
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * @return		Number of canonical strings in the index.
+	 */
+	public static int size() {
+		return SLOTS.length;
+	}
+}
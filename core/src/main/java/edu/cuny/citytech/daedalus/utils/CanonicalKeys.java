@@ -0,0 +1,76 @@
+/**
+ * The canonical resistance strings and the hash of CanonicalIndex, shared by the index and by
+ * the table generator, which precomputes the index and ResistorTables from the same keys.
+ *
+ * The table generator compiles and runs this class before any table exists, so it must not
+ * depend on the generated classes (or on Resistance or ResistorColor, which do).
+ *
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class CanonicalKeys {
+
+	public static final char OMEGA = '\u03A9';
+	public static final int OMEGA_FLAG = 1 << 16; // Set in a slot if its key ends in OMEGA.
+	public static final int CODE_MASK = 0xFFFF;
+	public static final int TOLERANCE = -1; // Gold, as Resistance.toCode() packs it.
+
+	public static final int MIN_MULTIPLIER = -2;
+	public static final int MAX_MULTIPLIER = 9;
+	public static final int MULTIPLIERS = MAX_MULTIPLIER - MIN_MULTIPLIER + 1;
+
+	/** Number of 3 band codes: first digit 1 to 9, second 0 to 9, multiplier -2 to 9. */
+	public static final int CODES = 9 * 10 * MULTIPLIERS;
+
+	private CanonicalKeys() {
+	}
+
+	/**
+	 * Returns the canonical string of a code, its engineering notation. ResistorTables prints
+	 * these same strings.
+	 * @param code		A packed code.
+	 * @return			The canonical string, without '\u03A9'.
+	 */
+	public static String getKey(int code) {
+		return ResistanceValue.toEngineeringNotation(ResistorCalculator.calculateValue(
+				ResistorCode.getMSB(code), ResistorCode.getLSB(code),
+				ResistorCode.getMultiplier(code)));
+	}
+
+	/**
+	 * Numbers the 3 band codes from 0 to CODES - 1.
+	 * @param code		A packed code with a first band of 1 to 9.
+	 */
+	public static int index(int code) {
+		return ((ResistorCode.getMSB(code) - 1) * 10 + ResistorCode.getLSB(code)) * MULTIPLIERS
+				+ ResistorCode.getMultiplier(code) - MIN_MULTIPLIER;
+	}
+
+	/**
+	 * Hashes the characters of a string with a seed.
+	 */
+	public static int hash(CharSequence s, int seed) {
+		int h = seed * 0x9E3779B9 ^ s.length();
+		for (int i = 0; i < s.length(); i++) {
+			h = (h ^ s.charAt(i)) * 0x01000193;
+		}
+
+		// Final mix of MurmurHash3, so every input bit reaches the high bits reduce() uses.
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Maps a hash onto 0 to n - 1 without a division.
+	 */
+	public static int reduce(int h, int n) {
+		return (int) (((h & 0xFFFFFFFFL) * n) >>> 32);
+	}
+}
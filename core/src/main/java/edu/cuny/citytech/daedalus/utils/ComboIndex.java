@@ -0,0 +1,381 @@
+/**
+ * Every series and parallel combination of two or three parts from a set of values, sorted by
+ * equivalent resistance in a binary file that is memory-mapped to be searched.
+ *
+ * The file is written once, offline (see tools/combos.xml), by write(). It holds the packed
+ * codes of the parts, then two columns with one entry per combination: the resistances as
+ * floats, ascending, and the combinations as ints (the index of each part, one byte each, and
+ * the Topology). A query binary searches the resistance column in place, so finding the
+ * closest combinations or all those within a tolerance reads a few pages of the file and
+ * allocates nothing. The E12 values over the 12 encodable decades make about 4 million
+ * combinations, 32 MB.
+ *
+ * The resistances are stored as floats (a relative error below 1e-7), so two combinations
+ * whose exact resistances differ by less than that may be in either order.
+ *
+ * The table generator compiles the core sources, so this class must not depend on the
+ * generated ResistorTables (or on ResistorColor, which does).
+ *
+ * Thread-safety: immutable once opened; queries may run on any number of threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class ComboIndex {
+
+	private static final int MAGIC = 0x52434D42; // "RCMB"
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 4; // MAGIC, VERSION, part count, combination count.
+	public static final int MAX_PARTS = 256; // A part's index takes one byte.
+
+	private final int[] parts;
+	private final FloatBuffer values;
+	private final IntBuffer combos;
+
+	/**
+	 * How the parts of a combination are connected; a, b and c are its parts in order.
+	 */
+	public enum Topology {
+		SERIES(2, "%s + %s"),
+		PARALLEL(2, "%s || %s"),
+		SERIES3(3, "%s + %s + %s"),
+		PARALLEL3(3, "%s || %s || %s"),
+		SERIES_PARALLEL(3, "(%s || %s) + %s"),
+		PARALLEL_SERIES(3, "(%s + %s) || %s");
+
+		private final int parts;
+		private final String format;
+
+		Topology(int parts, String format) {
+			this.parts = parts;
+			this.format = format;
+		}
+
+		/**
+		 * @return		Number of parts, 2 or 3.
+		 */
+		public int getParts() {
+			return parts;
+		}
+
+		/**
+		 * Works out the resistance of a combination.
+		 * @param c		Unused by the two part topologies.
+		 */
+		public double evaluate(double a, double b, double c) {
+			switch (this) {
+			case SERIES:
+				return a + b;
+			case PARALLEL:
+				return parallel(a, b);
+			case SERIES3:
+				return a + b + c;
+			case PARALLEL3:
+				return 1 / (1 / a + 1 / b + 1 / c);
+			case SERIES_PARALLEL:
+				return parallel(a, b) + c;
+			default:
+				return parallel(a + b, c);
+			}
+		}
+	}
+
+	private static final Topology[] TOPOLOGIES = Topology.values();
+
+	private ComboIndex(int[] parts, FloatBuffer values, IntBuffer combos) {
+		this.parts = parts;
+		this.values = values;
+		this.combos = combos;
+	}
+
+	/**
+	 * Writes the combinations of a set of parts. Each combination is written once: parts that
+	 * can be swapped without changing the circuit are in ascending order of index.
+	 * @param codes		Packed codes (see ResistorCode) of at most MAX_PARTS distinct parts, each
+	 * 					with a first band of 1 to 9.
+	 * @param file		The file to write.
+	 * @return			Number of combinations written.
+	 * @throws IOException	If the file cannot be written.
+	 */
+	public static int write(int[] codes, File file) throws IOException {
+		int n = codes.length;
+		if (n > MAX_PARTS) {
+			throw new IllegalArgumentException("more than " + MAX_PARTS + " parts: " + n);
+		}
+
+		double[] ohms = new double[n];
+		for (int i = 0; i < n; i++) {
+			int msb = ResistorCode.getMSB(codes[i]);
+			if (msb < 1 || msb > 9) {
+				throw new IllegalArgumentException("not a valid code: "
+						+ Integer.toHexString(codes[i]));
+			}
+			ohms[i] = ResistanceValue.toDouble(ResistorCalculator.calculateValue(msb,
+					ResistorCode.getLSB(codes[i]), ResistorCode.getMultiplier(codes[i])));
+		}
+
+		long pairs = (long) n * (n + 1) / 2;
+		long triples = (long) n * (n + 1) * (n + 2) / 6;
+		long count = 2 * pairs + 2 * triples + 2 * pairs * n;
+
+		// A mapping is at most Integer.MAX_VALUE bytes, and each combination takes 8.
+		if (count > Integer.MAX_VALUE / 8) {
+			throw new IllegalArgumentException("too many combinations: " + count);
+		}
+
+		// Each entry is its float resistance above its combination, so sorting sorts both;
+		// positive floats order the same way as their bits.
+		long[] entries = new long[(int) count];
+		int e = 0;
+		for (int a = 0; a < n; a++) {
+			for (int b = a; b < n; b++) {
+				e = add(entries, e, Topology.SERIES, ohms, a, b, 0);
+				e = add(entries, e, Topology.PARALLEL, ohms, a, b, 0);
+				for (int c = b; c < n; c++) {
+					e = add(entries, e, Topology.SERIES3, ohms, a, b, c);
+					e = add(entries, e, Topology.PARALLEL3, ohms, a, b, c);
+				}
+
+				for (int c = 0; c < n; c++) {
+					e = add(entries, e, Topology.SERIES_PARALLEL, ohms, a, b, c);
+					e = add(entries, e, Topology.PARALLEL_SERIES, ohms, a, b, c);
+				}
+			}
+		}
+		Arrays.sort(entries);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			out.writeInt(entries.length);
+			for (int code : codes) {
+				out.writeInt(code);
+			}
+
+			for (long entry : entries) {
+				out.writeInt((int) (entry >>> 32));
+			}
+
+			for (long entry : entries) {
+				out.writeInt((int) entry);
+			}
+		}
+		finally {
+			out.close();
+		}
+		return entries.length;
+	}
+
+	private static int add(long[] entries, int e, Topology topology, double[] ohms, int a, int b,
+			int c) {
+		float value = (float) topology.evaluate(ohms[a], ohms[b], ohms[c]);
+		int combo = a | b << 8 | c << 16 | topology.ordinal() << 24;
+		entries[e] = (long) Float.floatToIntBits(value) << 32 | (combo & 0xFFFFFFFFL);
+		return e + 1;
+	}
+
+	/**
+	 * Maps a file written by write(). The file is closed again; the mapping stays valid.
+	 * @param file		The file.
+	 * @return			The index.
+	 * @throws IOException	If the file cannot be read or was not written by write().
+	 */
+	public static ComboIndex open(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the index from the contents of a file written by write(), without copying them.
+	 * @param buffer	The contents, from its position on.
+	 * @return			The index.
+	 * @throws IOException	If the contents were not written by write().
+	 */
+	public static ComboIndex wrap(ByteBuffer buffer) throws IOException {
+		ByteBuffer in = buffer.slice();
+		if (in.remaining() < HEADER_INTS * 4 || in.getInt() != MAGIC) {
+			throw new IOException("not a combination index");
+		}
+
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported combination index version " + version);
+		}
+
+		int n = in.getInt();
+		int count = in.getInt();
+		if (n < 0 || n > MAX_PARTS || count < 0
+				|| in.remaining() != (n + (long) count * 2) * 4) {
+			throw new IOException("truncated combination index");
+		}
+
+		int[] parts = new int[n];
+		in.asIntBuffer().get(parts);
+		in.position(in.position() + n * 4);
+		FloatBuffer values = in.slice().asFloatBuffer();
+		values.limit(count);
+		in.position(in.position() + count * 4);
+		IntBuffer combos = in.slice().asIntBuffer();
+		return new ComboIndex(parts, values.slice(), combos);
+	}
+
+	/**
+	 * @return		Number of combinations.
+	 */
+	public int size() {
+		return combos.limit();
+	}
+
+	/**
+	 * @param i		Index of a combination, 0 to size() - 1; combinations are in ascending order
+	 * 				of resistance.
+	 * @return		The resistance of the combination in ohms.
+	 */
+	public double getValue(int i) {
+		return values.get(i);
+	}
+
+	/**
+	 * @return		How the parts of combination i are connected.
+	 */
+	public Topology getTopology(int i) {
+		return TOPOLOGIES[combos.get(i) >>> 24];
+	}
+
+	/**
+	 * Returns a part of a combination.
+	 * @param i		Index of the combination.
+	 * @param part	Index of the part, 0 to getTopology(i).getParts() - 1.
+	 * @return		The packed code of the part.
+	 */
+	public int getCode(int i, int part) {
+		return parts[combos.get(i) >>> (part * 8) & 0xFF];
+	}
+
+	/**
+	 * Returns the index of the first combination of at least a resistance.
+	 * @param ohms		The resistance.
+	 * @return			0 to size(); size() if every combination is below ohms.
+	 */
+	public int fromIndex(double ohms) {
+		float v = (float) ohms;
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values.get(mid) < v) {
+				low = mid + 1;
+			}
+
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index after the last combination of at most a resistance.
+	 * @param ohms		The resistance.
+	 * @return			0 to size(); 0 if every combination is above ohms.
+	 */
+	public int toIndex(double ohms) {
+		float v = (float) ohms;
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values.get(mid) <= v) {
+				low = mid + 1;
+			}
+
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the combinations within a tolerance of a resistance: they are the indexes from
+	 * fromIndex(target, percent) up to, not including, toIndex(target, percent).
+	 * @param target	The resistance in ohms.
+	 * @param percent	The tolerance, ie. 1 for +-1%.
+	 */
+	public int fromIndex(double target, double percent) {
+		return fromIndex(target * (1 - percent / 100));
+	}
+
+	/**
+	 * See fromIndex(double, double).
+	 */
+	public int toIndex(double target, double percent) {
+		return toIndex(target * (1 + percent / 100));
+	}
+
+	/**
+	 * Finds the combinations closest to a resistance.
+	 * @param target	The resistance in ohms.
+	 * @param closest	Filled with the indexes of the closest combinations, closest first.
+	 * @return			Number of indexes filled: closest.length, or size() if that is smaller.
+	 */
+	public int closest(double target, int[] closest) {
+		int below = fromIndex(target) - 1;
+		int above = below + 1;
+		int n = 0;
+		while (n < closest.length && (below >= 0 || above < size())) {
+			if (above == size()
+					|| (below >= 0 && target - values.get(below) <= values.get(above) - target)) {
+				closest[n++] = below--;
+			}
+
+			else {
+				closest[n++] = above++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Describes a combination, ie. "(4.7k || 10k) + 220".
+	 * @param i		Index of the combination.
+	 * @return		The parts in engineering notation, connected by + (series) and || (parallel).
+	 */
+	public String describe(int i) {
+		Topology topology = getTopology(i);
+		Object[] names = new Object[topology.getParts()];
+		for (int part = 0; part < names.length; part++) {
+			int code = getCode(i, part);
+			names[part] = ResistanceValue.toEngineeringNotation(ResistorCalculator.calculateValue(
+					ResistorCode.getMSB(code), ResistorCode.getLSB(code),
+					ResistorCode.getMultiplier(code)));
+		}
+		return String.format(topology.format, names);
+	}
+
+	private static double parallel(double a, double b) {
+		return a * b / (a + b);
+	}
+}
@@ -0,0 +1,406 @@
+/**
+ * An append-only, memory-mapped log of recently used and favorite resistor codes.
+ *
+ * The file is a fixed size header followed by two regions of capacity fixed size records, so
+ * opening a log only maps the file and reads the active region and its record count from the
+ * header; nothing is parsed. Appends are handed to a single background thread, so callers (ie.
+ * the UI thread) never wait on disk. When the active region fills up, the favorites plus the
+ * most recent distinct codes are copied into the other region, which then becomes active.
+ *
+ * 		header	(16 bytes)	magic, version, capacity, state (active region << 30 | count)
+ * 		record	(16 bytes)	timestamp (long), code (int), flags (int)
+ *
+ * A record only counts once the state in the header covers it, and a compaction only takes
+ * effect when the state names the new region, in a single write. A log cut off by a crash, even
+ * in the middle of a compaction, reopens with every record written before the last state
+ * update. Version 1 logs, which had one region, open as region 0.
+ *
+ * At most capacity / 2 codes can be favorites, so a compaction always leaves room; marking
+ * another one is ignored.
+ *
+ * Thread-safety: thread-safe. Appends may come from any thread and are written in order;
+ * after close() they are ignored.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+public class HistoryLog {
+
+	public static final int FLAG_FAVORITE = 1;
+	public static final int FLAG_UNFAVORITE = 2;
+
+	private static final int MAGIC = 0x52485354; // "RHST"
+	private static final int VERSION = 2;
+	private static final int VERSION_ONE_REGION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 16;
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int CAPACITY_OFFSET = 8;
+	private static final int STATE_OFFSET = 12;
+	private static final int REGION_SHIFT = 30;
+	private static final int COUNT_MASK = (1 << REGION_SHIFT) - 1;
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	private final File file;
+	private final int capacity;
+	private final ExecutorService writer;
+	private MappedByteBuffer buffer;
+
+	// Only changed on the writer thread, and then only while holding the lock: the writer reads
+	// them freely, other threads under the lock.
+	private int region;
+	private int count;
+	private volatile boolean closed;
+
+	/**
+	 * Opens (or creates) the history log stored in file.
+	 *
+	 * @param file		The file backing the log.
+	 * @return			The opened log.
+	 * @throws IOException	If the file could not be mapped.
+	 */
+	public static HistoryLog open(File file) throws IOException {
+		return new HistoryLog(file, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Opens (or creates) a history log holding at most capacity records before compacting.
+	 *
+	 * @param file		The file backing the log.
+	 * @param capacity	The number of records that fit in the log, up to 2^24.
+	 * @throws IOException	If the file could not be mapped.
+	 */
+	public HistoryLog(File file, int capacity) throws IOException {
+		this.file = file;
+		this.capacity = capacity;
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "HistoryLog");
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			}
+		});
+		map();
+	}
+
+	/**
+	 * Maps the backing file, initializing the header if the file is new or unreadable.
+	 */
+	private synchronized void map() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_SIZE + 2L * capacity * RECORD_SIZE);
+		}
+		finally {
+			raf.close();
+		}
+
+		int version = buffer.getInt(VERSION_OFFSET);
+		if (buffer.getInt(MAGIC_OFFSET) != MAGIC
+				|| (version != VERSION && version != VERSION_ONE_REGION)
+				|| buffer.getInt(CAPACITY_OFFSET) != capacity) {
+			buffer.putInt(MAGIC_OFFSET, MAGIC);
+			buffer.putInt(CAPACITY_OFFSET, capacity);
+			buffer.putInt(STATE_OFFSET, 0);
+		}
+		buffer.putInt(VERSION_OFFSET, VERSION);
+
+		int state = Math.max(buffer.getInt(STATE_OFFSET), 0);
+		region = state >>> REGION_SHIFT;
+		count = Math.min(state & COUNT_MASK, capacity);
+	}
+
+	/**
+	 * Records that code was used. Returns immediately; the write happens in the background.
+	 * Does nothing once the log is closed.
+	 * @param code		A packed code (see ResistorCode).
+	 */
+	public void append(int code) {
+		enqueue(code, 0);
+	}
+
+	/**
+	 * Marks or unmarks code as a favorite. Returns immediately; does nothing once the log is
+	 * closed.
+	 * @param code		A packed code (see ResistorCode).
+	 * @param favorite	TRUE to mark code as a favorite, FALSE to unmark it.
+	 */
+	public void setFavorite(int code, boolean favorite) {
+		enqueue(code, favorite ? FLAG_FAVORITE : FLAG_UNFAVORITE);
+	}
+
+	private void enqueue(final int code, final int flags) {
+		final long timestamp = System.currentTimeMillis();
+		execute(new Runnable() {
+
+			@Override
+			public void run() {
+				write(timestamp, code, flags);
+			}
+		});
+	}
+
+	/**
+	 * Runs a task on the writer thread, unless the log is closed.
+	 * @return		FALSE if the log is closed and the task was dropped.
+	 */
+	private boolean execute(Runnable task) {
+		if (closed) {
+			return false;
+		}
+
+		try {
+			writer.execute(task);
+			return true;
+		}
+		catch (RejectedExecutionException e) {
+			return false; // Closed by another thread since the check.
+		}
+	}
+
+	/**
+	 * Writes a record, compacting first if the log is full. Runs on the writer thread; it only
+	 * holds the lock to publish, so readers never wait for a compaction.
+	 */
+	private void write(long timestamp, int code, int flags) {
+
+		// Repeated uses of the same code only need to be recorded once.
+		if (flags == 0 && count > 0 && getCode(count - 1) == code && getFlags(count - 1) == 0) {
+			return;
+		}
+
+		if (flags == FLAG_FAVORITE) {
+			Map<Integer, long[]> favorites = readFavorites();
+			if (!favorites.containsKey(code) && favorites.size() >= capacity / 2) {
+				return; // Full of favorites.
+			}
+		}
+
+		if (count == capacity) {
+			compact();
+		}
+
+		// Past the count, so no reader looks at the record until the state covers it.
+		put(region, count, timestamp, code, flags);
+		publish(region, count + 1);
+	}
+
+	/**
+	 * Copies every favorite and the most recent distinct codes into the other region, then
+	 * makes it the active one.
+	 */
+	private void compact() {
+		Map<Integer, long[]> favorites = readFavorites();
+		List<long[]> recent = new ArrayList<long[]>();
+		int keep = capacity / 4;
+
+		for (int i = count - 1; i >= 0 && recent.size() < keep; i--) {
+			if (getFlags(i) == 0 && !containsCode(recent, getCode(i))) {
+				recent.add(0, new long[] { getTimestamp(i), getCode(i), 0 });
+			}
+		}
+
+		// A crash before publish() leaves the active region and the state as they were.
+		int target = 1 - region;
+		int written = 0;
+		for (long[] record : favorites.values()) {
+			put(target, written++, record[0], (int) record[1], (int) record[2]);
+		}
+
+		for (long[] record : recent) {
+			put(target, written++, record[0], (int) record[1], (int) record[2]);
+		}
+		publish(target, written);
+	}
+
+	/**
+	 * Returns the records of the codes currently marked as favorites, by code, in the order
+	 * they were marked.
+	 */
+	private Map<Integer, long[]> readFavorites() {
+		Map<Integer, long[]> favorites = new LinkedHashMap<Integer, long[]>();
+		for (int i = 0; i < count; i++) {
+			int flags = getFlags(i);
+			if (flags == FLAG_FAVORITE) {
+				favorites.put(getCode(i), new long[] { getTimestamp(i), getCode(i), flags });
+			}
+
+			else if (flags == FLAG_UNFAVORITE) {
+				favorites.remove(getCode(i));
+			}
+		}
+		return favorites;
+	}
+
+	/**
+	 * Makes the first newCount records of newRegion the log, with a single write of the state.
+	 */
+	private synchronized void publish(int newRegion, int newCount) {
+		buffer.putInt(STATE_OFFSET, newRegion << REGION_SHIFT | newCount);
+		region = newRegion;
+		count = newCount;
+	}
+
+	private void put(int toRegion, int index, long timestamp, int code, int flags) {
+		int offset = getOffset(toRegion, index);
+		buffer.putLong(offset, timestamp);
+		buffer.putInt(offset + 8, code);
+		buffer.putInt(offset + 12, flags);
+	}
+
+	private static boolean containsCode(List<long[]> records, int code) {
+		for (long[] record : records) {
+			if (record[1] == code) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The number of records currently in the log.
+	 * @return		The number of records.
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Returns up to max of the most recently used distinct codes, newest first.
+	 * @param max		Maximum number of codes to return.
+	 * @return			The codes.
+	 */
+	public synchronized int[] getRecent(int max) {
+		int[] codes = new int[Math.min(max, count)];
+		int found = 0;
+
+		for (int i = count - 1; i >= 0 && found < codes.length; i--) {
+			int code = getCode(i);
+			boolean seen = getFlags(i) != 0;
+			for (int j = 0; j < found && !seen; j++) {
+				seen = codes[j] == code;
+			}
+
+			if (!seen) {
+				codes[found++] = code;
+			}
+		}
+
+		int[] result = new int[found];
+		System.arraycopy(codes, 0, result, 0, found);
+		return result;
+	}
+
+	/**
+	 * Returns the codes currently marked as favorites, in the order they were marked.
+	 * @return		The favorite codes.
+	 */
+	public synchronized int[] getFavorites() {
+		Map<Integer, long[]> favorites = readFavorites();
+		int[] result = new int[favorites.size()];
+		int i = 0;
+		for (Integer code : favorites.keySet()) {
+			result[i++] = code;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the code of the most recent use, or -1 if the log has none.
+	 * @return		The most recently used code.
+	 */
+	public synchronized int getLast() {
+		for (int i = count - 1; i >= 0; i--) {
+			if (getFlags(i) == 0) {
+				return getCode(i);
+			}
+		}
+		return -1;
+	}
+
+	private int getOffset(int inRegion, int index) {
+		return HEADER_SIZE + (inRegion * capacity + index) * RECORD_SIZE;
+	}
+
+	private long getTimestamp(int index) {
+		return buffer.getLong(getOffset(region, index));
+	}
+
+	private int getCode(int index) {
+		return buffer.getInt(getOffset(region, index) + 8);
+	}
+
+	private int getFlags(int index) {
+		return buffer.getInt(getOffset(region, index) + 12);
+	}
+
+	/**
+	 * Flushes the log to disk once the pending appends are written. Returns immediately;
+	 * appends made afterwards are ignored. Closing a closed log does nothing.
+	 */
+	public void close() {
+		execute(new Runnable() {
+
+			@Override
+			public void run() {
+				synchronized (HistoryLog.this) {
+					buffer.force();
+				}
+			}
+		});
+		closed = true;
+		writer.shutdown();
+	}
+
+	/**
+	 * Blocks until every append made before this call has been written; returns at once if
+	 * the log is closed. Intended for tests and tools; never call this from the UI thread.
+	 * @param timeoutMillis		Maximum time to wait.
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	public void await(long timeoutMillis) throws InterruptedException {
+		final Object done = new Object();
+		final boolean[] finished = new boolean[1];
+		boolean queued = execute(new Runnable() {
+
+			@Override
+			public void run() {
+				synchronized (done) {
+					finished[0] = true;
+					done.notifyAll();
+				}
+			}
+		});
+		if (!queued) {
+			return;
+		}
+
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (done) {
+			while (!finished[0] && System.currentTimeMillis() < deadline) {
+				done.wait(Math.max(1, deadline - System.currentTimeMillis()));
+			}
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/**
+ * The resistors in stock, indexed for finding the best substitute for a value that is not.
+ *
+ * A query returns the closest single part, the closest series pair and the closest parallel
+ * pair that can be built from the stock (a pair only uses the same part twice if at least two
+ * are in stock), ranked by relative error.
+ *
+ * Parts are kept in primitive arrays sorted by resistance, so each pair search is one pass over
+ * the parts with a binary search for the partner. A bitset per decade records which digit pairs
+ * are stocked, so exact matches are answered without a search.
+ *
+ * Thread-safety: immutable once constructed; queries may run on any number of threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class Inventory {
+
+	private static final int DECADES = ResistorTables.MAX_MULTIPLIER
+			- ResistorTables.MIN_MULTIPLIER + 1;
+
+	private final double[] values;
+	private final int[] codes;
+	private final int[] counts;
+	private final long[] stocked = new long[DECADES * 2]; // One bit per digit pair per decade.
+
+	/**
+	 * How the parts of a Match are connected.
+	 */
+	public enum Kind {
+		SINGLE, SERIES, PARALLEL
+	}
+
+	/**
+	 * One or two stocked parts and how close they come to the target.
+	 */
+	public static final class Match {
+		private final Kind kind;
+		private final int[] codes;
+		private final double value;
+		private final double error;
+
+		Match(Kind kind, int[] codes, double value, double target) {
+			this.kind = kind;
+			this.codes = codes;
+			this.value = value;
+			error = (value - target) / target;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return		The packed codes of the parts, smallest resistance first.
+		 */
+		public int[] getCodes() {
+			return codes.clone();
+		}
+
+		/**
+		 * @return		The resistance of the combination in ohms.
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * @return		(value - target) / target
+		 */
+		public double getError() {
+			return error;
+		}
+
+		/**
+		 * Returns the bands of one of the parts.
+		 * @param part		Index of the part (0 or, for a pair, 1).
+		 * @return			The four bands, most significant first.
+		 */
+		public ResistorColor[] getBands(int part) {
+			int code = codes[part];
+			return new ResistorColor[] { ResistorColor.fromValue(ResistorCode.getMSB(code)),
+					ResistorColor.fromValue(ResistorCode.getLSB(code)),
+					ResistorColor.fromValue(ResistorCode.getMultiplier(code)),
+					ResistorColor.fromValue(ResistorCode.getTolerance(code)) };
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			for (int i = 0; i < codes.length; i++) {
+				if (i > 0) {
+					s.append(kind == Kind.SERIES ? " + " : " || ");
+				}
+				s.append(ResistorTables.getFormatted(codes[i]));
+			}
+			return s.append(String.format(" (%+.2f%%)", error * 100)).toString();
+		}
+	}
+
+	private static final Comparator<Match> BY_ERROR = new Comparator<Match>() {
+
+		@Override
+		public int compare(Match a, Match b) {
+			return Double.compare(Math.abs(a.error), Math.abs(b.error));
+		}
+	};
+
+	/**
+	 * Indexes a stock list.
+	 * @param stock		Number in stock by packed code (see ResistorCode); the first band of every
+	 * 					code must not be black. Codes with no parts in stock are ignored.
+	 */
+	public Inventory(Map<Integer, Integer> stock) {
+		Integer[] order = new Integer[stock.size()];
+		int n = 0;
+		for (Map.Entry<Integer, Integer> entry : stock.entrySet()) {
+			int code = entry.getKey();
+			if (ResistorCode.getMSB(code) < 1 || ResistorCode.getMSB(code) > 9
+					|| ResistorCode.getLSB(code) < 0 || ResistorCode.getLSB(code) > 9
+					|| ResistorCode.getMultiplier(code) > ResistorTables.MAX_MULTIPLIER) {
+				throw new IllegalArgumentException("not a valid code: " + Integer.toHexString(code));
+			}
+
+			if (entry.getValue() > 0) {
+				order[n++] = code;
+			}
+		}
+
+		Arrays.sort(order, 0, n, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(ResistorTables.getValue(a), ResistorTables.getValue(b));
+			}
+		});
+
+		values = new double[n];
+		codes = new int[n];
+		counts = new int[n];
+		for (int i = 0; i < n; i++) {
+			codes[i] = order[i];
+			values[i] = ResistorTables.getValue(codes[i]);
+			counts[i] = stock.get(order[i]);
+
+			int bit = digits(codes[i]);
+			stocked[decade(codes[i]) * 2 + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * @return		Number of distinct codes in stock.
+	 */
+	public int size() {
+		return codes.length;
+	}
+
+	/**
+	 * Determines if a part with the value of code is in stock, whatever its tolerance.
+	 * @param code		A packed code.
+	 * @return			TRUE if it is in stock.
+	 */
+	public boolean contains(int code) {
+		int bit = digits(code);
+		return (stocked[decade(code) * 2 + (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Finds the best way to build the value of a code from stock.
+	 * @param code		A packed code.
+	 * @return			See match(double).
+	 */
+	public List<Match> matchCode(int code) {
+		if (contains(code)) {
+			int i = Arrays.binarySearch(values, ResistorTables.getValue(code));
+			return Collections.singletonList(new Match(Kind.SINGLE, new int[] { codes[i] },
+					values[i], values[i]));
+		}
+		return match(ResistorTables.getValue(code));
+	}
+
+	/**
+	 * Finds the best single part, series pair and parallel pair for a resistance.
+	 * @param target	The resistance in ohms.
+	 * @return			Up to one match of each kind, best first; empty if nothing is in stock.
+	 * 					An exact single part is returned on its own.
+	 */
+	public List<Match> match(double target) {
+		if (!(target > 0)) {
+			throw new IllegalArgumentException("target must be positive: " + target);
+		}
+
+		List<Match> matches = new ArrayList<Match>(3);
+		int n = values.length;
+		if (n == 0) {
+			return matches;
+		}
+
+		int pos = lowerBound(target, 0);
+		int single = pos == n || (pos > 0 && target - values[pos - 1] <= values[pos] - target)
+				? pos - 1 : pos;
+		matches.add(new Match(Kind.SINGLE, new int[] { codes[single] }, values[single], target));
+		if (values[single] == target) {
+			return matches;
+		}
+
+		// A series pair is only better than a single part if both parts are below the target,
+		// and a parallel pair only if both are above it.
+		int bestA = -1;
+		int bestB = -1;
+		double best = Double.MAX_VALUE;
+		for (int a = 0; a < n && values[a] < target; a++) {
+			int b = lowerBound(target - values[a], a);
+			for (int j = b - 1; j <= b + 1; j++) {
+				if (pairable(a, j)) {
+					double error = Math.abs(values[a] + values[j] - target);
+					if (error < best) {
+						best = error;
+						bestA = a;
+						bestB = j;
+					}
+				}
+			}
+		}
+
+		if (bestA >= 0) {
+			matches.add(new Match(Kind.SERIES, new int[] { codes[bestA], codes[bestB] },
+					values[bestA] + values[bestB], target));
+		}
+
+		bestA = -1;
+		best = Double.MAX_VALUE;
+		for (int a = pos; a < n; a++) {
+			if (values[a] <= target) {
+				continue;
+			}
+
+			int b = lowerBound(values[a] * target / (values[a] - target), a);
+			for (int j = b - 1; j <= b + 1; j++) {
+				if (pairable(a, j)) {
+					double error = Math.abs(parallel(values[a], values[j]) - target);
+					if (error < best) {
+						best = error;
+						bestA = a;
+						bestB = j;
+					}
+				}
+			}
+		}
+
+		if (bestA >= 0) {
+			matches.add(new Match(Kind.PARALLEL, new int[] { codes[bestA], codes[bestB] },
+					parallel(values[bestA], values[bestB]), target));
+		}
+
+		// Stable, so a single part wins a tie with a pair.
+		Collections.sort(matches, BY_ERROR);
+		return matches;
+	}
+
+	/**
+	 * Returns the best way to build a resistance from stock.
+	 * @param target	The resistance in ohms.
+	 * @return			The match with the smallest error, or null if nothing is in stock.
+	 */
+	public Match best(double target) {
+		List<Match> matches = match(target);
+		return matches.isEmpty() ? null : matches.get(0);
+	}
+
+	/**
+	 * Determines if part j may be paired with part a (j >= a, and the same part twice only if
+	 * there are two of it).
+	 */
+	private boolean pairable(int a, int j) {
+		return j >= a && j < values.length && (j != a || counts[a] >= 2);
+	}
+
+	/**
+	 * Returns the index of the first value >= v, searching from index from.
+	 */
+	private int lowerBound(double v, int from) {
+		int low = from;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < v) {
+				low = mid + 1;
+			}
+
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static double parallel(double a, double b) {
+		return a * b / (a + b);
+	}
+
+	private static int digits(int code) {
+		return ResistorCode.getMSB(code) * 10 + ResistorCode.getLSB(code);
+	}
+
+	private static int decade(int code) {
+		return ResistorCode.getMultiplier(code) - ResistorTables.MIN_MULTIPLIER;
+	}
+}
@@ -0,0 +1,421 @@
+/**
+ * A supplier's part library in a columnar binary file, so that a tool starting up maps it
+ * instead of parsing every value string again.
+ *
+ * write() converts a CSV of "sku,value[,tolerance]" lines once (the columns may also be
+ * separated by ';' or tabs; a value is anything Resistance.toCode() reads, a tolerance a
+ * percentage such as "5%" and gold if missing). Each row keeps its packed code, its tolerance
+ * band, its E-series flags and its SKU. Lines that do not parse, such as a header, are skipped.
+ *
+ * The file holds one column per field, then an index of the rows sorted by their value bands:
+ *
+ * 		int[rows]		packed code (see ResistorCode)
+ * 		int[rows]		rows by value bands, then row
+ * 		int[4097]		where the rows of each value bands (code & VALUE_MASK) start above
+ * 		int[rows + 1]	where the SKU of each row starts in the SKU bytes
+ * 		byte[rows]		tolerance band
+ * 		byte[rows]		E-series flags (E6, E12 and E24)
+ * 		byte[]			the SKUs, UTF-8
+ *
+ * open() maps the file and every column is a view of the mapping; nothing is copied, and only
+ * reading a SKU allocates. All the parts with the same three value bands are found with two
+ * reads of the index, whatever their tolerance.
+ *
+ * Thread-safety: immutable once opened; reads may run on any number of threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+public class PartLibrary {
+
+	private static final int MAGIC = 0x52504C42; // "RPLB"
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 4; // MAGIC, VERSION, rows, SKU bytes.
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The bits of a packed code that hold the value bands, without the tolerance band.
+	 */
+	public static final int VALUE_MASK = 0xFFF;
+	private static final int KEYS = VALUE_MASK + 1;
+
+	public static final int E6 = 1;
+	public static final int E12 = 2;
+	public static final int E24 = 4;
+	private static final int[] E24_VALUES = { 10, 11, 12, 13, 15, 16, 18, 20, 22, 24, 27, 30,
+			33, 36, 39, 43, 47, 51, 56, 62, 68, 75, 82, 91 };
+
+	// Tolerance bands by percentage, as the bands are read.
+	private static final double[] PERCENTS = { 1, 2, 0.5, 0.25, 0.1, 0.05, 5, 10 };
+	private static final int[] TOLERANCE_BANDS = { 1, 2, 5, 6, 7, 8, -1, -2 };
+	private static final int GOLD = -1;
+
+	private final int rows;
+	private final IntBuffer codes;
+	private final IntBuffer byCode;
+	private final IntBuffer keyStart;
+	private final IntBuffer skuStart;
+	private final ByteBuffer tolerances;
+	private final ByteBuffer series;
+	private final ByteBuffer skus;
+
+	private PartLibrary(int rows, IntBuffer codes, IntBuffer byCode, IntBuffer keyStart,
+			IntBuffer skuStart, ByteBuffer tolerances, ByteBuffer series, ByteBuffer skus) {
+		this.rows = rows;
+		this.codes = codes;
+		this.byCode = byCode;
+		this.keyStart = keyStart;
+		this.skuStart = skuStart;
+		this.tolerances = tolerances;
+		this.series = series;
+		this.skus = skus;
+	}
+
+	/**
+	 * Converts a CSV part list.
+	 * @param csv		The CSV; it is read to the end but not closed.
+	 * @param file		The file to write.
+	 * @param skipped	If not null, the lines skipped are added to it.
+	 * @return			Number of parts written.
+	 * @throws IOException	If the CSV cannot be read or the file written.
+	 */
+	public static int write(Reader csv, File file, List<String> skipped) throws IOException {
+		int[] codes = new int[1024];
+		int[] skuStart = new int[1025];
+		ByteArrayOutputStream skus = new ByteArrayOutputStream();
+		int rows = 0;
+
+		BufferedReader in = new BufferedReader(csv);
+		String[] columns = new String[3];
+		String line;
+		while ((line = in.readLine()) != null) {
+			int code = split(line, columns) < 2 ? -1 : Resistance.toCode(columns[1]);
+			int tolerance = columns[2] == null ? GOLD : toleranceBand(columns[2]);
+			if (code == -1 || tolerance == Integer.MIN_VALUE || columns[0].length() == 0) {
+				if (skipped != null && line.trim().length() > 0) {
+					skipped.add(line);
+				}
+				continue;
+			}
+
+			if (rows == codes.length) {
+				codes = Arrays.copyOf(codes, rows * 2);
+				skuStart = Arrays.copyOf(skuStart, rows * 2 + 1);
+			}
+
+			codes[rows] = ResistorCode.pack(ResistorCode.getMSB(code), ResistorCode.getLSB(code),
+					ResistorCode.getMultiplier(code), tolerance);
+			byte[] sku = columns[0].getBytes(UTF_8);
+			skus.write(sku, 0, sku.length);
+			skuStart[++rows] = skus.size();
+		}
+
+		// Rows by value bands, then by row: sort (value bands, row) pairs.
+		long[] order = new long[rows];
+		int[] keyStart = new int[KEYS + 1];
+		for (int row = 0; row < rows; row++) {
+			int key = codes[row] & VALUE_MASK;
+			order[row] = (long) key << 32 | row;
+			keyStart[key + 1]++;
+		}
+		Arrays.sort(order);
+		for (int key = 0; key < KEYS; key++) {
+			keyStart[key + 1] += keyStart[key];
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(rows);
+			out.writeInt(skus.size());
+			for (int row = 0; row < rows; row++) {
+				out.writeInt(codes[row]);
+			}
+
+			for (long entry : order) {
+				out.writeInt((int) entry);
+			}
+
+			for (int start : keyStart) {
+				out.writeInt(start);
+			}
+
+			for (int row = 0; row <= rows; row++) {
+				out.writeInt(skuStart[row]);
+			}
+
+			for (int row = 0; row < rows; row++) {
+				out.writeByte(ResistorCode.getTolerance(codes[row]));
+			}
+
+			for (int row = 0; row < rows; row++) {
+				out.writeByte(seriesOf(ResistorCode.getMSB(codes[row]) * 10
+						+ ResistorCode.getLSB(codes[row])));
+			}
+			skus.writeTo(out);
+		}
+		finally {
+			out.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * Splits a CSV line into up to columns.length trimmed columns; missing ones are null.
+	 * @return		Number of columns found.
+	 */
+	private static int split(String line, String[] columns) {
+		Arrays.fill(columns, null);
+		int n = 0;
+		int start = 0;
+		for (int i = 0; i <= line.length() && n < columns.length; i++) {
+			char c = i == line.length() ? ',' : line.charAt(i);
+			if (c == ',' || c == ';' || c == '\t') {
+				columns[n++] = unquote(line.substring(start, i).trim());
+				start = i + 1;
+			}
+		}
+		return n;
+	}
+
+	private static String unquote(String s) {
+		if (s.length() >= 2 && s.charAt(0) == '"' && s.charAt(s.length() - 1) == '"') {
+			return s.substring(1, s.length() - 1).trim();
+		}
+		return s;
+	}
+
+	/**
+	 * Reads a tolerance such as "5%", "+-1%" or "0.1".
+	 * @return		The tolerance band, gold if empty, or Integer.MIN_VALUE if not a tolerance.
+	 */
+	static int toleranceBand(String tolerance) {
+		String s = tolerance;
+		if (s.startsWith("\u00B1")) {
+			s = s.substring(1);
+		}
+
+		else if (s.startsWith("+-") || s.startsWith("+/-")) {
+			s = s.substring(s.indexOf('-') + 1);
+		}
+
+		if (s.endsWith("%")) {
+			s = s.substring(0, s.length() - 1);
+		}
+
+		if (s.trim().length() == 0) {
+			return tolerance.length() == 0 ? GOLD : Integer.MIN_VALUE;
+		}
+
+		double percent;
+		try {
+			percent = Double.parseDouble(s.trim());
+		}
+		catch (NumberFormatException e) {
+			return Integer.MIN_VALUE;
+		}
+
+		for (int i = 0; i < PERCENTS.length; i++) {
+			if (PERCENTS[i] == percent) {
+				return TOLERANCE_BANDS[i];
+			}
+		}
+		return Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the E-series that have a value.
+	 * @param digits	The two significant digits, 10 to 99.
+	 * @return			E6, E12 and E24, or'ed.
+	 */
+	public static int seriesOf(int digits) {
+		int flags = 0;
+		int i = Arrays.binarySearch(E24_VALUES, digits);
+		if (i >= 0) {
+			flags |= E24;
+			if (i % 2 == 0) {
+				flags |= E12;
+				if (i % 4 == 0) {
+					flags |= E6;
+				}
+			}
+		}
+		return flags;
+	}
+
+	/**
+	 * Maps a file written by write(). The file is closed again; the mapping stays valid.
+	 * @param file		The file.
+	 * @return			The library.
+	 * @throws IOException	If the file cannot be read or was not written by write().
+	 */
+	public static PartLibrary open(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the library from the contents of a file written by write(), without copying them.
+	 * @param buffer	The contents, from its position on.
+	 * @return			The library.
+	 * @throws IOException	If the contents were not written by write().
+	 */
+	public static PartLibrary wrap(ByteBuffer buffer) throws IOException {
+		ByteBuffer in = buffer.slice();
+		if (in.remaining() < HEADER_INTS * 4 || in.getInt() != MAGIC) {
+			throw new IOException("not a part library");
+		}
+
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported part library version " + version);
+		}
+
+		int rows = in.getInt();
+		int skuBytes = in.getInt();
+		long size = ((long) rows * 3 + 1 + KEYS + 1) * 4 + (long) rows * 2 + skuBytes;
+		if (rows < 0 || skuBytes < 0 || in.remaining() != size) {
+			throw new IOException("truncated part library");
+		}
+
+		IntBuffer codes = intColumn(in, rows);
+		IntBuffer byCode = intColumn(in, rows);
+		IntBuffer keyStart = intColumn(in, KEYS + 1);
+		IntBuffer skuStart = intColumn(in, rows + 1);
+		ByteBuffer tolerances = byteColumn(in, rows);
+		ByteBuffer series = byteColumn(in, rows);
+		ByteBuffer skus = byteColumn(in, skuBytes);
+		return new PartLibrary(rows, codes, byCode, keyStart, skuStart, tolerances, series, skus);
+	}
+
+	/**
+	 * Returns a view of the next length ints of in, and moves in past them.
+	 */
+	private static IntBuffer intColumn(ByteBuffer in, int length) {
+		ByteBuffer column = in.slice();
+		column.limit(length * 4);
+		in.position(in.position() + length * 4);
+		return column.asIntBuffer();
+	}
+
+	/**
+	 * Returns a view of the next length bytes of in, and moves in past them.
+	 */
+	private static ByteBuffer byteColumn(ByteBuffer in, int length) {
+		ByteBuffer column = in.slice();
+		column.limit(length);
+		in.position(in.position() + length);
+		return column.slice();
+	}
+
+	/**
+	 * @return		Number of parts.
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * @return		The packed code of every part, by row; a read-only view of the file.
+	 */
+	public IntBuffer getCodes() {
+		return codes.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return		The tolerance band of every part, by row; a read-only view of the file.
+	 */
+	public ByteBuffer getTolerances() {
+		return tolerances.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return		The E-series flags of every part, by row; a read-only view of the file.
+	 */
+	public ByteBuffer getSeries() {
+		return series.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return		The packed code (see ResistorCode) of a part.
+	 */
+	public int getCode(int row) {
+		return codes.get(row);
+	}
+
+	/**
+	 * @return		The tolerance band of a part.
+	 */
+	public int getTolerance(int row) {
+		return tolerances.get(row);
+	}
+
+	/**
+	 * @return		The E-series of the value of a part: E6, E12 and E24, or'ed.
+	 */
+	public int getSeries(int row) {
+		return series.get(row);
+	}
+
+	/**
+	 * @return		The SKU of a part.
+	 */
+	public String getSku(int row) {
+		int start = skuStart.get(row);
+		int length = skuStart.get(row + 1) - start;
+		byte[] sku = new byte[length];
+		ByteBuffer view = skus.duplicate();
+		view.position(start);
+		view.get(sku);
+		return new String(sku, UTF_8);
+	}
+
+	/**
+	 * Finds the parts with the value bands of a code, whatever their tolerance: their rows are
+	 * getRowByCode(i) for i from fromIndex(code) up to, not including, toIndex(code).
+	 * @param code		A packed code; its tolerance band is ignored.
+	 */
+	public int fromIndex(int code) {
+		return keyStart.get(code & VALUE_MASK);
+	}
+
+	/**
+	 * See fromIndex(int).
+	 */
+	public int toIndex(int code) {
+		return keyStart.get((code & VALUE_MASK) + 1);
+	}
+
+	/**
+	 * @param i		0 to size() - 1.
+	 * @return		The row of the i'th part in order of value bands, then of row.
+	 */
+	public int getRowByCode(int i) {
+		return byCode.get(i);
+	}
+}
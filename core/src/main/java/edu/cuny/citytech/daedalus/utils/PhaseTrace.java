@@ -0,0 +1,179 @@
+/**
+ * Times the phases of a piece of work, ie. a start-up, and formats them as one line:
+ *
+ * 		name phase=1.5ms phase=0.25ms ... milestone=2.0ms
+ *
+ * Phases run one after another; beginning a phase ends the current one, and the milestone is
+ * the time from construction to finish(), so it also covers any time between phases. Up to
+ * MAX_PHASES phases are kept; later ones still count towards the milestone. Nothing is timed
+ * after finish().
+ *
+ * Subclasses see each phase begin and end (the app emits them as systrace sections) and the
+ * finished line. Time is read from a Clock, System.nanoTime() unless one is given.
+ *
+ * Thread-safety: not thread-safe; a trace is used from the thread it times.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class PhaseTrace {
+
+	/**
+	 * A source of time in nanoseconds.
+	 */
+	public interface Clock {
+		long now();
+	}
+
+	public static final int MAX_PHASES = 16;
+
+	/** Reads System.nanoTime(). */
+	public static final Clock SYSTEM_CLOCK = new Clock() {
+
+		@Override
+		public long now() {
+			return System.nanoTime();
+		}
+	};
+
+	private final String name;
+	private final Clock clock;
+	private final long start;
+	private final String[] phases = new String[MAX_PHASES];
+	private final long[] durations = new long[MAX_PHASES];
+	private int phaseCount;
+	private String current;
+	private long currentStart;
+	private long total = -1;
+
+	/**
+	 * Starts timing on the system clock.
+	 * @param name		Name reported with the breakdown.
+	 */
+	public PhaseTrace(String name) {
+		this(name, SYSTEM_CLOCK);
+	}
+
+	/**
+	 * Starts timing.
+	 * @param name		Name reported with the breakdown.
+	 * @param clock		The clock every phase is timed on.
+	 */
+	public PhaseTrace(String name, Clock clock) {
+		this.name = name;
+		this.clock = clock;
+		start = clock.now();
+	}
+
+	/**
+	 * Starts a phase, ending the current one if there is one.
+	 * @param phase		Name of the phase.
+	 */
+	public void begin(String phase) {
+		if (isFinished()) {
+			return;
+		}
+
+		end();
+		current = phase;
+		currentStart = clock.now();
+		phaseBegan(phase);
+	}
+
+	/**
+	 * Ends the current phase.
+	 */
+	public void end() {
+		if (current == null) {
+			return;
+		}
+
+		long duration = clock.now() - currentStart;
+		phaseEnded();
+		if (phaseCount < MAX_PHASES) {
+			phases[phaseCount] = current;
+			durations[phaseCount] = duration;
+			phaseCount++;
+		}
+		current = null;
+	}
+
+	/**
+	 * Ends the work, with the current phase if there is one.
+	 * @param milestone		Name of the point the work ended at (ie. "firstFrame").
+	 * @return				The time of each phase and the total, as one line; null if the
+	 * 						trace was already finished.
+	 */
+	public String finish(String milestone) {
+		if (isFinished()) {
+			return null;
+		}
+
+		end();
+		total = clock.now() - start;
+		StringBuilder report = new StringBuilder(name);
+		for (int i = 0; i < phaseCount; i++) {
+			report.append(' ').append(phases[i]).append('=').append(toMillis(durations[i]))
+					.append("ms");
+		}
+		report.append(' ').append(milestone).append('=').append(toMillis(total)).append("ms");
+		String line = report.toString();
+		finished(line);
+		return line;
+	}
+
+	/**
+	 * @return		TRUE once finish() has been called.
+	 */
+	public boolean isFinished() {
+		return total >= 0;
+	}
+
+	/**
+	 * @return		Number of phases ended, up to MAX_PHASES.
+	 */
+	public int getPhaseCount() {
+		return phaseCount;
+	}
+
+	public String getPhase(int index) {
+		return phases[index];
+	}
+
+	/**
+	 * @return		The time of a phase, in nanoseconds.
+	 */
+	public long getDuration(int index) {
+		return durations[index];
+	}
+
+	/**
+	 * @return		The time from construction to finish(), in nanoseconds; -1 until finished.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Called when a phase begins; does nothing.
+	 */
+	protected void phaseBegan(String phase) {
+	}
+
+	/**
+	 * Called when the current phase ends; does nothing.
+	 */
+	protected void phaseEnded() {
+	}
+
+	/**
+	 * Called with the line finish() returns; does nothing.
+	 */
+	protected void finished(String report) {
+	}
+
+	private static String toMillis(long nanos) {
+		return String.valueOf(nanos / 1000 / 1000f);
+	}
+}
@@ -0,0 +1,501 @@
+/**
+ * A static utility class to perform operations related to resistances.
+ * 
+ * Strings are read by a single left to right scan, without regular expressions or substrings.
+ * Besides decimal values with an optional k or M prefix (ie. "4.7k"), the scan accepts the
+ * milli and giga prefixes (ie. "470m", "1G") and IEC 60062 RKM codes, where the prefix letter
+ * (or R for none) stands in for the decimal point (ie. "4R7", "2k2", "1M5", "R47"). Any of them
+ * may end in '\u03A9'.
+ * 
+ * Every method except parse() first looks the string up in CanonicalIndex, so the canonical
+ * spellings (ie. "4.7k") are answered from their code without parsing.
+ * 
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ * 
+ * @author Jason Warren
+ * 
+ * 
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.math.BigDecimal;
+
+public class Resistance {
+
+	private static final char OMEGA = '\u03A9';
+	private static final int NO_PREFIX = Integer.MIN_VALUE;
+	private static final int MAX_LENGTH = 0xFFFF; // Longest string scan() can count.
+	private static final int MIN_EXPONENT = -3;
+	private static final BigDecimal INVALID_VALUE = BigDecimal.valueOf(-1);
+	private static final long INVALID_PACKED_VALUE = ResistanceValue.valueOf(-1, 0);
+
+	// The result of scan(); see there.
+	private static final long INVALID = -1;
+	private static final int PRECISION_SHIFT = 8;
+	private static final int FRACTION_SHIFT = 24;
+	private static final int PREFIX_SHIFT = 40;
+	private static final int LEAD_MASK = 0x7F;
+	private static final int COUNT_MASK = 0xFFFF;
+	private static final int PREFIX_MASK = 0xFF;
+	private static final int PREFIX_OFFSET = 16;
+
+	// Where scan() is in the string.
+	private static final int INTEGER = 0;
+	private static final int FRACTION = 1;
+	private static final int PREFIXED = 2;
+	private static final int END = 3;
+
+	private static volatile ResistanceCache cache;
+	
+	/**
+	 * Installs a cache that every method in this class answers repeated strings from, or
+	 * removes it. Results are the same either way; only the time taken differs.
+	 * 
+	 * @param newCache	The cache to use, or null to turn caching off.
+	 */
+	public static void setCache(ResistanceCache newCache){
+		cache = newCache;
+	}
+	
+	/**
+	 * Accessor for the installed cache (ie. to read its hit and miss counts).
+	 * @return			The installed cache or null if caching is off.
+	 */
+	public static ResistanceCache getCache(){
+		return cache;
+	}
+
+	/**
+	 * Parses a resistance string and returns the plain number resistance value that corresponds
+	 * with the string.
+	 * 
+	 * 
+	 * @param resistance
+	 *            A string representing the resistance value. This may be purely
+	 *            numerical, contain SI prefixes (ie. 33k, 470m) or be an RKM code
+	 *            (ie. 4k7). The final character in the string can be the char
+	 *            '\u03A9' to indicate units of ohms, or it may be omitted.
+	 * 
+	 * @return The value of the resistance or -1 if the string does not
+	 *         represent a valid value. note that this function does NOT check to see if
+	 *         resistance is in the valid range of a 3 band color code (.1ohm to 99Gohm).
+	 *         The best way to do that is by calling getMultiplier() and checking whether it is
+	 *         > -2 and < 10.
+	 */
+	public static BigDecimal parse(String resistance) {
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).value;
+		}
+		return parseUncached(resistance);
+	}
+
+	/**
+	 * parse() without the cache.
+	 */
+	static BigDecimal parseUncached(String resistance) {
+		long scan = scan(resistance);
+		if (scan == INVALID) {
+			return INVALID_VALUE;
+		}
+
+		// The digits times the prefix, rounded to two significant digits; the scale comes out
+		// as BigDecimal would give it for the decimal spelling, ie. "1.00" is 1.0 and "10k"
+		// is 1.0E+4.
+		int lead = getLead(scan);
+		int precision = getPrecision(scan);
+		int prefix = getPrefix(scan);
+		int scale = getFraction(scan) + Math.max(-prefix, 0);
+		int roundedPrecision = precision + Math.max(prefix, 0);
+
+		if (roundedPrecision <= 2) {
+			return BigDecimal.valueOf(precision == 1 ? lead / 10 : lead, scale);
+		}
+		return BigDecimal.valueOf(lead, scale - (roundedPrecision - 2));
+	}
+
+	/**
+	 * parse() as an exact ResistanceValue, for callers that go on to compare or combine
+	 * values; it neither allocates nor goes through the cache.
+	 * 
+	 * @param resistance	A resistance string, as for parse().
+	 * @return				The packed value, or the value -1 if resistance is not valid.
+	 */
+	public static long parseValue(String resistance) {
+		long scan = scan(resistance);
+		if (scan == INVALID) {
+			return INVALID_PACKED_VALUE;
+		}
+		return ResistanceValue.valueOf(getLead(scan), getExponent(scan));
+	}
+
+	/**
+	 * Determines if the string is one of the preferred values per decade.
+	 * 
+	 * @param resistance	The string whose value is to be checked against the standard.
+	 * 						This string can be in engineering notation.
+	 * 
+	 * @return				TRUE if the first two non-zero significant digits of resistance
+	 * 						are 10, 12, 15, 18, 22, 27, 33, 39, 47, 56, 68, 82 or resistance = 1
+	 */
+	public static boolean isStandard(String resistance) {
+		int code = CanonicalIndex.lookup(resistance);
+		if (code != -1) {
+			return isStandard(ResistorCode.getMSB(code), ResistorCode.getLSB(code));
+		}
+
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).standard;
+		}
+		return isStandardUncached(resistance);
+	}
+
+	/**
+	 * isStandard() without the cache.
+	 */
+	static boolean isStandardUncached(String resistance) {
+		long scan = scan(resistance);
+		return scan != INVALID && isStandard(getFirstSigDigit(scan), getSecondSigDigit(scan));
+	}
+
+	/**
+	 * Determines if two significant digits are an E12 value. Resistance is used to check the
+	 * generated ResistorTables, so it can not use ResistorTables.isStandard().
+	 */
+	private static boolean isStandard(int first, int second) {
+		switch (first * 10 + second) {
+		case 10: case 12: case 15: case 18: case 22: case 27:
+		case 33: case 39: case 47: case 56: case 68: case 82:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Converts a resistance string to a 3 band color code (with a gold tolerance band).
+	 * 
+	 * @param resistance	The resistance string. This string can be in engineering notation.
+	 * @return				The packed code (see ResistorCode) or -1 if resistance is not valid
+	 * 						or can not be shown with a multiplier band between silver (-2)
+	 * 						and white (9).
+	 */
+	public static int toCode(String resistance) {
+		int code = CanonicalIndex.lookup(resistance);
+		if (code != -1) {
+			return code;
+		}
+
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).code;
+		}
+		return toCodeUncached(resistance);
+	}
+
+	/**
+	 * toCode() without the cache.
+	 */
+	static int toCodeUncached(String resistance){
+		int code = -1;
+		long scan = scan(resistance);
+		
+		if(scan != INVALID){
+			int exponent = getMultiplier(scan);
+			if(exponent > -3 && exponent < 10){
+				code = ResistorCode.pack(getFirstSigDigit(scan), getSecondSigDigit(scan),
+						exponent, -1);
+			}
+		}
+		
+		return code;
+	}
+
+	/**
+	 * Determines if resistance can be represented using two significant digits and a power of
+	 * 10.
+	 * 
+	 * @param resistance	Any string to be checked against.
+	 * @return				TRUE if resistance is a number other than 0 with at most two
+	 * 						significant digits: an integer part that is empty, "0" or does
+	 * 						not start with 0, and a fraction of at least one digit after a
+	 * 						'.' (then an optional m, k, M or G) or after an RKM letter (R,
+	 * 						m, k, M or G), followed by an optional '\u03A9'.
+	 * 
+	 */
+	public static boolean isValid(String resistance) {
+		int code = CanonicalIndex.lookup(resistance);
+		if (code != -1) {
+			return true;
+		}
+
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).valid;
+		}
+		return isValidUncached(resistance);
+	}
+
+	/**
+	 * isValid() without the cache.
+	 */
+	static boolean isValidUncached(String resistance) {
+		return scan(resistance) != INVALID;
+	}
+
+	/**
+	 * Determines the exponent 'x' such that resistance / (10^x) results in two significant
+	 * digits.
+	 * 
+	 * @param resistance	The numerical input string.
+	 * @return				The exponent such that resistance / 10^x results in two sig figures
+	 */
+	public static int getMultiplier(String resistance) {
+		int code = CanonicalIndex.lookup(resistance);
+		if (code != -1) {
+			return ResistorCode.getMultiplier(code);
+		}
+
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).multiplier;
+		}
+		return getMultiplierUncached(resistance);
+	}
+
+	/**
+	 * getMultiplier() without the cache.
+	 */
+	static int getMultiplierUncached(String resistance) {
+		long scan = scan(resistance);
+		return scan == INVALID ? MIN_EXPONENT : getMultiplier(scan);
+	}
+
+	/**
+	 * Returns the first significant digit of resistance.
+	 * 
+	 * @param resistance	The numerical resistance which to take the digit from.
+	 * @return				The first significant digit of resistance.
+	 */
+	public static int getFirstSigDigit(String resistance) {
+		int code = CanonicalIndex.lookup(resistance);
+		if (code != -1) {
+			return ResistorCode.getMSB(code);
+		}
+
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).firstDigit;
+		}
+		return getFirstSigDigitUncached(resistance);
+	}
+
+	/**
+	 * getFirstSigDigit() without the cache.
+	 */
+	static int getFirstSigDigitUncached(String resistance) {
+		long scan = scan(resistance);
+		return scan == INVALID ? -100 : getFirstSigDigit(scan); // -1 / 10^-2, as ever.
+	}
+
+	/**
+	 * Returns the second significant digit of resistance.
+	 * 
+	 * @param resistance	The numerical resistance which to take the digit from.
+	 * @return				The second significant digit of resistance.
+	 */
+	public static int getSecondSigDigit(String resistance) {
+		int code = CanonicalIndex.lookup(resistance);
+		if (code != -1) {
+			return ResistorCode.getLSB(code);
+		}
+
+		ResistanceCache c = cache;
+		if (c != null && resistance != null) {
+			return c.get(resistance).secondDigit;
+		}
+		return getSecondSigDigitUncached(resistance);
+	}
+
+	/**
+	 * getSecondSigDigit() without the cache.
+	 */
+	static int getSecondSigDigitUncached(String resistance) {
+		long scan = scan(resistance);
+		return scan == INVALID ? 0 : getSecondSigDigit(scan);
+	}
+
+	/**
+	 * Scans a resistance string once, left to right.
+	 * 
+	 * @param resistance	The string; it is read in place.
+	 * @return				INVALID if resistance is not valid (see isValid()), otherwise:
+	 * 						bits 0-6	the first two significant digits, 10 to 99 (a single
+	 * 									significant digit is followed by a 0)
+	 * 						bits 8-23	number of digits from the first significant one to
+	 * 									the last digit
+	 * 						bits 24-39	number of digits after the decimal point or RKM letter
+	 * 						bits 40-47	exponent of the prefix + PREFIX_OFFSET
+	 */
+	static long scan(CharSequence resistance) {
+		int length = resistance.length();
+		if (length > MAX_LENGTH) {
+			return INVALID;
+		}
+
+		int state = INTEGER;
+		int integerDigits = 0;
+		int fraction = 0;
+		int lead = 0;
+		int precision = 0;
+		int prefix = 0;
+		boolean rkm = false;
+
+		for (int i = 0; i < length; i++) {
+			char c = resistance.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				if (state == INTEGER) {
+					if (integerDigits == 1 && lead == 0) {
+						return INVALID; // Only a lone 0 may start with 0.
+					}
+					integerDigits++;
+				}
+
+				else if (state == FRACTION) {
+					fraction++;
+				}
+
+				else {
+					return INVALID;
+				}
+
+				int digit = c - '0';
+				if (precision > 0) {
+					precision++;
+					if (precision == 2) {
+						lead += digit;
+					}
+
+					else if (digit != 0) {
+						return INVALID; // A third significant digit.
+					}
+				}
+
+				else if (digit != 0) {
+					lead = digit * 10;
+					precision = 1;
+				}
+			}
+
+			else if (state == INTEGER && c == '.') {
+				state = FRACTION;
+			}
+
+			else if (state == INTEGER && valueOfPrefix(c) != NO_PREFIX) {
+
+				// A letter followed by digits is an RKM code, otherwise a trailing prefix.
+				prefix = valueOfPrefix(c);
+				rkm = i + 1 < length && resistance.charAt(i + 1) >= '0'
+						&& resistance.charAt(i + 1) <= '9';
+				state = rkm ? FRACTION : PREFIXED;
+			}
+
+			else if (state == FRACTION && !rkm && fraction > 0 && c != 'R'
+					&& valueOfPrefix(c) != NO_PREFIX) {
+				prefix = valueOfPrefix(c);
+				state = PREFIXED;
+			}
+
+			else if (c == OMEGA && state != END && (state != FRACTION || fraction > 0)) {
+				state = END;
+			}
+
+			else {
+				return INVALID;
+			}
+		}
+
+		if (precision == 0 || (state == FRACTION && fraction == 0)) {
+			return INVALID; // No digits, 0, or a point with no digits after it.
+		}
+
+		return lead | (long) precision << PRECISION_SHIFT | (long) fraction << FRACTION_SHIFT
+				| (long) (prefix + PREFIX_OFFSET) << PREFIX_SHIFT;
+	}
+
+	/**
+	 * Returns the exponent of a prefix or RKM letter.
+	 * @param c		Any character.
+	 * @return		-3, 0, 3, 6 or 9 for m, R, k, M or G, otherwise NO_PREFIX.
+	 */
+	private static int valueOfPrefix(char c) {
+		switch (c) {
+		case 'm':
+			return -3;
+		case 'R':
+			return 0;
+		case 'k':
+			return 3;
+		case 'M':
+			return 6;
+		case 'G':
+			return 9;
+		default:
+			return NO_PREFIX;
+		}
+	}
+
+	private static int getLead(long scan) {
+		return (int) scan & LEAD_MASK;
+	}
+
+	private static int getPrecision(long scan) {
+		return (int) (scan >>> PRECISION_SHIFT) & COUNT_MASK;
+	}
+
+	private static int getFraction(long scan) {
+		return (int) (scan >>> FRACTION_SHIFT) & COUNT_MASK;
+	}
+
+	private static int getPrefix(long scan) {
+		return ((int) (scan >>> PREFIX_SHIFT) & PREFIX_MASK) - PREFIX_OFFSET;
+	}
+
+	/**
+	 * Returns x such that the value of a scan is getLead() * 10^x.
+	 */
+	private static int getExponent(long scan) {
+		return getPrecision(scan) - 2 - getFraction(scan) + getPrefix(scan);
+	}
+
+	/**
+	 * Returns the multiplier of a valid scan. Values below 10m all get -3, the smallest
+	 * multiplier getMultiplier() has ever returned.
+	 */
+	private static int getMultiplier(long scan) {
+		return Math.max(getExponent(scan), MIN_EXPONENT);
+	}
+
+	/**
+	 * Returns the first significant digit of a valid scan, relative to getMultiplier(); 0 for
+	 * values below 10m.
+	 */
+	private static int getFirstSigDigit(long scan) {
+		return getExponent(scan) >= MIN_EXPONENT ? getLead(scan) / 10 : 0;
+	}
+
+	/**
+	 * Returns the second significant digit of a valid scan, relative to getMultiplier(); for
+	 * values below 10m, the digit that falls in the 1m place.
+	 */
+	private static int getSecondSigDigit(long scan) {
+		int exponent = getExponent(scan);
+		if (exponent >= MIN_EXPONENT) {
+			return getLead(scan) % 10;
+		}
+		return exponent == MIN_EXPONENT - 1 ? getLead(scan) / 10 : 0;
+	}
+}
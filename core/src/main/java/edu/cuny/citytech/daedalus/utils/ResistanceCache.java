@@ -0,0 +1,231 @@
+/**
+ * A bounded cache of Resistance results keyed by the input string. Install it with
+ * Resistance.setCache() and every Resistance method answers repeated strings from the cache;
+ * the results are exactly those of the uncached methods, since each entry is filled in by them.
+ *
+ * The cache is split into lock-striped segments, each an LRU map. A new string only displaces
+ * the least recently used entry of its segment if it has been asked for more often (TinyLFU
+ * admission), so a burst of one-off strings can not flush out the few thousand values a parts
+ * list keeps reusing. Frequencies come from a small count-min sketch per segment that is halved
+ * periodically so old popularity fades.
+ *
+ * Thread-safety: safe for any number of threads; lookups only contend within a segment.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResistanceCache {
+
+	private static final int MAX_SEGMENTS = 64;
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private final Segment[] segments;
+	private final int segmentMask;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The Resistance results for one input string.
+	 */
+	static final class Entry {
+		final boolean valid;
+		final BigDecimal value;
+		final int multiplier;
+		final int firstDigit;
+		final int secondDigit;
+		final boolean standard;
+		final int code;
+
+		Entry(String resistance) {
+			valid = Resistance.isValidUncached(resistance);
+			value = Resistance.parseUncached(resistance);
+			multiplier = Resistance.getMultiplierUncached(resistance);
+			firstDigit = Resistance.getFirstSigDigitUncached(resistance);
+			secondDigit = Resistance.getSecondSigDigitUncached(resistance);
+			standard = Resistance.isStandardUncached(resistance);
+			code = Resistance.toCodeUncached(resistance);
+		}
+	}
+
+	/**
+	 * Creates a cache holding about capacity strings.
+	 * @param capacity		Maximum number of cached strings.
+	 */
+	public ResistanceCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+
+		int count = 1;
+		while (count < MAX_SEGMENTS && capacity / (count * 2) >= MIN_SEGMENT_CAPACITY) {
+			count *= 2;
+		}
+
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(Math.max(1, capacity / count));
+		}
+		segmentMask = count - 1;
+	}
+
+	/**
+	 * Returns the results for resistance, computing them on a miss.
+	 */
+	Entry get(String resistance) {
+		int hash = spread(resistance.hashCode());
+		Segment segment = segments[hash & segmentMask];
+		Entry entry = segment.get(resistance, hash);
+
+		if (entry != null) {
+			hits.incrementAndGet();
+		}
+
+		else {
+			misses.incrementAndGet();
+
+			// Computed outside the segment lock; a racing thread may compute the same entry.
+			entry = new Entry(resistance);
+			segment.put(resistance, hash, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * @return		Number of lookups answered from the cache.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return		Number of lookups that had to compute their results.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return		Number of strings currently cached.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Removes every entry and resets the counters.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	private static int spread(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 13);
+	}
+
+	/**
+	 * One lock-guarded LRU map with its own frequency sketch.
+	 */
+	private static final class Segment {
+		private static final int DEPTH = 4;
+		private static final int MAX_COUNT = 15;
+
+		private final int capacity;
+		private final LinkedHashMap<String, Entry> map;
+		private final byte[] counts;
+		private final int widthMask;
+		private final int sampleSize;
+		private int additions;
+
+		Segment(int capacity) {
+			this.capacity = capacity;
+			map = new LinkedHashMap<String, Entry>(Math.min(capacity, 1024) * 4 / 3 + 1, 0.75f,
+					true);
+			int width = Integer.highestOneBit(Math.max(16, capacity * 2) - 1) << 1;
+			counts = new byte[width * DEPTH];
+			widthMask = width - 1;
+			sampleSize = capacity * 10;
+		}
+
+		synchronized Entry get(String key, int hash) {
+			increment(hash);
+			return map.get(key);
+		}
+
+		synchronized void put(String key, int hash, Entry entry) {
+			if (map.containsKey(key)) {
+				return;
+			}
+
+			if (map.size() >= capacity) {
+				Iterator<Map.Entry<String, Entry>> eldest = map.entrySet().iterator();
+				String victim = eldest.next().getKey();
+
+				// Only make room if the newcomer is more popular than what it would evict.
+				if (frequency(hash) <= frequency(spread(victim.hashCode()))) {
+					return;
+				}
+				eldest.remove();
+			}
+			map.put(key, entry);
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+
+		synchronized void clear() {
+			map.clear();
+			Arrays.fill(counts, (byte) 0);
+			additions = 0;
+		}
+
+		private void increment(int hash) {
+			boolean added = false;
+			for (int i = 0; i < DEPTH; i++) {
+				int index = i * (widthMask + 1) + (rehash(hash, i) & widthMask);
+				if (counts[index] < MAX_COUNT) {
+					counts[index]++;
+					added = true;
+				}
+			}
+
+			if (added && ++additions >= sampleSize) {
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] >>= 1;
+				}
+				additions /= 2;
+			}
+		}
+
+		private int frequency(int hash) {
+			int min = MAX_COUNT;
+			for (int i = 0; i < DEPTH; i++) {
+				min = Math.min(min, counts[i * (widthMask + 1) + (rehash(hash, i) & widthMask)]);
+			}
+			return min;
+		}
+
+		private static int rehash(int hash, int i) {
+			int h = hash * (0x9E3779B9 + 2 * i * 0x3C6EF372);
+			return h ^ (h >>> 15);
+		}
+	}
+}
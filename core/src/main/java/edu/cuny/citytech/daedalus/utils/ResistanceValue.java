@@ -0,0 +1,416 @@
+/**
+ * A static utility class for resistances as exact decimal fixed-point values packed into a
+ * long: a signed decimal mantissa of up to MAX_DIGITS digits and a base 10 exponent.
+ *
+ * 		bits 0-15	exponent (signed)
+ * 		bits 16-63	mantissa (signed)
+ *
+ * Values are kept normalized (no trailing zeros in the mantissa, and 0 is 0L), so two values
+ * are equal exactly when their longs are. Results with more than MAX_DIGITS significant digits
+ * are rounded half up, like BigDecimal with a MathContext of MAX_DIGITS. The arithmetic stays
+ * in long arithmetic for the mantissas resistances have, and only falls back to BigDecimal when
+ * an intermediate result would overflow, so the methods can be used in tight loops without
+ * allocating.
+ *
+ * toBigDecimal() and valueOf(BigDecimal) convert to and from the BigDecimal APIs.
+ *
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+public class ResistanceValue {
+
+	/** Most significant digits a value keeps. */
+	public static final int MAX_DIGITS = 14;
+
+	public static final long ZERO = 0L;
+
+	private static final int EXPONENT_BITS = 16;
+	private static final int MIN_EXPONENT = Short.MIN_VALUE;
+	private static final int MAX_EXPONENT = Short.MAX_VALUE;
+	private static final long MANTISSA_LIMIT = 100000000000000L; // 10^MAX_DIGITS
+	private static final int MAX_LONG_DIGITS = 18; // Any 18 digit number fits in a long.
+	private static final MathContext CONTEXT = new MathContext(MAX_DIGITS, RoundingMode.HALF_UP);
+	private static final long[] POWERS = new long[MAX_LONG_DIGITS + 1];
+
+	static {
+		POWERS[0] = 1;
+		for (int i = 1; i < POWERS.length; i++) {
+			POWERS[i] = POWERS[i - 1] * 10;
+		}
+	}
+
+	/**
+	 * Creates the value mantissa * 10^exponent.
+	 * @param mantissa	Any long; more than MAX_DIGITS digits are rounded half up.
+	 * @param exponent	The power of 10.
+	 * @return			The packed value.
+	 * @throws ArithmeticException	If the exponent is out of range.
+	 */
+	public static long valueOf(long mantissa, int exponent) {
+		if (mantissa == 0) {
+			return ZERO;
+		}
+
+		if (mantissa == Long.MIN_VALUE) {
+			return valueOf(mantissa / 10 - 1, exponent + 1); // Its last digit, 8, rounds up.
+		}
+
+		boolean negative = mantissa < 0;
+		long m = negative ? -mantissa : mantissa;
+		int e = exponent;
+
+		if (m >= MANTISSA_LIMIT) {
+			long dropped = 0;
+			while (m >= MANTISSA_LIMIT) {
+				dropped = m % 10;
+				m /= 10;
+				e++;
+			}
+
+			if (dropped >= 5) {
+				m++; // Half up; only the first dropped digit decides.
+			}
+		}
+
+		while (m % 10 == 0) {
+			m /= 10;
+			e++;
+		}
+
+		if (e < MIN_EXPONENT || e > MAX_EXPONENT) {
+			throw new ArithmeticException("exponent out of range: " + e);
+		}
+		return (negative ? -m : m) << EXPONENT_BITS | (e & 0xFFFF);
+	}
+
+	/**
+	 * Converts a BigDecimal, rounding it to MAX_DIGITS significant digits.
+	 * @param value		The value.
+	 * @return			The packed value.
+	 */
+	public static long valueOf(BigDecimal value) {
+		BigDecimal rounded = value.round(CONTEXT);
+		return valueOf(rounded.unscaledValue().longValue(), -rounded.scale());
+	}
+
+	/**
+	 * Converts a value to a BigDecimal with the same unscaled value and scale.
+	 * @param value		The packed value.
+	 * @return			The exact BigDecimal.
+	 */
+	public static BigDecimal toBigDecimal(long value) {
+		return BigDecimal.valueOf(getMantissa(value), -getExponent(value));
+	}
+
+	/**
+	 * @param value		The packed value.
+	 * @return			Its nearest double.
+	 */
+	public static double toDouble(long value) {
+		long m = getMantissa(value);
+		int e = getExponent(value);
+		if (e >= 0 && e <= 22) {
+			return m * Math.pow(10, e); // 10^22 is the largest exact double power of 10.
+		}
+
+		else if (e < 0 && e >= -22) {
+			return m / Math.pow(10, -e);
+		}
+		return toBigDecimal(value).doubleValue();
+	}
+
+	public static long getMantissa(long value) {
+		return value >> EXPONENT_BITS;
+	}
+
+	public static int getExponent(long value) {
+		return (short) value;
+	}
+
+	public static int signum(long value) {
+		return Long.signum(getMantissa(value));
+	}
+
+	/**
+	 * Compares two values exactly.
+	 * @return		Negative, zero or positive as a is less than, equal to or greater than b.
+	 */
+	public static int compare(long a, long b) {
+		if (a == b) {
+			return 0;
+		}
+
+		long ma = getMantissa(a);
+		long mb = getMantissa(b);
+		int sa = Long.signum(ma);
+		int sb = Long.signum(mb);
+		if (sa != sb) {
+			return sa < sb ? -1 : 1;
+		}
+
+		// Same sign and both non zero: compare magnitudes, then apply the sign.
+		ma = Math.abs(ma);
+		mb = Math.abs(mb);
+		int da = digits(ma);
+		int db = digits(mb);
+		int adjustedA = getExponent(a) + da;
+		int adjustedB = getExponent(b) + db;
+		int magnitude;
+		if (adjustedA != adjustedB) {
+			magnitude = adjustedA < adjustedB ? -1 : 1;
+		}
+
+		else {
+
+			// Same leading power of 10, so lining up the digit counts lines up the exponents.
+			if (da < db) {
+				ma *= POWERS[db - da];
+			}
+
+			else {
+				mb *= POWERS[da - db];
+			}
+			magnitude = ma < mb ? -1 : ma == mb ? 0 : 1;
+		}
+		return sa * magnitude;
+	}
+
+	/**
+	 * Adds two values, ie. two resistances in series.
+	 * @return		a + b, rounded to MAX_DIGITS significant digits.
+	 */
+	public static long add(long a, long b) {
+		if (a == ZERO) {
+			return b;
+		}
+
+		else if (b == ZERO) {
+			return a;
+		}
+
+		long ma = getMantissa(a);
+		long mb = getMantissa(b);
+		int ea = getExponent(a);
+		int eb = getExponent(b);
+
+		// Far enough apart, the smaller one is below half a unit in the last kept digit.
+		int adjustedA = ea + digits(Math.abs(ma));
+		int adjustedB = eb + digits(Math.abs(mb));
+		if (adjustedA - adjustedB > MAX_DIGITS + 1) {
+			return a;
+		}
+
+		else if (adjustedB - adjustedA > MAX_DIGITS + 1) {
+			return b;
+		}
+
+		int e = Math.min(ea, eb);
+		if (digits(Math.abs(ma)) + ea - e > MAX_LONG_DIGITS
+				|| digits(Math.abs(mb)) + eb - e > MAX_LONG_DIGITS) {
+			return valueOf(toBigDecimal(a).add(toBigDecimal(b)));
+		}
+		return valueOf(ma * POWERS[ea - e] + mb * POWERS[eb - e], e);
+	}
+
+	/**
+	 * Subtracts one value from another.
+	 * @return		a - b, rounded to MAX_DIGITS significant digits.
+	 */
+	public static long subtract(long a, long b) {
+		return add(a, negate(b));
+	}
+
+	public static long negate(long value) {
+		return valueOf(-getMantissa(value), getExponent(value));
+	}
+
+	/**
+	 * Multiplies two values.
+	 * @return		a * b, rounded to MAX_DIGITS significant digits.
+	 */
+	public static long multiply(long a, long b) {
+		long ma = getMantissa(a);
+		long mb = getMantissa(b);
+		if (digits(Math.abs(ma)) + digits(Math.abs(mb)) > MAX_LONG_DIGITS) {
+			return valueOf(toBigDecimal(a).multiply(toBigDecimal(b)));
+		}
+		return valueOf(ma * mb, getExponent(a) + getExponent(b));
+	}
+
+	/**
+	 * Scales a value by a power of 10, ie. applies an SI prefix.
+	 * @return		value * 10^n, exactly.
+	 */
+	public static long scaleByPowerOfTen(long value, int n) {
+		return value == ZERO ? ZERO : valueOf(getMantissa(value), getExponent(value) + n);
+	}
+
+	/**
+	 * Combines two resistances in parallel.
+	 * @return		a * b / (a + b), rounded to MAX_DIGITS significant digits.
+	 * @throws ArithmeticException	If a + b is 0.
+	 */
+	public static long parallel(long a, long b) {
+		if (a == ZERO || b == ZERO) {
+			if (add(a, b) == ZERO) {
+				throw new ArithmeticException("parallel resistances sum to 0");
+			}
+			return ZERO;
+		}
+
+		long ma = getMantissa(a);
+		long mb = getMantissa(b);
+		int ea = getExponent(a);
+		int eb = getExponent(b);
+		int e = Math.min(ea, eb);
+		int da = digits(Math.abs(ma));
+		int db = digits(Math.abs(mb));
+
+		// a * b / (a + b) = (ma * mb) / (ma * 10^(ea - e) + mb * 10^(eb - e)) * 10^(ea + eb - e)
+		if (da + db > MAX_LONG_DIGITS || da + ea - e > MAX_LONG_DIGITS - 2
+				|| db + eb - e > MAX_LONG_DIGITS - 2) {
+			BigDecimal x = toBigDecimal(a);
+			BigDecimal y = toBigDecimal(b);
+			return valueOf(x.multiply(y).divide(x.add(y), CONTEXT));
+		}
+
+		long product = ma * mb;
+		long sum = ma * POWERS[ea - e] + mb * POWERS[eb - e];
+		if (sum == 0) {
+			throw new ArithmeticException("parallel resistances sum to 0");
+		}
+
+		boolean negative = (product < 0) != (sum < 0);
+		product = Math.abs(product);
+		sum = Math.abs(sum);
+
+		// Long division to one digit past MAX_DIGITS; valueOf() rounds on that digit.
+		long quotient = product / sum;
+		long remainder = product % sum;
+		int exponent = ea + eb - e;
+		while (quotient < MANTISSA_LIMIT && remainder != 0) {
+			remainder *= 10;
+			quotient = quotient * 10 + remainder / sum;
+			remainder %= sum;
+			exponent--;
+		}
+		return valueOf(negative ? -quotient : quotient, exponent);
+	}
+
+	/**
+	 * Rounds a value half up to a number of significant digits.
+	 * @param digits	1 to MAX_DIGITS.
+	 */
+	public static long round(long value, int digits) {
+		long m = Math.abs(getMantissa(value));
+		int drop = digits(m) - digits;
+		if (drop <= 0) {
+			return value;
+		}
+
+		long kept = m / POWERS[drop];
+		if (m / POWERS[drop - 1] % 10 >= 5) {
+			kept++;
+		}
+		return valueOf(getMantissa(value) < 0 ? -kept : kept, getExponent(value) + drop);
+	}
+
+	/**
+	 * Formats a value without an exponent, ie. "4700", "0.47".
+	 */
+	public static String toPlainString(long value) {
+		StringBuilder s = new StringBuilder(24);
+		appendPlain(s, getMantissa(value), getExponent(value));
+		return s.toString();
+	}
+
+	/**
+	 * Formats a resistance in engineering notation with two significant digits: a trailing
+	 * 'k', 'M' or 'G' from 1k, 1M and 1G up, and 'm' below 0.1, ie. "4.7k", "10M", "4.7G",
+	 * "470", "4.7", "0.5", "47m". A trailing zero after the point is dropped, ie. "1k", "0.1",
+	 * as BigDecimal.toPlainString() drops it from a value without one.
+	 * @param value		The resistance in ohms.
+	 * @return			The formatted resistance without a trailing 'Ω'.
+	 */
+	public static String toEngineeringNotation(long value) {
+		long rounded = round(value, 2);
+		long m = getMantissa(rounded);
+		int e = getExponent(rounded);
+		int adjusted = e + digits(Math.abs(m)) - 1;
+		char prefix = 0;
+
+		if (adjusted >= 9) {
+			prefix = 'G';
+			e -= 9;
+		}
+
+		else if (adjusted >= 6) {
+			prefix = 'M';
+			e -= 6;
+		}
+
+		else if (adjusted >= 3) {
+			prefix = 'k';
+			e -= 3;
+		}
+
+		else if (adjusted < -1 && m != 0) {
+			prefix = 'm';
+			e += 3;
+		}
+
+		StringBuilder s = new StringBuilder(8);
+		appendPlain(s, m, e);
+		if (prefix != 0) {
+			s.append(prefix);
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Appends m * 10^e in plain notation.
+	 */
+	private static void appendPlain(StringBuilder s, long m, int e) {
+		if (m < 0) {
+			s.append('-');
+			m = -m;
+		}
+
+		String digits = Long.toString(m);
+		if (e >= 0) {
+			s.append(digits);
+			for (int i = 0; i < e; i++) {
+				s.append('0');
+			}
+			return;
+		}
+
+		int point = digits.length() + e; // Digits before the point; <= 0 for values below 1.
+		if (point > 0) {
+			s.append(digits, 0, point).append('.').append(digits, point, digits.length());
+		}
+
+		else {
+			s.append("0.");
+			for (int i = point; i < 0; i++) {
+				s.append('0');
+			}
+			s.append(digits);
+		}
+	}
+
+	private static int digits(long m) {
+		int d = 1;
+		while (d < MAX_LONG_DIGITS + 1 && m >= POWERS[d]) {
+			d++;
+		}
+		return d;
+	}
+}
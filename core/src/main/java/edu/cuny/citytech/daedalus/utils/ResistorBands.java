@@ -0,0 +1,117 @@
+/**
+ * The four bands of a resistor as one packed code (see ResistorCode) in an AtomicInteger, so
+ * they can be changed from any thread, ie. by a decoder or a network feed. Every change is a
+ * compare-and-set of the whole code, retried on contention, so a change to one band never
+ * undoes a concurrent change to another, and a reader of get() never sees some bands of one
+ * code and some of another.
+ *
+ * Bands are numbered as in BandGeometry: MSB, LSB, MULTIPLIER and TOLERANCE.
+ *
+ * Thread-safety: safe for any number of threads; no method blocks.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResistorBands {
+
+	/** Returned by the mutators when they left the bands as they were. */
+	public static final int UNCHANGED = -1;
+
+	private final AtomicInteger code;
+
+	/**
+	 * @param initial	The packed code of the bands.
+	 */
+	public ResistorBands(int initial) {
+		code = new AtomicInteger(initial);
+	}
+
+	/**
+	 * @return		The packed code of all four bands, read at once.
+	 */
+	public int get() {
+		return code.get();
+	}
+
+	/**
+	 * Sets all four bands.
+	 * @param newCode	A packed code.
+	 */
+	public void set(int newCode) {
+		code.set(newCode);
+	}
+
+	/**
+	 * Sets all four bands, but only if they are still another code.
+	 * @return			TRUE if the bands were set; FALSE if they were not expected, and are
+	 * 					unchanged.
+	 */
+	public boolean compareAndSet(int expected, int newCode) {
+		return code.compareAndSet(expected, newCode);
+	}
+
+	/**
+	 * Sets one band, keeping whatever the others are at the time.
+	 * @param band		MSB, LSB, MULTIPLIER or TOLERANCE of BandGeometry.
+	 * @param value		The value of the band (-2 to 9).
+	 * @return			The code set.
+	 */
+	public int setBand(int band, int value) {
+		int current;
+		int updated;
+		do {
+			current = code.get();
+			updated = withBand(current, band, value);
+		} while (!code.compareAndSet(current, updated));
+		return updated;
+	}
+
+	/**
+	 * Steps one band by delta, unless it is already at limit.
+	 * @return			The code set, or UNCHANGED if the band was at limit.
+	 */
+	public int stepBand(int band, int delta, int limit) {
+		int current;
+		int updated;
+		do {
+			current = code.get();
+			int value = BandGeometry.getBandValue(current, band);
+			if (value == limit) {
+				return UNCHANGED;
+			}
+			updated = withBand(current, band, value + delta);
+		} while (!code.compareAndSet(current, updated));
+		return updated;
+	}
+
+	/**
+	 * Sets the three value bands of a code at once, keeping the tolerance band.
+	 * @param values	A packed code; its tolerance band is ignored.
+	 * @return			The code set.
+	 */
+	public int setValueBands(int values) {
+		int current;
+		int updated;
+		do {
+			current = code.get();
+			updated = ResistorCode.pack(ResistorCode.getMSB(values), ResistorCode.getLSB(values),
+					ResistorCode.getMultiplier(values), ResistorCode.getTolerance(current));
+		} while (!code.compareAndSet(current, updated));
+		return updated;
+	}
+
+	/**
+	 * Returns a code with one band replaced.
+	 * @param band		MSB, LSB, MULTIPLIER or TOLERANCE of BandGeometry.
+	 * @param value		The value of the band (-2 to 9).
+	 */
+	public static int withBand(int code, int band, int value) {
+		return ResistorCode.pack(band == BandGeometry.MSB ? value : ResistorCode.getMSB(code),
+				band == BandGeometry.LSB ? value : ResistorCode.getLSB(code),
+				band == BandGeometry.MULTIPLIER ? value : ResistorCode.getMultiplier(code),
+				band == BandGeometry.TOLERANCE ? value : ResistorCode.getTolerance(code));
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * A static utility class to calculate and format the resistance of a color code.
+ *
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ *
+ * The work is done on exact ResistanceValues; the BigDecimal methods convert at the edges.
+ *
+ * This class is used by the table generator at build time, so it must not depend on the
+ * generated ResistorTables (or on ResistorColor, which does).
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+public class ResistorCalculator {
+
+	private static final MathContext PRECISION = new MathContext(2);
+
+	/**
+	 * Calculates the resistance of a color code.
+	 *
+	 * @param msb			Value of the most significant band.
+	 * @param lsb			Value of the least significant band.
+	 * @param multiplier	Value of the multiplier band.
+	 * @return				(msb * 10 + lsb) * 10^multiplier, exactly.
+	 */
+	public static BigDecimal calculateResistance(int msb, int lsb, int multiplier) {
+		return ResistanceValue.toBigDecimal(calculateValue(msb, lsb, multiplier));
+	}
+
+	/**
+	 * calculateResistance() as a packed ResistanceValue.
+	 */
+	public static long calculateValue(int msb, int lsb, int multiplier) {
+		return ResistanceValue.valueOf(msb * 10 + lsb, multiplier);
+	}
+
+	/**
+	 * Converts a resistance to engineering notation with two significant digits.
+	 * @param resistance	The resistance in ohms.
+	 * @return				The resistance with a trailing 'm', 'k', 'M' or 'G' where
+	 * 						appropriate; see ResistanceValue.toEngineeringNotation().
+	 */
+	public static String toEngineeringNotation(BigDecimal resistance) {
+		return ResistanceValue.toEngineeringNotation(ResistanceValue.valueOf(
+				resistance.round(PRECISION)));
+	}
+
+	/**
+	 * Converts a resistance to an IEC 60062 RKM code with two significant digits, where the
+	 * prefix letter (or R for none) takes the place of the decimal point, ie. "4R7", "47R",
+	 * "R47", "2k2", "1M5", "4G7", "47m".
+	 * @param resistance	The resistance in ohms.
+	 * @return				The RKM code; Resistance parses it back to the same value.
+	 */
+	public static String toRkmNotation(BigDecimal resistance) {
+		return toRkmNotation(ResistanceValue.valueOf(resistance.round(PRECISION)));
+	}
+
+	/**
+	 * toRkmNotation() of a packed ResistanceValue.
+	 */
+	public static String toRkmNotation(long resistance) {
+
+		String engineering = ResistanceValue.toEngineeringNotation(resistance);
+		int length = engineering.length();
+		char letter = engineering.charAt(length - 1);
+		if(letter == 'm' || letter == 'k' || letter == 'M' || letter == 'G'){
+			length--;
+		}
+
+		else{
+			letter = 'R';
+		}
+
+		StringBuilder rkm = new StringBuilder(length + 1);
+		int point = engineering.indexOf('.');
+		if(point < 0 || point >= length){
+			rkm.append(engineering, 0, length).append(letter);
+		}
+
+		else{
+			
+			// A 0 before the point is dropped: "0.47" is "R47".
+			int start = point == 1 && engineering.charAt(0) == '0' ? 1 : 0;
+			rkm.append(engineering, start, point).append(letter)
+					.append(engineering, point + 1, length);
+		}
+
+		return rkm.toString();
+	}
+}
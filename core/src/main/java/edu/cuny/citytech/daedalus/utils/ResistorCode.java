@@ -0,0 +1,75 @@
+/**
+ * A static utility class to pack the bands of a 4 band resistor color code into a single int.
+ *
+ * Each band is stored as its value + 2 (ie. the ordinal of the matching ResistorColor) in
+ * 4 bits:
+ *
+ * 		bits 0-3	most significant band
+ * 		bits 4-7	least significant band
+ * 		bits 8-11	multiplier band
+ * 		bits 12-15	tolerance band
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class ResistorCode {
+
+	private static final int BAND_BITS = 4;
+	private static final int BAND_MASK = 0xF;
+	private static final int OFFSET = 2; // Band values start at -2 (silver).
+	private static final int MSB_SHIFT = 0;
+	private static final int LSB_SHIFT = BAND_BITS;
+	private static final int MULT_SHIFT = 2 * BAND_BITS;
+	private static final int TOL_SHIFT = 3 * BAND_BITS;
+
+	/**
+	 * Packs the values of the four bands into a single code.
+	 *
+	 * @param msb			Value of the most significant band (0 to 9).
+	 * @param lsb			Value of the least significant band (0 to 9).
+	 * @param multiplier	Value of the multiplier band (-2 to 9).
+	 * @param tolerance		Value of the tolerance band (-2 to 9).
+	 * @return				The packed code.
+	 */
+	public static int pack(int msb, int lsb, int multiplier, int tolerance) {
+		return ((msb + OFFSET) << MSB_SHIFT) | ((lsb + OFFSET) << LSB_SHIFT)
+				| ((multiplier + OFFSET) << MULT_SHIFT) | ((tolerance + OFFSET) << TOL_SHIFT);
+	}
+
+	/**
+	 * Returns the value of the most significant band of code.
+	 * @param code		A packed code.
+	 * @return			The value of the most significant band.
+	 */
+	public static int getMSB(int code) {
+		return ((code >>> MSB_SHIFT) & BAND_MASK) - OFFSET;
+	}
+
+	/**
+	 * Returns the value of the least significant band of code.
+	 * @param code		A packed code.
+	 * @return			The value of the least significant band.
+	 */
+	public static int getLSB(int code) {
+		return ((code >>> LSB_SHIFT) & BAND_MASK) - OFFSET;
+	}
+
+	/**
+	 * Returns the value of the multiplier band of code.
+	 * @param code		A packed code.
+	 * @return			The value of the multiplier band.
+	 */
+	public static int getMultiplier(int code) {
+		return ((code >>> MULT_SHIFT) & BAND_MASK) - OFFSET;
+	}
+
+	/**
+	 * Returns the value of the tolerance band of code.
+	 * @param code		A packed code.
+	 * @return			The value of the tolerance band.
+	 */
+	public static int getTolerance(int code) {
+		return ((code >>> TOL_SHIFT) & BAND_MASK) - OFFSET;
+	}
+}
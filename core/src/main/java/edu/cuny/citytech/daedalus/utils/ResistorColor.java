@@ -0,0 +1,38 @@
+/**
+ * The colors of the bands of a resistor and the value each one stands for.
+ *
+ * Thread-safety: immutable; safe to share between threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public enum ResistorColor {
+	SILVER(-2), GOLD(-1), BLACK(0), BROWN(1), RED(2), ORANGE(3), YELLOW(4), GREEN(5),
+	BLUE(6), VIOLET(7), GRAY(8), WHITE(9);
+
+	private static final ResistorColor[] VALUES = values();
+
+	private final int value;
+
+	ResistorColor(int v){
+		value = v;
+	}
+
+	public int getValue(){
+		return value;
+	}
+
+	public static ResistorColor fromValue(int v){
+		return VALUES[v+2];
+	}
+
+	/**
+	 * The ARGB color of this band.
+	 * @return		The color of this band.
+	 */
+	public int getColor() {
+
+		return ResistorTables.getBandColor(value);
+	}
+}
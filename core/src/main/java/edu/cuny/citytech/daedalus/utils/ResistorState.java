@@ -0,0 +1,190 @@
+/**
+ * What the resistor screen shows, kept apart from its views so that it outlives them: the
+ * code of the bands with its formatted text (engineering notation or an RKM code) and
+ * standard flag, the color of the text, how input is flowing between the text and the bands,
+ * and which band's chooser is open.
+ *
+ * The screen keeps one of these across configuration changes (a rotation reuses it as is, so
+ * nothing is parsed or formatted again) and saves it with save() for a restore after the
+ * process is killed. The text of a code is only formatted when the code changes.
+ *
+ * 		saved block		VERSION, code, text color, flags, chooser
+ *
+ * Thread-safety: not thread-safe; used from the UI thread only.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class ResistorState {
+
+	public static final int NO_CHOOSER = -1;
+	private static final char OMEGA = '\u03A9';
+
+	private static final int BLOCK_VERSION = 0;
+	private static final int BLOCK_CODE = 1;
+	private static final int BLOCK_TEXT_COLOR = 2;
+	private static final int BLOCK_FLAGS = 3;
+	private static final int BLOCK_CHOOSER = 4;
+	private static final int BLOCK_SIZE = 5;
+	private static final int CLEAR_TEXT_ON_TOUCH = 1;
+	private static final int FROM_TEXT_TO_BANDS = 2;
+	private static final int RKM = 4;
+
+	private int code = -1;
+	private String text;
+	private boolean standard;
+	private int textColor;
+	private boolean clearTextOnTouch = true;
+	private boolean fromTextToBands = true;
+	private boolean rkm;
+	private int chooser = NO_CHOOSER;
+
+	/**
+	 * Sets the code of the bands; its text and standard flag are worked out only if it changed.
+	 * @param newCode	A packed code (see ResistorCode) with a first band of 1 to 9.
+	 */
+	public void setCode(int newCode) {
+		if (newCode != code) {
+			code = newCode;
+			text = format(newCode);
+			standard = ResistorTables.isStandard(newCode);
+		}
+	}
+
+	private String format(int code) {
+		if (rkm) {
+			return ResistorCalculator.toRkmNotation(ResistorCalculator.calculateValue(
+					ResistorCode.getMSB(code), ResistorCode.getLSB(code),
+					ResistorCode.getMultiplier(code)));
+		}
+		return ResistorTables.getFormatted(code) + OMEGA;
+	}
+
+	/**
+	 * @return		The code last set, or -1 if none.
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * @return		The code in engineering notation with a trailing '\u03A9', ie. "4.7k\u03A9",
+	 * 				or as an RKM code, ie. "4k7"; null if no code is set.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return		TRUE if the code is an E12 value.
+	 */
+	public boolean isStandard() {
+		return standard;
+	}
+
+	public int getTextColor() {
+		return textColor;
+	}
+
+	public void setTextColor(int color) {
+		textColor = color;
+	}
+
+	/**
+	 * @return		TRUE if the text is a message to be cleared when the text is touched.
+	 */
+	public boolean isClearTextOnTouch() {
+		return clearTextOnTouch;
+	}
+
+	public void setClearTextOnTouch(boolean clear) {
+		clearTextOnTouch = clear;
+	}
+
+	/**
+	 * @return		TRUE if the bands follow the text, FALSE if the text follows the bands.
+	 */
+	public boolean isFromTextToBands() {
+		return fromTextToBands;
+	}
+
+	public void setFromTextToBands(boolean fromText) {
+		fromTextToBands = fromText;
+	}
+
+	/**
+	 * @return		TRUE if the text is an RKM code (see ResistorCalculator.toRkmNotation()).
+	 */
+	public boolean isRkm() {
+		return rkm;
+	}
+
+	/**
+	 * Chooses between engineering notation and RKM codes for the text, formatting the text of
+	 * the code again if the choice changed.
+	 */
+	public void setRkm(boolean useRkm) {
+		if (useRkm != rkm) {
+			rkm = useRkm;
+			if (code != -1) {
+				text = format(code);
+			}
+		}
+	}
+
+	/**
+	 * @return		The band whose chooser is open, or NO_CHOOSER.
+	 */
+	public int getChooser() {
+		return chooser;
+	}
+
+	public void setChooser(int band) {
+		chooser = band;
+	}
+
+	/**
+	 * Packs this state for saving.
+	 * @return		The saved block.
+	 */
+	public int[] save() {
+		int[] block = new int[BLOCK_SIZE];
+		block[BLOCK_VERSION] = SavedState.VERSION;
+		block[BLOCK_CODE] = code;
+		block[BLOCK_TEXT_COLOR] = textColor;
+		block[BLOCK_FLAGS] = (clearTextOnTouch ? CLEAR_TEXT_ON_TOUCH : 0)
+				| (fromTextToBands ? FROM_TEXT_TO_BANDS : 0) | (rkm ? RKM : 0);
+		block[BLOCK_CHOOSER] = chooser;
+		return block;
+	}
+
+	/**
+	 * Restores a state saved by save().
+	 * @param block		The saved block, may be null.
+	 * @return			TRUE if it was restored, FALSE if block is missing or from another
+	 * 					version, and this state is unchanged.
+	 */
+	public boolean restore(int[] block) {
+		if (block == null || block.length != BLOCK_SIZE
+				|| block[BLOCK_VERSION] != SavedState.VERSION) {
+			return false;
+		}
+
+		setRkm((block[BLOCK_FLAGS] & RKM) != 0);
+		if (block[BLOCK_CODE] == -1) {
+			code = -1;
+			text = null;
+			standard = false;
+		}
+
+		else {
+			setCode(block[BLOCK_CODE]);
+		}
+		textColor = block[BLOCK_TEXT_COLOR];
+		clearTextOnTouch = (block[BLOCK_FLAGS] & CLEAR_TEXT_ON_TOUCH) != 0;
+		fromTextToBands = (block[BLOCK_FLAGS] & FROM_TEXT_TO_BANDS) != 0;
+		chooser = block[BLOCK_CHOOSER];
+		return true;
+	}
+}
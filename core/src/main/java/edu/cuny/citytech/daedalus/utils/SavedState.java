@@ -0,0 +1,91 @@
+/**
+ * A static utility class to pack the saved instance state of the views into primitives, so it
+ * goes into a Bundle as an int or an int[] instead of through Java serialization.
+ *
+ * Both formats carry VERSION; state written by a different version is ignored on restore
+ * rather than misread.
+ *
+ * 		bands		bits 0-15 the packed code (see ResistorCode), bits 24-31 VERSION
+ * 		HUD block	VERSION, border color, text size, text x and text y (float bits)
+ *
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+public class SavedState {
+
+	public static final int VERSION = 1;
+
+	private static final int VERSION_SHIFT = 24;
+	private static final int CODE_MASK = 0xFFFF;
+
+	private static final int HUD_VERSION = 0;
+	private static final int HUD_BORDER_COLOR = 1;
+	private static final int HUD_TEXT_SIZE = 2;
+	private static final int HUD_TEXT_X = 3;
+	private static final int HUD_TEXT_Y = 4;
+	private static final int HUD_SIZE = 5;
+
+	/**
+	 * Packs the bands of a resistor for saving.
+	 * @param code		A packed code (see ResistorCode).
+	 * @return			The saved state.
+	 */
+	public static int packBands(int code) {
+		return VERSION << VERSION_SHIFT | (code & CODE_MASK);
+	}
+
+	/**
+	 * Unpacks bands saved by packBands().
+	 * @param saved		The saved state.
+	 * @return			The packed code, or -1 if saved is from another version.
+	 */
+	public static int unpackBands(int saved) {
+		return saved >>> VERSION_SHIFT == VERSION ? saved & CODE_MASK : -1;
+	}
+
+	/**
+	 * Packs the state of a HeadsUpDisplay for saving.
+	 * @param borderColor	ARGB color of the border.
+	 * @param textSize		Text size in dp.
+	 * @param textX			x-coordinate of the text.
+	 * @param textY			y-coordinate of the text.
+	 * @return				The saved block.
+	 */
+	public static int[] packHud(int borderColor, int textSize, float textX, float textY) {
+		int[] block = new int[HUD_SIZE];
+		block[HUD_VERSION] = VERSION;
+		block[HUD_BORDER_COLOR] = borderColor;
+		block[HUD_TEXT_SIZE] = textSize;
+		block[HUD_TEXT_X] = Float.floatToIntBits(textX);
+		block[HUD_TEXT_Y] = Float.floatToIntBits(textY);
+		return block;
+	}
+
+	/**
+	 * Determines if a block was saved by packHud() of this version.
+	 * @param block		The saved block, may be null.
+	 * @return			TRUE if the getters may read it.
+	 */
+	public static boolean isHud(int[] block) {
+		return block != null && block.length == HUD_SIZE && block[HUD_VERSION] == VERSION;
+	}
+
+	public static int getBorderColor(int[] block) {
+		return block[HUD_BORDER_COLOR];
+	}
+
+	public static int getTextSize(int[] block) {
+		return block[HUD_TEXT_SIZE];
+	}
+
+	public static float getTextX(int[] block) {
+		return Float.intBitsToFloat(block[HUD_TEXT_X]);
+	}
+
+	public static float getTextY(int[] block) {
+		return Float.intBitsToFloat(block[HUD_TEXT_Y]);
+	}
+}
@@ -0,0 +1,259 @@
+/**
+ * A static utility class to decode and encode the markings printed on SMD resistors:
+ *
+ * 		3 digit		two significant digits and a power of ten, ie. "472" = 4.7k
+ * 		4 digit		three significant digits and a power of ten, ie. "4701" = 4.7k
+ * 		R notation	an 'R' standing for the decimal point, ie. "4R7" = 4.7, "R47" = 0.47
+ * 		EIA-96		the index (01 to 96) of an E96 value and a multiplier letter, ie. "01C" = 10k
+ *
+ * Every character is decoded through a lookup table, so a decode takes the same few steps
+ * whatever the marking. 'R' is always read as a decimal point, never as the EIA-96 alias of 'Y'.
+ *
+ * Thread-safety: stateless; every method may be called from any number of threads at once.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.math.BigDecimal;
+
+public class SmdCode {
+
+	/**
+	 * The SMD marking formats.
+	 */
+	public enum Format {
+		THREE_DIGIT, FOUR_DIGIT, EIA_96
+	}
+
+	private static final int NONE = -128;
+	private static final int DECIMAL_POINT = -1;
+
+	// Value of each ASCII character: a digit, DECIMAL_POINT for 'R' or NONE.
+	private static final byte[] DIGIT = new byte[128];
+
+	// Power of ten of each EIA-96 multiplier letter, or NONE.
+	private static final byte[] EIA_EXPONENT = new byte[128];
+
+	private static final short[] E96 = { 100, 102, 105, 107, 110, 113, 115, 118, 121, 124, 127,
+			130, 133, 137, 140, 143, 147, 150, 154, 158, 162, 165, 169, 174, 178, 182, 187, 191, 196,
+			200, 205, 210, 215, 221, 226, 232, 237, 243, 249, 255, 261, 267, 274, 280, 287, 294, 301,
+			309, 316, 324, 332, 340, 348, 357, 365, 374, 383, 392, 402, 412, 422, 432, 442, 453, 464,
+			475, 487, 499, 511, 523, 536, 549, 562, 576, 590, 604, 619, 634, 649, 665, 681, 698, 715,
+			732, 750, 768, 787, 806, 825, 845, 866, 887, 909, 931, 953, 976 };
+
+	// EIA-96 index (1 to 96) of each three digit mantissa, or 0.
+	private static final byte[] E96_INDEX = new byte[1000];
+
+	// The preferred letter for each power of ten from -3 to 5.
+	private static final char[] EIA_LETTER = { 'Z', 'Y', 'X', 'A', 'B', 'C', 'D', 'E', 'F' };
+	private static final int EIA_MIN_EXPONENT = -3;
+
+	static {
+		for (int i = 0; i < 128; i++) {
+			DIGIT[i] = NONE;
+			EIA_EXPONENT[i] = NONE;
+		}
+		for (int i = 0; i <= 9; i++) {
+			DIGIT['0' + i] = (byte) i;
+		}
+		DIGIT['R'] = DECIMAL_POINT;
+		DIGIT['r'] = DECIMAL_POINT;
+
+		for (int i = 0; i < EIA_LETTER.length; i++) {
+			EIA_EXPONENT[EIA_LETTER[i]] = (byte) (i + EIA_MIN_EXPONENT);
+		}
+		EIA_EXPONENT['S'] = -1; // Aliases of X and B.
+		EIA_EXPONENT['H'] = 1;
+
+		for (int i = 0; i < E96.length; i++) {
+			E96_INDEX[E96[i]] = (byte) (i + 1);
+		}
+	}
+
+	/**
+	 * Parses an SMD marking.
+	 *
+	 * @param marking	The marking, ie. "472", "4701", "4R7" or "01C".
+	 * @return			The value of the resistance in ohms or -1 if marking is not a valid
+	 * 					marking (like Resistance.parse()). "000" and "0R0" are 0 (a jumper).
+	 */
+	public static BigDecimal parse(String marking) {
+		int decoded = decode(marking);
+		if (decoded == -1) {
+			return new BigDecimal(-1);
+		}
+		return BigDecimal.valueOf(mantissa(decoded), -exponent(decoded));
+	}
+
+	/**
+	 * Determines if a string is a valid SMD marking.
+	 * @param marking	Any string.
+	 * @return			TRUE if parse() would return a value.
+	 */
+	public static boolean isValid(String marking) {
+		return decode(marking) != -1;
+	}
+
+	/**
+	 * Converts an SMD marking to a 3 band color code (with a gold tolerance band).
+	 *
+	 * @param marking	The marking.
+	 * @return			The packed code (see ResistorCode) or -1 if marking is not valid, is a
+	 * 					jumper, needs a third significant digit or can not be shown with a
+	 * 					multiplier band between silver (-2) and white (9).
+	 */
+	public static int toCode(String marking) {
+		int decoded = decode(marking);
+		if (decoded == -1 || mantissa(decoded) == 0) {
+			return -1;
+		}
+
+		int mantissa = mantissa(decoded);
+		int exponent = exponent(decoded);
+		while (mantissa >= 100) {
+			if (mantissa % 10 != 0) {
+				return -1;
+			}
+			mantissa /= 10;
+			exponent++;
+		}
+
+		if (mantissa < 10) {
+			mantissa *= 10;
+			exponent--;
+		}
+
+		if (exponent < ResistorTables.MIN_MULTIPLIER || exponent > ResistorTables.MAX_MULTIPLIER) {
+			return -1;
+		}
+		return ResistorCode.pack(mantissa / 10, mantissa % 10, exponent, -1);
+	}
+
+	/**
+	 * Returns the marking of a color code.
+	 * @param code		A packed code (see ResistorCode).
+	 * @param format	The marking format.
+	 * @return			See encode(BigDecimal, Format).
+	 */
+	public static String encode(int code, Format format) {
+		int digits = ResistorCode.getMSB(code) * 10 + ResistorCode.getLSB(code);
+		return encode(BigDecimal.valueOf(digits).scaleByPowerOfTen(ResistorCode.getMultiplier(code)),
+				format);
+	}
+
+	/**
+	 * Returns the marking of a resistance.
+	 *
+	 * @param resistance	The resistance in ohms.
+	 * @param format		The marking format.
+	 * @return				The marking, or null if resistance can not be written exactly in
+	 * 						format (ie. too many significant digits, not an E96 value or out of
+	 * 						range).
+	 */
+	public static String encode(BigDecimal resistance, Format format) {
+		if (resistance.signum() < 0) {
+			return null;
+		}
+
+		int digits = format == Format.THREE_DIGIT ? 2 : 3;
+		BigDecimal stripped = resistance.stripTrailingZeros();
+		if (stripped.signum() == 0) {
+			return format == Format.EIA_96 ? null : zeros(digits + 1);
+		}
+
+		if (stripped.precision() > digits) {
+			return null;
+		}
+
+		// Scale to exactly digits significant digits: value = mantissa * 10^exponent.
+		int exponent = stripped.precision() - stripped.scale() - digits;
+		int mantissa = stripped.scaleByPowerOfTen(-exponent).intValueExact();
+
+		if (format == Format.EIA_96) {
+			int index = E96_INDEX[mantissa];
+			if (index == 0 || exponent < EIA_MIN_EXPONENT
+					|| exponent >= EIA_MIN_EXPONENT + EIA_LETTER.length) {
+				return null;
+			}
+			return new StringBuilder(3).append((char) ('0' + index / 10))
+					.append((char) ('0' + index % 10))
+					.append(EIA_LETTER[exponent - EIA_MIN_EXPONENT]).toString();
+		}
+
+		if (exponent > 9) {
+			return null;
+		}
+
+		String significant = Integer.toString(mantissa);
+		if (exponent >= 0) {
+			return significant + exponent;
+		}
+
+		// R notation: the R takes the place of the decimal point.
+		int point = digits + exponent;
+		if (point < 0) {
+			return null;
+		}
+		return significant.substring(0, point) + 'R' + significant.substring(point);
+	}
+
+	/**
+	 * Decodes a marking to mantissa << 8 | (exponent & 0xFF), or -1 if it is not valid.
+	 */
+	private static int decode(String marking) {
+		if (marking == null) {
+			return -1;
+		}
+
+		int length = marking.length();
+		if (length < 3 || length > 4) {
+			return -1;
+		}
+
+		int mantissa = 0;
+		int point = -1;
+		for (int i = 0; i < length; i++) {
+			char c = marking.charAt(i);
+			int d = c < 128 ? DIGIT[c] : NONE;
+			if (d >= 0) {
+				mantissa = mantissa * 10 + d;
+			}
+
+			else if (d == DECIMAL_POINT && point == -1) {
+				point = i;
+			}
+
+			// Only the last character of a 3 character marking can be an EIA-96 letter.
+			else if (i == 2 && length == 3 && point == -1 && c < 128 && EIA_EXPONENT[c] != NONE
+					&& mantissa >= 1 && mantissa <= E96.length) {
+				return pack(E96[mantissa - 1], EIA_EXPONENT[c]);
+			}
+
+			else {
+				return -1;
+			}
+		}
+
+		if (point != -1) {
+			return pack(mantissa, point - length + 1);
+		}
+		return pack(mantissa / 10, mantissa % 10);
+	}
+
+	private static int pack(int mantissa, int exponent) {
+		return mantissa << 8 | (exponent & 0xFF);
+	}
+
+	private static int mantissa(int decoded) {
+		return decoded >>> 8;
+	}
+
+	private static int exponent(int decoded) {
+		return (byte) decoded;
+	}
+
+	private static String zeros(int count) {
+		return "0000".substring(0, count);
+	}
+}
@@ -0,0 +1,235 @@
+/**
+ * Suggests standard values for what has been typed so far: every E12 value over the
+ * encodable decades whose engineering notation (as ResistorTables.getFormatted() prints it)
+ * starts with the text, ie. "4.7", "4.7M" and "4.7k" for "4.".
+ *
+ * The strings are kept in a trie built once when the class loads, as parallel arrays of
+ * nodes. Each node lists the codes of the strings below it, smallest value first: typing only
+ * adds digits and prefixes to a value, so the smallest is the value closest to what has been
+ * typed, and "47" suggests "47", "470", "47k", "470k" before "47M" and "47G". A lookup walks
+ * the typed characters down the trie and copies the node's list, without allocating, in a few
+ * microseconds. The lists of all the nodes take about 630 ints.
+ *
+ * Thread-safety: immutable once loaded; lookups may run on any number of threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class SuggestionTrie {
+
+	private static final char OMEGA = '\u03A9';
+	private static final int TOLERANCE = -1; // Gold, as Resistance.toCode() packs it.
+
+	// Node 0 is the root. A node's children are a list through SIBLING, in character order.
+	private static final char[] LABEL;
+	private static final int[] CHILD;
+	private static final int[] SIBLING;
+	private static final int[] FROM; // The strings below a node are FROM to TO - 1 in string order.
+	private static final int[] TO;
+	private static final boolean[] TERMINAL; // The node ends a string, the smallest below it.
+	private static final int[] RANKED; // A node's codes by value, from RANKED[FROM + START].
+	private static final int[] START;
+
+	static {
+		String[] keys = new String[100
+				* (ResistorTables.MAX_MULTIPLIER - ResistorTables.MIN_MULTIPLIER + 1)];
+		int[] codes = new int[keys.length];
+		int n = 0;
+		for (int mult = ResistorTables.MIN_MULTIPLIER; mult <= ResistorTables.MAX_MULTIPLIER;
+				mult++) {
+			for (int digits = 10; digits < 100; digits++) {
+				int code = ResistorCode.pack(digits / 10, digits % 10, mult, TOLERANCE);
+				if (ResistorTables.isStandard(code)) {
+					codes[n] = code;
+					keys[n++] = ResistorTables.getFormatted(code);
+				}
+			}
+		}
+		keys = Arrays.copyOf(keys, n);
+
+		// Sorted keys put every key right after its prefixes, so each one only adds nodes.
+		Integer[] order = sortedOrder(keys);
+		int capacity = 1;
+		for (String key : keys) {
+			capacity += key.length();
+		}
+
+		char[] label = new char[capacity];
+		int[] child = new int[capacity];
+		int[] sibling = new int[capacity];
+		int[] from = new int[capacity];
+		int[] to = new int[capacity];
+		boolean[] terminal = new boolean[capacity];
+		int[] path = new int[capacity];
+		Arrays.fill(child, -1);
+		Arrays.fill(sibling, -1);
+		int nodes = 1;
+		String previous = "";
+
+		for (int i = 0; i < n; i++) {
+			String key = keys[order[i]];
+			int common = 0;
+			while (common < previous.length() && common < key.length()
+					&& previous.charAt(common) == key.charAt(common)) {
+				common++;
+			}
+
+			// The nodes of the previous key past the common prefix are complete.
+			for (int depth = previous.length(); depth > common; depth--) {
+				to[path[depth]] = i;
+			}
+
+			for (int depth = common + 1; depth <= key.length(); depth++) {
+				int node = nodes++;
+				label[node] = key.charAt(depth - 1);
+				from[node] = i;
+				int parent = path[depth - 1];
+				if (child[parent] == -1) {
+					child[parent] = node;
+				}
+
+				else {
+					int last = child[parent];
+					while (sibling[last] != -1) {
+						last = sibling[last];
+					}
+					sibling[last] = node;
+				}
+				path[depth] = node;
+			}
+			terminal[path[key.length()]] = true;
+			previous = key;
+		}
+
+		for (int depth = previous.length(); depth >= 0; depth--) {
+			to[path[depth]] = n;
+		}
+
+		int[] sortedCodes = new int[n];
+		for (int i = 0; i < n; i++) {
+			sortedCodes[i] = codes[order[i]];
+		}
+
+		// Each node's run of sortedCodes, sorted by value; the runs end to end.
+		int[] start = new int[nodes];
+		int size = 0;
+		for (int node = 0; node < nodes; node++) {
+			start[node] = size - from[node];
+			size += to[node] - from[node];
+		}
+
+		int[] ranked = new int[size];
+		for (int node = 0; node < nodes; node++) {
+			int first = from[node] + start[node];
+			int last = to[node] + start[node];
+			System.arraycopy(sortedCodes, from[node], ranked, first, last - first);
+			sortByValue(ranked, first, last);
+		}
+
+		LABEL = Arrays.copyOf(label, nodes);
+		CHILD = Arrays.copyOf(child, nodes);
+		SIBLING = Arrays.copyOf(sibling, nodes);
+		FROM = Arrays.copyOf(from, nodes);
+		TO = Arrays.copyOf(to, nodes);
+		TERMINAL = Arrays.copyOf(terminal, nodes);
+		RANKED = ranked;
+		START = start;
+	}
+
+	/**
+	 * Sorts codes[from] to codes[to - 1] by resistance, smallest first.
+	 */
+	private static void sortByValue(int[] codes, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int code = codes[i];
+			int j = i;
+			while (j > from && valueKey(codes[j - 1]) > valueKey(code)) {
+				codes[j] = codes[j - 1];
+				j--;
+			}
+			codes[j] = code;
+		}
+	}
+
+	/**
+	 * Orders codes by resistance: the first two bands are always 10 to 99.
+	 */
+	private static int valueKey(int code) {
+		return ResistorCode.getMultiplier(code) * 100 + ResistorCode.getMSB(code) * 10
+				+ ResistorCode.getLSB(code);
+	}
+
+	private static Integer[] sortedOrder(final String[] keys) {
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+				return keys[a].compareTo(keys[b]);
+			}
+		});
+		return order;
+	}
+
+	/**
+	 * Finds the standard values that start with a prefix. A trailing '\u03A9' only matches a
+	 * complete value.
+	 * @param prefix		What has been typed; it is read in place, not copied.
+	 * @param suggestions	Filled with the packed codes (see ResistorCode) of the values,
+	 * 						smallest first, up to its length.
+	 * @return				Number of codes filled; 0 if no value starts with prefix.
+	 */
+	public static int suggest(CharSequence prefix, int[] suggestions) {
+		int node = find(prefix);
+		int count = Math.min(suggestions.length, count(prefix, node));
+		if (count > 0) {
+			System.arraycopy(RANKED, FROM[node] + START[node], suggestions, 0, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the standard values that start with a prefix, as suggest() matches them.
+	 */
+	public static int count(CharSequence prefix) {
+		return count(prefix, find(prefix));
+	}
+
+	private static int count(CharSequence prefix, int node) {
+		if (node == -1) {
+			return 0;
+		}
+		return isComplete(prefix) ? 1 : TO[node] - FROM[node];
+	}
+
+	private static boolean isComplete(CharSequence prefix) {
+		return prefix.length() > 0 && prefix.charAt(prefix.length() - 1) == OMEGA;
+	}
+
+	/**
+	 * Walks a prefix, without a trailing '\u03A9', down the trie.
+	 * @return		The node reached, or -1 if no string starts with the prefix (or, with a
+	 * 				trailing '\u03A9', no string is the prefix).
+	 */
+	private static int find(CharSequence prefix) {
+		boolean complete = isComplete(prefix);
+		int length = complete ? prefix.length() - 1 : prefix.length();
+		int node = 0;
+		for (int i = 0; i < length && node != -1; i++) {
+			char c = prefix.charAt(i);
+			node = CHILD[node];
+			while (node != -1 && LABEL[node] != c) {
+				node = SIBLING[node];
+			}
+		}
+		return node != -1 && complete && !TERMINAL[node] ? -1 : node;
+	}
+}
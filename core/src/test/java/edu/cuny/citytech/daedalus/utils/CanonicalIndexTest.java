@@ -0,0 +1,56 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CanonicalIndexTest {
+
+	@Test
+	public void everyCanonicalStringMapsToItsParsedCode() {
+		int found = 0;
+		for (int msb = 1; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = ResistorTables.MIN_MULTIPLIER;
+						mult <= ResistorTables.MAX_MULTIPLIER; mult++) {
+					int code = ResistorCode.pack(msb, lsb, mult, -1);
+					String key = CanonicalIndex.getKey(code);
+					assertEquals(key, Resistance.toCodeUncached(key), CanonicalIndex.lookup(key));
+					assertEquals(code, CanonicalIndex.lookup(new StringBuilder(key).append('Ω')));
+					found += 2;
+				}
+			}
+		}
+		assertEquals(CanonicalIndex.size(), found);
+	}
+
+	@Test
+	public void keysAreTheFormattedStrings() {
+		for (int msb = 1; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = ResistorTables.MIN_MULTIPLIER;
+						mult <= ResistorTables.MAX_MULTIPLIER; mult++) {
+					int code = ResistorCode.pack(msb, lsb, mult, -1);
+					assertEquals(ResistorTables.getFormatted(code), CanonicalIndex.getKey(code));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void otherStringsAreRejected() {
+		String[] others = { null, "", "4.70k", "4k7", "04.7k", "4.7K", "4.7kk", "4.7Ωk",
+				"4.7k ", "47000", "0.10", "1000M", "9900000000000" };
+		for (String s : others) {
+			assertEquals(s, -1, CanonicalIndex.lookup(s));
+		}
+	}
+
+	@Test
+	public void lookupReadsTheSequenceInPlace() {
+		StringBuilder s = new StringBuilder("2.2");
+		assertEquals(ResistorCode.pack(2, 2, -1, -1), CanonicalIndex.lookup(s));
+		s.append('k');
+		assertEquals(ResistorCode.pack(2, 2, 2, -1), CanonicalIndex.lookup(s));
+	}
+}
@@ -0,0 +1,181 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ComboIndexTest {
+
+	private static final int[] E12 = { 10, 12, 15, 18, 22, 27, 33, 39, 47, 56, 68, 82 };
+
+	private static int[] codes;
+	private static double[] ohms;
+	private static File file;
+	private static ComboIndex index;
+
+	@BeforeClass
+	public static void writeIndex() throws IOException {
+		// E12 over two decades: 24 parts, about 20000 combinations.
+		codes = new int[E12.length * 2];
+		ohms = new double[codes.length];
+		for (int i = 0; i < codes.length; i++) {
+			int digits = E12[i % E12.length];
+			int mult = 1 + i / E12.length;
+			codes[i] = ResistorCode.pack(digits / 10, digits % 10, mult, -1);
+			ohms[i] = digits * Math.pow(10, mult);
+		}
+
+		file = File.createTempFile("combos", ".bin");
+		int count = ComboIndex.write(codes, file);
+		index = ComboIndex.open(file);
+		assertEquals(count, index.size());
+	}
+
+	@AfterClass
+	public static void deleteIndex() {
+		file.delete();
+	}
+
+	@Test
+	public void combinationsAreSortedAndMatchTheirParts() {
+		for (int i = 0; i < index.size(); i++) {
+			if (i > 0) {
+				assertTrue(index.getValue(i - 1) <= index.getValue(i));
+			}
+
+			ComboIndex.Topology topology = index.getTopology(i);
+			double[] parts = new double[3];
+			for (int part = 0; part < topology.getParts(); part++) {
+				parts[part] = ResistorTables.getValue(index.getCode(i, part));
+			}
+			assertEquals((float) topology.evaluate(parts[0], parts[1], parts[2]),
+					index.getValue(i), 0.0);
+		}
+	}
+
+	/**
+	 * Counts the combinations from their closed form rather than by enumerating them, and checks
+	 * that no two entries are the same parts in the same topology.
+	 */
+	@Test
+	public void everyCombinationIsWrittenOnce() {
+		// Series and parallel of 2 of n parts, then of 3, each with repetition; (a || b) + c and
+		// (a + b) || c take an unordered pair and any third part.
+		long n = codes.length;
+		long pairs = n * (n + 1) / 2;
+		long triples = n * (n + 1) * (n + 2) / 6;
+		assertEquals(2 * pairs + 2 * triples + 2 * n * pairs, index.size());
+
+		Set<String> seen = new HashSet<String>();
+		for (int i = 0; i < index.size(); i++) {
+			ComboIndex.Topology topology = index.getTopology(i);
+			int[] parts = new int[topology.getParts()];
+			for (int part = 0; part < parts.length; part++) {
+				parts[part] = index.getCode(i, part);
+			}
+
+			// The order of the parts only matters for the third part of the mixed topologies.
+			boolean mixed = topology == ComboIndex.Topology.SERIES_PARALLEL
+					|| topology == ComboIndex.Topology.PARALLEL_SERIES;
+			Arrays.sort(parts, 0, mixed ? 2 : parts.length);
+			String key = topology + Arrays.toString(parts);
+			assertTrue(key + " is written twice", seen.add(key));
+		}
+	}
+
+	@Test
+	public void closestAgreesWithExhaustiveSearch() {
+		List<Float> all = exhaustive();
+		Random random = new Random(7);
+		int[] closest = new int[8];
+		for (int q = 0; q < 200; q++) {
+			final double target = 5 + random.nextDouble() * 20000;
+			assertEquals(closest.length, index.closest(target, closest));
+
+			List<Double> expected = new ArrayList<Double>();
+			for (float value : all) {
+				expected.add(Math.abs(value - target));
+			}
+			Collections.sort(expected);
+
+			for (int k = 0; k < closest.length; k++) {
+				assertEquals(expected.get(k), Math.abs(index.getValue(closest[k]) - target), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void toleranceRangeAgreesWithExhaustiveSearch() {
+		List<Float> all = exhaustive();
+		Random random = new Random(11);
+		for (int q = 0; q < 200; q++) {
+			double target = 5 + random.nextDouble() * 20000;
+			float low = (float) (target * 0.99);
+			float high = (float) (target * 1.01);
+			int expected = 0;
+			for (float value : all) {
+				if (value >= low && value <= high) {
+					expected++;
+				}
+			}
+			assertEquals(expected, index.toIndex(target, 1) - index.fromIndex(target, 1));
+		}
+	}
+
+	@Test
+	public void describesCombinations() {
+		List<String> described = new ArrayList<String>();
+		for (int i = index.fromIndex(570); i < index.toIndex(570); i++) {
+			described.add(index.describe(i));
+		}
+
+		// 180 + 390 is 570 too.
+		assertTrue(described.toString(), described.contains("100 + 470"));
+		assertTrue(described.toString(), described.contains("180 + 390"));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+		ComboIndex.wrap(ByteBuffer.wrap("not an index at all".getBytes("UTF-8")));
+	}
+
+	/**
+	 * Works out every combination of the parts, in no particular order.
+	 */
+	private static List<Float> exhaustive() {
+		List<Float> all = new ArrayList<Float>();
+		int n = ohms.length;
+		for (int a = 0; a < n; a++) {
+			for (int b = a; b < n; b++) {
+				all.add((float) (ohms[a] + ohms[b]));
+				all.add((float) (ohms[a] * ohms[b] / (ohms[a] + ohms[b])));
+				for (int c = b; c < n; c++) {
+					all.add((float) (ohms[a] + ohms[b] + ohms[c]));
+					all.add((float) (1 / (1 / ohms[a] + 1 / ohms[b] + 1 / ohms[c])));
+				}
+
+				for (int c = 0; c < n; c++) {
+					double parallel = ohms[a] * ohms[b] / (ohms[a] + ohms[b]);
+					double series = ohms[a] + ohms[b];
+					all.add((float) (parallel + ohms[c]));
+					all.add((float) (series * ohms[c] / (series + ohms[c])));
+				}
+			}
+		}
+		return all;
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Measures how the conversions of ConcurrencyStressTest scale: for each thread count of its
+ * sweep, every thread converts back to back for a fixed time, all started at once, and the
+ * total conversions per second are printed. Not a test, so surefire does not run it; run it
+ * after a build with
+ *
+ * 		java -cp core/target/classes:core/target/test-classes \
+ * 			edu.cuny.citytech.daedalus.utils.ConcurrencyBenchmark [seconds per thread count]
+ *
+ */
+
+package edu.cuny.citytech.daedalus.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrencyBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int cores = Runtime.getRuntime().availableProcessors();
+		List<String> inputs = ConcurrencyStressTest.getInputs();
+
+		// One untimed round so the first thread count is not charged for class loading and JIT.
+		run(1, inputs, seconds);
+
+		System.out.println(cores + " cores, " + seconds + "s per thread count");
+		double single = 0;
+		for (int threads : ConcurrencyStressTest.getThreadCounts(cores)) {
+			long operations = run(threads, inputs, seconds);
+			double perSecond = operations / (double) seconds;
+			if (threads == 1) {
+				single = perSecond;
+			}
+			System.out.printf("%3d threads: %,12.0f conversions/s  %5.2fx%n", threads, perSecond,
+					perSecond / single);
+		}
+	}
+
+	/**
+	 * Converts on threads threads, all started at once, for seconds seconds.
+	 * @return		The number of conversions all threads finished.
+	 */
+	private static long run(int threads, final List<String> inputs, int seconds)
+			throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		final long duration = seconds * 1000L * 1000 * 1000;
+		List<Future<Long>> results = new ArrayList<Future<Long>>();
+
+		try {
+			for (int t = 0; t < threads; t++) {
+				final int offset = t * 7;
+				results.add(pool.submit(new Callable<Long>() {
+
+					@Override
+					public Long call() throws Exception {
+						long operations = 0;
+						int checksum = 0;
+						start.await();
+						long deadline = System.nanoTime() + duration;
+						while (System.nanoTime() < deadline) {
+							int index = (int) ((offset + operations) % inputs.size());
+							checksum += ConcurrencyStressTest.convert(inputs.get(index)).length();
+							operations++;
+						}
+
+						// Uses the results, so the conversions cannot be optimised away.
+						return checksum == 0 ? -1 : operations;
+					}
+				}));
+			}
+
+			start.countDown();
+			long operations = 0;
+			for (Future<Long> result : results) {
+				operations += result.get();
+			}
+			return operations;
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Hammers Resistance and ResistorCalculator from 1 up to availableProcessors threads, all
+ * started at once, and checks that every thread gets exactly the single threaded results.
+ * Throughput is left to ConcurrencyBenchmark: how it scales depends on the machine running
+ * the test.
+ */
+public class ConcurrencyStressTest {
+
+	private static final int OPERATIONS_PER_THREAD = 20000;
+
+	@Test
+	public void resultsAreIdenticalOnEveryThread() throws Exception {
+		List<String> inputs = getInputs();
+		String[] expected = new String[inputs.size()];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = convert(inputs.get(i));
+		}
+
+		for (int threads : getThreadCounts(Runtime.getRuntime().availableProcessors())) {
+			run(threads, inputs, expected);
+		}
+	}
+
+	@Test
+	public void sweepEndsOnTheCoreCount() {
+		assertEquals("[1, 2]", getThreadCounts(1).toString());
+		assertEquals("[1, 2, 4]", getThreadCounts(4).toString());
+		assertEquals("[1, 2, 4, 6]", getThreadCounts(6).toString());
+		assertEquals("[1, 2, 4, 8, 12]", getThreadCounts(12).toString());
+	}
+
+	/**
+	 * Every standard value with every multiplier, formatted, plus a few the parser must reject.
+	 */
+	static List<String> getInputs() {
+		List<String> inputs = new ArrayList<String>();
+		for (int msb = 1; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = -2; mult <= 9; mult++) {
+					inputs.add(ResistorTables.getFormatted(ResistorCode.pack(msb, lsb, mult, -1)));
+				}
+			}
+		}
+		inputs.add("4.7kΩ");
+		inputs.add("not a resistance");
+		inputs.add(".");
+		return inputs;
+	}
+
+	/**
+	 * The thread counts to run: the powers of two below the number of cores, then the number of
+	 * cores itself, so a 6 core machine runs 1, 2, 4 and 6. At least 2 threads always run.
+	 */
+	static List<Integer> getThreadCounts(int cores) {
+		int max = Math.max(2, cores);
+		List<Integer> counts = new ArrayList<Integer>();
+		for (int threads = 1; threads < max; threads *= 2) {
+			counts.add(threads);
+		}
+		counts.add(max);
+		return counts;
+	}
+
+	/**
+	 * Runs OPERATIONS_PER_THREAD conversions on each of threads threads, all started at once,
+	 * and fails if any of them differs from the expected result.
+	 */
+	private static void run(int threads, final List<String> inputs, final String[] expected)
+			throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+		try {
+			for (int t = 0; t < threads; t++) {
+				final int offset = t * 7;
+				results.add(pool.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() throws Exception {
+						int mismatches = 0;
+						start.await();
+						for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+							int index = (offset + i) % inputs.size();
+							if (!expected[index].equals(convert(inputs.get(index)))) {
+								mismatches++;
+							}
+						}
+						return mismatches;
+					}
+				}));
+			}
+
+			start.countDown();
+			for (Future<Integer> result : results) {
+				assertEquals("results differ from the single threaded results", 0,
+						result.get().intValue());
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Every public conversion, folded into one string so results can be compared.
+	 */
+	static String convert(String s) {
+		StringBuilder result = new StringBuilder();
+		result.append(Resistance.isValid(s)).append(' ').append(Resistance.parse(s));
+		if (Resistance.isValid(s)) {
+			int mult = Resistance.getMultiplier(s);
+			int msb = Resistance.getFirstSigDigit(s);
+			int lsb = Resistance.getSecondSigDigit(s);
+			result.append(' ').append(mult).append(' ').append(msb).append(lsb).append(' ')
+					.append(Resistance.isStandard(s)).append(' ')
+					.append(ResistorCalculator.toEngineeringNotation(
+							ResistorCalculator.calculateResistance(msb, lsb, mult)));
+		}
+		return result.toString();
+	}
+}
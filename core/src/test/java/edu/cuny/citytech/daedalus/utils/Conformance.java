@@ -0,0 +1,509 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * A differential conformance harness for the Resistance API. It runs a candidate
+ * implementation and ReferenceResistance over every input of the valid grammar (with each
+ * repeated zero run up to MAX_ZEROS long) plus a fuzzed space of invalid and near valid
+ * strings, split across all cores, and compares every method's result as a string (exceptions
+ * included).
+ *
+ * Each disagreement is minimized by deleting characters while the same method still disagrees,
+ * and the report lists each distinct minimized case once with how many inputs reduced to it.
+ *
+ * Inputs the reference rejects that are well formed in the grammar Resistance has since added
+ * (the m and G prefixes and RKM codes, see isExtension()) are not compared; ResistanceTest
+ * covers them. Inputs the reference rejects that use that grammar's letters but are not well
+ * formed in it are only checked to be rejected: isValid() false and toCode() -1.
+ */
+class Conformance {
+
+	static final int MAX_ZEROS = 2;
+
+	static final String[] METHODS = { "isValid", "parse", "getMultiplier", "getFirstSigDigit",
+			"getSecondSigDigit", "isStandard", "toCode" };
+
+	private static final String[] SUFFIXES = { "", "k", "M", "Ω", "kΩ", "MΩ" };
+	private static final String FUZZ_ALPHABET = "0123456789..kkMMΩ R-+eEmG,";
+	private static final int MAX_MINIMIZED_PER_METHOD = 1000;
+	private static final int IS_VALID = 0;
+	private static final int TO_CODE = 6;
+
+	/** The added grammar, loosely: an RKM code, or a decimal with an m or G prefix. */
+	private static final Pattern EXTENSION = Pattern.compile(
+			"(?=.*[0-9])([0-9]*[RmkMG][0-9]*|[0-9]*(\\.[0-9]+)?[mG])Ω?");
+
+	/**
+	 * One implementation of the Resistance API.
+	 */
+	interface Subject {
+		String name();
+
+		boolean isValid(String s);
+
+		BigDecimal parse(String s);
+
+		int getMultiplier(String s);
+
+		int getFirstSigDigit(String s);
+
+		int getSecondSigDigit(String s);
+
+		boolean isStandard(String s);
+
+		int toCode(String s);
+	}
+
+	static final Subject REFERENCE = new Subject() {
+
+		public String name() {
+			return "ReferenceResistance";
+		}
+
+		public boolean isValid(String s) {
+			return ReferenceResistance.isValid(s);
+		}
+
+		public BigDecimal parse(String s) {
+			return ReferenceResistance.parse(s);
+		}
+
+		public int getMultiplier(String s) {
+			return ReferenceResistance.getMultiplier(s);
+		}
+
+		public int getFirstSigDigit(String s) {
+			return ReferenceResistance.getFirstSigDigit(s);
+		}
+
+		public int getSecondSigDigit(String s) {
+			return ReferenceResistance.getSecondSigDigit(s);
+		}
+
+		public boolean isStandard(String s) {
+			return ReferenceResistance.isStandard(s);
+		}
+
+		public int toCode(String s) {
+			return ReferenceResistance.toCode(s);
+		}
+	};
+
+	static final Subject RESISTANCE = new Subject() {
+
+		public String name() {
+			return "Resistance";
+		}
+
+		public boolean isValid(String s) {
+			return Resistance.isValid(s);
+		}
+
+		public BigDecimal parse(String s) {
+			return Resistance.parse(s);
+		}
+
+		public int getMultiplier(String s) {
+			return Resistance.getMultiplier(s);
+		}
+
+		public int getFirstSigDigit(String s) {
+			return Resistance.getFirstSigDigit(s);
+		}
+
+		public int getSecondSigDigit(String s) {
+			return Resistance.getSecondSigDigit(s);
+		}
+
+		public boolean isStandard(String s) {
+			return Resistance.isStandard(s);
+		}
+
+		public int toCode(String s) {
+			return Resistance.toCode(s);
+		}
+	};
+
+	/**
+	 * A disagreement between the reference and the candidate.
+	 */
+	static final class Diff {
+		final String method;
+		final String input;
+		final String minimized;
+		final String expected;
+		final String actual;
+		int occurrences = 1;
+
+		Diff(String method, String input, String minimized, String expected, String actual) {
+			this.method = method;
+			this.input = input;
+			this.minimized = minimized;
+			this.expected = expected;
+			this.actual = actual;
+		}
+	}
+
+	/**
+	 * The outcome of a run.
+	 */
+	static final class Report {
+		final String candidate;
+		final int inputs;
+		final int excluded;
+		final int mismatches;
+		final List<Diff> diffs;
+
+		Report(String candidate, int inputs, int excluded, int mismatches, List<Diff> diffs) {
+			this.candidate = candidate;
+			this.inputs = inputs;
+			this.excluded = excluded;
+			this.mismatches = mismatches;
+			this.diffs = diffs;
+		}
+
+		boolean isClean() {
+			return mismatches == 0;
+		}
+
+		String format() {
+			StringBuilder s = new StringBuilder();
+			s.append(candidate).append(" vs ").append(REFERENCE.name()).append(": ")
+					.append(inputs).append(" inputs (").append(excluded)
+					.append(" extensions not compared), ").append(mismatches)
+					.append(" mismatched results, ").append(diffs.size())
+					.append(" distinct minimized cases\n");
+			for (Diff d : diffs) {
+				s.append(String.format("%-18s %-14s expected %-12s actual %-12s x%d  (e.g. %s)%n",
+						d.method, quote(d.minimized), d.expected, d.actual, d.occurrences,
+						quote(d.input)));
+			}
+			return s.toString();
+		}
+
+		void write(File file) throws IOException {
+			file.getParentFile().mkdirs();
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+			try {
+				out.write(format());
+			}
+			finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Calls one method of a subject, turning its result or exception into a string.
+	 */
+	static String call(Subject subject, int method, String input) {
+		try {
+			switch (method) {
+			case 0:
+				return String.valueOf(subject.isValid(input));
+			case 1:
+				return String.valueOf(subject.parse(input));
+			case 2:
+				return String.valueOf(subject.getMultiplier(input));
+			case 3:
+				return String.valueOf(subject.getFirstSigDigit(input));
+			case 4:
+				return String.valueOf(subject.getSecondSigDigit(input));
+			case 5:
+				return String.valueOf(subject.isStandard(input));
+			default:
+				return String.valueOf(subject.toCode(input));
+			}
+		}
+		catch (RuntimeException e) {
+			return "throws " + e.getClass().getSimpleName();
+		}
+	}
+
+	/**
+	 * Enumerates the valid grammar of Resistance.isValid, each repeated zero run up to
+	 * MAX_ZEROS long, with every suffix.
+	 */
+	static List<String> validGrammar() {
+		List<String> bodies = new ArrayList<String>();
+
+		// ^[1-9](([.][0-9])0*)?
+		for (int d = 1; d <= 9; d++) {
+			bodies.add("" + d);
+			for (int e = 0; e <= 9; e++) {
+				for (int z = 0; z <= MAX_ZEROS; z++) {
+					bodies.add(d + "." + e + zeros(z));
+				}
+			}
+		}
+
+		// ^[1-9]\d0*(\.0)?0*
+		for (int dd = 10; dd <= 99; dd++) {
+			for (int z1 = 0; z1 <= MAX_ZEROS; z1++) {
+				for (int z2 = 0; z2 <= MAX_ZEROS; z2++) {
+					bodies.add(dd + zeros(z1) + ".0" + zeros(z2));
+				}
+				bodies.add(dd + zeros(z1));
+			}
+		}
+
+		// ^0?\.0*[1-9]\d?0*
+		for (String lead : new String[] { "", "0" }) {
+			for (int z1 = 0; z1 <= MAX_ZEROS; z1++) {
+				for (int d = 1; d <= 9; d++) {
+					for (int e = -1; e <= 9; e++) {
+						for (int z2 = 0; z2 <= MAX_ZEROS; z2++) {
+							bodies.add(lead + "." + zeros(z1) + d + (e < 0 ? "" : "" + e)
+									+ zeros(z2));
+						}
+					}
+				}
+			}
+		}
+
+		List<String> inputs = new ArrayList<String>(bodies.size() * SUFFIXES.length);
+		for (String body : bodies) {
+			for (String suffix : SUFFIXES) {
+				inputs.add(body + suffix);
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 * Generates count fuzzed strings: half random strings over an alphabet of characters that
+	 * resistance strings are made of, half valid strings with one or two random edits.
+	 */
+	static List<String> fuzz(List<String> valid, int count, long seed) {
+		Random random = new Random(seed);
+		List<String> inputs = new ArrayList<String>(count + 2);
+		inputs.add(null);
+		inputs.add("");
+
+		for (int i = 0; i < count; i++) {
+			if (i % 2 == 0) {
+				int length = random.nextInt(8);
+				StringBuilder s = new StringBuilder(length);
+				for (int j = 0; j < length; j++) {
+					s.append(FUZZ_ALPHABET.charAt(random.nextInt(FUZZ_ALPHABET.length())));
+				}
+				inputs.add(s.toString());
+			}
+
+			else {
+				StringBuilder s = new StringBuilder(valid.get(random.nextInt(valid.size())));
+				for (int edits = 1 + random.nextInt(2); edits > 0; edits--) {
+					int at = random.nextInt(s.length() + 1);
+					char c = FUZZ_ALPHABET.charAt(random.nextInt(FUZZ_ALPHABET.length()));
+					switch (random.nextInt(3)) {
+					case 0:
+						s.insert(at, c);
+						break;
+					case 1:
+						if (at < s.length()) {
+							s.deleteCharAt(at);
+						}
+						break;
+					default:
+						if (at < s.length()) {
+							s.setCharAt(at, c);
+						}
+					}
+				}
+				inputs.add(s.toString());
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 * Compares candidate with the reference on every input, using every core.
+	 */
+	static Report run(final Subject candidate, List<String> inputs) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<Diff>>> futures = new ArrayList<Future<List<Diff>>>();
+			int chunk = (inputs.size() + threads * 4 - 1) / (threads * 4);
+			for (int from = 0; from < inputs.size(); from += chunk) {
+				final List<String> part = inputs.subList(from, Math.min(inputs.size(),
+						from + chunk));
+				futures.add(pool.submit(new Callable<List<Diff>>() {
+
+					@Override
+					public List<Diff> call() {
+						return compare(candidate, part);
+					}
+				}));
+			}
+
+			List<Diff> raw = new ArrayList<Diff>();
+			for (Future<List<Diff>> future : futures) {
+				raw.addAll(future.get());
+			}
+
+			int excluded = 0;
+			for (String input : inputs) {
+				if (isExtension(input)) {
+					excluded++;
+				}
+			}
+			return new Report(candidate.name(), inputs.size(), excluded, raw.size(), group(raw));
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static List<Diff> compare(Subject candidate, List<String> inputs) {
+		List<Diff> diffs = new ArrayList<Diff>();
+		int[] minimized = new int[METHODS.length];
+
+		for (String input : inputs) {
+			if (!isCompared(input)) {
+				if (!isExtension(input)) {
+					// Not well formed in either grammar: only the verdict is the reference's.
+					checkRejected(candidate, IS_VALID, "false", input, diffs);
+					checkRejected(candidate, TO_CODE, "-1", input, diffs);
+				}
+				continue;
+			}
+
+			for (int m = 0; m < METHODS.length; m++) {
+				String expected = call(REFERENCE, m, input);
+				String actual = call(candidate, m, input);
+				if (!expected.equals(actual)) {
+					String small = input;
+					if (minimized[m]++ < MAX_MINIMIZED_PER_METHOD) {
+						small = minimize(candidate, m, input);
+					}
+					diffs.add(new Diff(METHODS[m], input, small, call(REFERENCE, m, small),
+							call(candidate, m, small)));
+				}
+			}
+		}
+		return diffs;
+	}
+
+	private static void checkRejected(Subject candidate, int method, String expected,
+			String input, List<Diff> diffs) {
+		String actual = call(candidate, method, input);
+		if (!expected.equals(actual)) {
+			diffs.add(new Diff(METHODS[method], input, input, expected, actual));
+		}
+	}
+
+	/**
+	 * Determines if an input is only accepted by the grammar added to Resistance after the
+	 * reference: the reference rejects it, and it is an RKM code or a decimal with an m or G
+	 * prefix (see EXTENSION) that Resistance may accept.
+	 */
+	static boolean isExtension(String input) {
+		return !isCompared(input) && EXTENSION.matcher(input).matches();
+	}
+
+	/**
+	 * Determines if every result for an input is compared with the reference's: the reference
+	 * accepts it, or it has none of the letters of the added grammar (an m, G or R, or a k or M
+	 * followed by a digit).
+	 */
+	private static boolean isCompared(String input) {
+		if (input == null || ReferenceResistance.isValid(input)) {
+			return true;
+		}
+
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == 'm' || c == 'G' || c == 'R') {
+				return false;
+			}
+
+			if ((c == 'k' || c == 'M') && i + 1 < input.length()
+					&& Character.isDigit(input.charAt(i + 1))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Deletes characters from input, one at a time, as long as method still disagrees.
+	 */
+	static String minimize(Subject candidate, int method, String input) {
+		if (input == null) {
+			return null;
+		}
+
+		String current = input;
+		boolean shrunk = true;
+		while (shrunk) {
+			shrunk = false;
+			for (int i = 0; i < current.length(); i++) {
+				String smaller = current.substring(0, i) + current.substring(i + 1);
+				if (isCompared(smaller) && !call(REFERENCE, method, smaller).equals(
+						call(candidate, method, smaller))) {
+					current = smaller;
+					shrunk = true;
+					break;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Merges diffs with the same method and minimized input, shortest first.
+	 */
+	private static List<Diff> group(List<Diff> raw) {
+		Map<String, Diff> grouped = new LinkedHashMap<String, Diff>();
+		for (Diff d : raw) {
+			String key = d.method + '\u0000' + d.minimized;
+			Diff existing = grouped.get(key);
+			if (existing == null) {
+				grouped.put(key, d);
+			}
+
+			else {
+				existing.occurrences++;
+			}
+		}
+
+		List<Diff> diffs = new ArrayList<Diff>(grouped.values());
+		Collections.sort(diffs, new Comparator<Diff>() {
+
+			@Override
+			public int compare(Diff a, Diff b) {
+				int la = a.minimized == null ? -1 : a.minimized.length();
+				int lb = b.minimized == null ? -1 : b.minimized.length();
+				return la != lb ? la - lb : a.method.compareTo(b.method);
+			}
+		});
+		return diffs;
+	}
+
+	private static String zeros(int count) {
+		return "0000000000".substring(0, count);
+	}
+
+	private static String quote(String s) {
+		return s == null ? "null" : '"' + s + '"';
+	}
+}
@@ -0,0 +1,152 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Holds Resistance, with and without its cache, to the results of ReferenceResistance. Set
+ * -Dconformance.fuzz=N for a longer fuzz run; the report is written to target/.
+ */
+public class ConformanceTest {
+
+	private static final int FUZZ = Integer.getInteger("conformance.fuzz", 10000);
+
+	@After
+	public void uninstall() {
+		Resistance.setCache(null);
+	}
+
+	private static List<String> inputs(long seed) {
+		List<String> valid = Conformance.validGrammar();
+		List<String> inputs = new ArrayList<String>(valid);
+		inputs.addAll(Conformance.fuzz(valid, FUZZ, seed));
+		return inputs;
+	}
+
+	@Test
+	public void resistanceConformsToReference() throws Exception {
+		Conformance.Report report = Conformance.run(Conformance.RESISTANCE, inputs(1));
+		report.write(new File("target/conformance-report.txt"));
+		assertTrue(report.format(), report.isClean());
+	}
+
+	@Test
+	public void cachedResistanceConformsToReference() throws Exception {
+		Resistance.setCache(new ResistanceCache(1024));
+		Conformance.Report report = Conformance.run(Conformance.RESISTANCE, inputs(2));
+		assertTrue(report.format(), report.isClean());
+	}
+
+	@Test
+	public void differencesAreFoundAndMinimized() throws Exception {
+		final Conformance.Subject noMega = new Conformance.Subject() {
+
+			public String name() {
+				return "noMega";
+			}
+
+			public boolean isValid(String s) {
+				return Resistance.isValid(s) && s.indexOf('M') < 0;
+			}
+
+			public BigDecimal parse(String s) {
+				return Resistance.parse(s);
+			}
+
+			public int getMultiplier(String s) {
+				return Resistance.getMultiplier(s);
+			}
+
+			public int getFirstSigDigit(String s) {
+				return Resistance.getFirstSigDigit(s);
+			}
+
+			public int getSecondSigDigit(String s) {
+				return Resistance.getSecondSigDigit(s);
+			}
+
+			public boolean isStandard(String s) {
+				return Resistance.isStandard(s);
+			}
+
+			public int toCode(String s) {
+				return Resistance.toCode(s);
+			}
+		};
+
+		List<String> inputs = new ArrayList<String>();
+		for (String s : Conformance.validGrammar()) {
+			if (s.startsWith("4") || s.startsWith(".4")) {
+				inputs.add(s);
+			}
+		}
+
+		Conformance.Report report = Conformance.run(noMega, inputs);
+		assertFalse(report.isClean());
+		for (Conformance.Diff diff : report.diffs) {
+			assertEquals("isValid", diff.method);
+			assertEquals(diff.minimized, 2, diff.minimized.length());
+			assertTrue(diff.minimized, diff.minimized.endsWith("M"));
+		}
+	}
+
+	@Test
+	public void malformedExtensionsMustBeRejected() throws Exception {
+		final Conformance.Subject lenient = new Conformance.Subject() {
+
+			public String name() {
+				return "lenient";
+			}
+
+			public boolean isValid(String s) {
+				return Resistance.isValid(s) || s.endsWith("RR");
+			}
+
+			public BigDecimal parse(String s) {
+				return Resistance.parse(s);
+			}
+
+			public int getMultiplier(String s) {
+				return Resistance.getMultiplier(s);
+			}
+
+			public int getFirstSigDigit(String s) {
+				return Resistance.getFirstSigDigit(s);
+			}
+
+			public int getSecondSigDigit(String s) {
+				return Resistance.getSecondSigDigit(s);
+			}
+
+			public boolean isStandard(String s) {
+				return Resistance.isStandard(s);
+			}
+
+			public int toCode(String s) {
+				return s.endsWith("RR") ? Resistance.toCode(s.substring(0, s.length() - 1))
+						: Resistance.toCode(s);
+			}
+		};
+
+		List<String> inputs = new ArrayList<String>();
+		inputs.add("4R7"); // Well formed: not compared.
+		inputs.add("47RR");
+		inputs.add("1k5R");
+
+		Conformance.Report report = Conformance.run(lenient, inputs);
+		assertEquals(1, report.excluded);
+		assertEquals(2, report.mismatches);
+		for (Conformance.Diff diff : report.diffs) {
+			assertEquals("47RR", diff.input);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+public class HistoryLogTest {
+
+	private static final long TIMEOUT = 5000;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 16;
+
+	private static File newFile() throws IOException {
+		File file = File.createTempFile("history", ".log");
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static int code(int i) {
+		return ResistorCode.pack(1 + i % 9, i / 9 % 10, i / 90, -1);
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		File file = newFile();
+		HistoryLog log = new HistoryLog(file, 64);
+		log.append(code(0));
+		log.append(code(1));
+		log.append(code(1)); // Repeats are recorded once.
+		log.setFavorite(code(2), true);
+		log.setFavorite(code(3), true);
+		log.setFavorite(code(2), false);
+		log.append(code(0));
+		log.await(TIMEOUT);
+
+		assertEquals(6, log.size());
+		assertEquals(code(0), log.getLast());
+		assertArrayEquals(new int[] { code(0), code(1) }, log.getRecent(10));
+		assertArrayEquals(new int[] { code(0) }, log.getRecent(1));
+		assertArrayEquals(new int[] { code(3) }, log.getFavorites());
+		log.close();
+
+		HistoryLog reopened = new HistoryLog(file, 64);
+		assertEquals(6, reopened.size());
+		assertArrayEquals(new int[] { code(0), code(1) }, reopened.getRecent(10));
+		assertArrayEquals(new int[] { code(3) }, reopened.getFavorites());
+		reopened.close();
+	}
+
+	@Test
+	public void reopensAfterACrash() throws Exception {
+		File file = newFile();
+		HistoryLog log = new HistoryLog(file, 64);
+		for (int i = 0; i < 3; i++) {
+			log.append(code(i));
+		}
+		log.await(TIMEOUT);
+
+		// The process dies without close(), halfway through writing a fourth record: its bytes
+		// are there, but the count in the header was never updated to cover them.
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(HEADER_SIZE + 3 * RECORD_SIZE + 8);
+			raf.writeInt(code(9));
+		}
+		finally {
+			raf.close();
+		}
+
+		HistoryLog reopened = new HistoryLog(file, 64);
+		assertEquals(3, reopened.size());
+		assertEquals(code(2), reopened.getLast());
+		assertArrayEquals(new int[] { code(2), code(1), code(0) }, reopened.getRecent(10));
+		reopened.close();
+	}
+
+	@Test
+	public void startsOverOnAnUnreadableFile() throws Exception {
+		File file = newFile();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.writeBytes("not a history log at all");
+		}
+		finally {
+			raf.close();
+		}
+
+		HistoryLog log = new HistoryLog(file, 64);
+		assertEquals(0, log.size());
+		assertEquals(-1, log.getLast());
+		log.close();
+	}
+
+	@Test
+	public void compactionKeepsFavoritesAndTheMostRecent() throws Exception {
+		HistoryLog log = new HistoryLog(newFile(), 8);
+		int favorite = code(50);
+		log.setFavorite(favorite, true);
+		for (int i = 0; i < 10; i++) {
+			log.append(code(i));
+		}
+		log.await(TIMEOUT);
+
+		// Full at 8 records: the favorite and the 2 (capacity / 4) most recent codes are kept.
+		assertEquals(6, log.size());
+		assertArrayEquals(new int[] { favorite }, log.getFavorites());
+		assertArrayEquals(new int[] { code(9), code(8), code(7), code(6), code(5) },
+				log.getRecent(10));
+		log.close();
+	}
+
+	@Test
+	public void reopensAfterACrashDuringCompaction() throws Exception {
+		File file = newFile();
+		HistoryLog log = new HistoryLog(file, 8);
+		for (int i = 0; i < 8; i++) {
+			log.append(code(i));
+		}
+		log.await(TIMEOUT);
+		assertEquals(8, log.size());
+
+		// The process dies halfway through copying into the other region: some records are
+		// there, but the state in the header still names the full region.
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			for (int i = 0; i < 2; i++) {
+				raf.seek(HEADER_SIZE + (8 + i) * RECORD_SIZE + 8);
+				raf.writeInt(code(50 + i));
+			}
+		}
+		finally {
+			raf.close();
+		}
+
+		HistoryLog reopened = new HistoryLog(file, 8);
+		assertEquals(8, reopened.size());
+		assertArrayEquals(new int[] { code(7), code(6), code(5), code(4), code(3), code(2),
+				code(1), code(0) }, reopened.getRecent(10));
+
+		// Compacting again, and then starting over from the other region, loses nothing.
+		reopened.append(code(8));
+		reopened.await(TIMEOUT);
+		assertArrayEquals(new int[] { code(8), code(7), code(6) }, reopened.getRecent(10));
+		reopened.close();
+
+		HistoryLog again = new HistoryLog(file, 8);
+		assertArrayEquals(new int[] { code(8), code(7), code(6) }, again.getRecent(10));
+		again.close();
+	}
+
+	@Test
+	public void favoritesBeyondHalfTheCapacityAreRefused() throws Exception {
+		HistoryLog log = new HistoryLog(newFile(), 8);
+		for (int i = 0; i < 6; i++) {
+			log.setFavorite(code(i), true);
+		}
+		log.setFavorite(code(0), true); // Already a favorite: not a new one.
+		for (int i = 0; i < 20; i++) {
+			log.append(code(10 + i));
+		}
+		log.await(TIMEOUT);
+
+		// Compacted several times over, and no favorite was dropped.
+		assertArrayEquals(new int[] { code(0), code(1), code(2), code(3) }, log.getFavorites());
+
+		log.setFavorite(code(1), false);
+		log.setFavorite(code(5), true);
+		log.await(TIMEOUT);
+		assertArrayEquals(new int[] { code(0), code(2), code(3), code(5) }, log.getFavorites());
+		log.close();
+	}
+
+	@Test
+	public void appendsAfterCloseAreIgnored() throws Exception {
+		HistoryLog log = new HistoryLog(newFile(), 64);
+		log.append(code(0));
+		log.await(TIMEOUT);
+		log.close();
+		log.close();
+		log.append(code(1));
+		log.setFavorite(code(2), true);
+		log.await(TIMEOUT);
+		assertEquals(code(0), log.getLast());
+		assertEquals(0, log.getFavorites().length);
+	}
+}
@@ -0,0 +1,110 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class InventoryTest {
+
+	private static int code(String value) {
+		return Resistance.toCode(value);
+	}
+
+	@Test
+	public void exactPartIsReturnedAlone() {
+		Map<Integer, Integer> stock = new HashMap<Integer, Integer>();
+		stock.put(code("4.7k"), 3);
+		stock.put(code("10k"), 1);
+		Inventory inventory = new Inventory(stock);
+
+		List<Inventory.Match> matches = inventory.matchCode(code("4.7k"));
+		assertEquals(1, matches.size());
+		assertEquals(Inventory.Kind.SINGLE, matches.get(0).getKind());
+		assertEquals(0.0, matches.get(0).getError(), 0.0);
+		assertArrayEquals(new ResistorColor[] { ResistorColor.YELLOW, ResistorColor.VIOLET,
+				ResistorColor.RED, ResistorColor.GOLD }, matches.get(0).getBands(0));
+	}
+
+	@Test
+	public void pairsRespectCounts() {
+		Map<Integer, Integer> stock = new HashMap<Integer, Integer>();
+		stock.put(code("10k"), 1);
+		stock.put(code("1k"), 5);
+		Inventory inventory = new Inventory(stock);
+
+		// 20k needs two 10k parts; with one in stock, 10k + 1k is the best series pair.
+		Inventory.Match series = find(inventory.match(20000), Inventory.Kind.SERIES);
+		assertEquals(11000, series.getValue(), 1e-6);
+
+		stock.put(code("10k"), 2);
+		inventory = new Inventory(stock);
+		assertEquals(20000, inventory.best(20000).getValue(), 1e-6);
+		assertEquals(5000, inventory.best(5000).getValue(), 1e-6);
+		assertEquals(Inventory.Kind.PARALLEL, inventory.best(5000).getKind());
+	}
+
+	@Test
+	public void agreesWithExhaustiveSearch() {
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			Map<Integer, Integer> stock = new HashMap<Integer, Integer>();
+			for (int i = 0; i < 40; i++) {
+				stock.put(ResistorCode.pack(1 + random.nextInt(9), random.nextInt(10),
+						random.nextInt(6), -1), random.nextInt(3));
+			}
+			Inventory inventory = new Inventory(stock);
+
+			for (int q = 0; q < 20; q++) {
+				double target = 10 + random.nextDouble() * 1e6;
+				Inventory.Match best = inventory.best(target);
+				if (best == null) {
+					continue;
+				}
+				assertEquals(bruteForce(stock, target), Math.abs(best.getError()), 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void emptyInventoryHasNoMatches() {
+		Inventory inventory = new Inventory(new HashMap<Integer, Integer>());
+		assertTrue(inventory.match(1000).isEmpty());
+	}
+
+	private static Inventory.Match find(List<Inventory.Match> matches, Inventory.Kind kind) {
+		for (Inventory.Match match : matches) {
+			if (match.getKind() == kind) {
+				return match;
+			}
+		}
+		throw new AssertionError("no " + kind + " match");
+	}
+
+	private static double bruteForce(Map<Integer, Integer> stock, double target) {
+		double best = Double.MAX_VALUE;
+		for (Map.Entry<Integer, Integer> a : stock.entrySet()) {
+			if (a.getValue() < 1) {
+				continue;
+			}
+			double va = ResistorTables.getValue(a.getKey());
+			best = Math.min(best, Math.abs(va - target) / target);
+
+			for (Map.Entry<Integer, Integer> b : stock.entrySet()) {
+				if (b.getValue() < 1 || (a.getKey().equals(b.getKey()) && a.getValue() < 2)) {
+					continue;
+				}
+				double vb = ResistorTables.getValue(b.getKey());
+				best = Math.min(best, Math.abs(va + vb - target) / target);
+				best = Math.min(best, Math.abs(va * vb / (va + vb) - target) / target);
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,120 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PartLibraryTest {
+
+	private static final String CSV = "sku,value,tolerance\n"
+			+ "RC0603-10K,10k,1%\n"
+			+ "\"CF14-4K7\";4.7k;5%\n"
+			+ "MF-10K-5\t10000\t\u00B15%\n"
+			+ "MF-100R,100,\n"
+			+ "BROKEN,ten k,1%\n"
+			+ "RC-10K-01,10k,0.1%\n"
+			+ "ODD,4.7k,3%\n";
+
+	private static PartLibrary convert(String csv, List<String> skipped) throws IOException {
+		File file = File.createTempFile("parts", ".bin");
+		file.deleteOnExit();
+		PartLibrary.write(new StringReader(csv), file, skipped);
+		return PartLibrary.open(file);
+	}
+
+	@Test
+	public void convertsEveryValidLine() throws IOException {
+		List<String> skipped = new ArrayList<String>();
+		PartLibrary library = convert(CSV, skipped);
+
+		assertEquals(Arrays.asList("sku,value,tolerance", "BROKEN,ten k,1%", "ODD,4.7k,3%"),
+				skipped);
+		assertEquals(5, library.size());
+		assertEquals("RC0603-10K", library.getSku(0));
+		assertEquals("CF14-4K7", library.getSku(1));
+		assertEquals(ResistorCode.pack(1, 0, 3, 1), library.getCode(0));
+		assertEquals(ResistorCode.pack(4, 7, 2, -1), library.getCodes().get(1));
+		assertEquals(-1, library.getTolerances().get(2));
+		assertEquals(-1, library.getTolerance(3));
+		assertEquals(7, library.getTolerance(4));
+		assertEquals(PartLibrary.E6 | PartLibrary.E12 | PartLibrary.E24, library.getSeries(0));
+	}
+
+	@Test
+	public void findsEveryPartWithTheSameBands() throws IOException {
+		PartLibrary library = convert(CSV, null);
+		int brownBlackOrange = ResistorCode.pack(1, 0, 3, -1);
+
+		List<String> found = new ArrayList<String>();
+		for (int i = library.fromIndex(brownBlackOrange); i < library.toIndex(brownBlackOrange);
+				i++) {
+			found.add(library.getSku(library.getRowByCode(i)));
+		}
+		assertEquals(Arrays.asList("RC0603-10K", "MF-10K-5", "RC-10K-01"), found);
+
+		int none = ResistorCode.pack(2, 2, 3, -1);
+		assertEquals(library.fromIndex(none), library.toIndex(none));
+	}
+
+	@Test
+	public void indexAgreesWithAScan() throws IOException {
+		Random random = new Random(3);
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			csv.append("P").append(i).append(',').append(1 + random.nextInt(9))
+					.append(random.nextInt(10)).append('e').append(random.nextInt(4))
+					.append(",5%\n");
+		}
+		PartLibrary library = convert(csv.toString().replace("e0", "").replace("e1", "0")
+				.replace("e2", "00").replace("e3", "k"), null);
+		assertEquals(5000, library.size());
+
+		for (int digits = 10; digits < 100; digits++) {
+			int code = ResistorCode.pack(digits / 10, digits % 10, 1, -1);
+			List<Integer> scanned = new ArrayList<Integer>();
+			for (int row = 0; row < library.size(); row++) {
+				if ((library.getCode(row) & PartLibrary.VALUE_MASK)
+						== (code & PartLibrary.VALUE_MASK)) {
+					scanned.add(row);
+				}
+			}
+
+			List<Integer> indexed = new ArrayList<Integer>();
+			for (int i = library.fromIndex(code); i < library.toIndex(code); i++) {
+				indexed.add(library.getRowByCode(i));
+			}
+			assertEquals(scanned, indexed);
+		}
+	}
+
+	@Test
+	public void readsTolerancesAndSeries() {
+		assertEquals(-2, PartLibrary.toleranceBand("10%"));
+		assertEquals(2, PartLibrary.toleranceBand("+-2%"));
+		assertEquals(5, PartLibrary.toleranceBand("0.5"));
+		assertEquals(Integer.MIN_VALUE, PartLibrary.toleranceBand("%"));
+		assertEquals(PartLibrary.E12 | PartLibrary.E24, PartLibrary.seriesOf(82));
+		assertEquals(PartLibrary.E24, PartLibrary.seriesOf(91));
+		assertEquals(0, PartLibrary.seriesOf(99));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+		PartLibrary.wrap(ByteBuffer.allocate(64));
+	}
+
+	@Test
+	public void columnsAreReadOnly() throws IOException {
+		assertTrue(convert(CSV, null).getCodes().isReadOnly());
+	}
+}
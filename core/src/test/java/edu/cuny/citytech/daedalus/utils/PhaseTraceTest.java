@@ -0,0 +1,117 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PhaseTraceTest {
+
+	private static final long MS = 1000 * 1000;
+
+	/**
+	 * A trace on a clock that only moves when told to, recording what it reports.
+	 */
+	private static class ManualTrace extends PhaseTrace {
+		static long time;
+		static final Clock CLOCK = new Clock() {
+
+			@Override
+			public long now() {
+				return time;
+			}
+		};
+		final List<String> events = new ArrayList<String>();
+
+		ManualTrace(String name) {
+			super(name, CLOCK);
+		}
+
+		@Override
+		protected void phaseBegan(String phase) {
+			events.add("begin " + phase);
+		}
+
+		@Override
+		protected void phaseEnded() {
+			events.add("end");
+		}
+
+		@Override
+		protected void finished(String report) {
+			events.add(report);
+		}
+	}
+
+	@Test
+	public void accountsForEveryPhase() {
+		ManualTrace.time = 100 * MS;
+		ManualTrace trace = new ManualTrace("ColdStart");
+		trace.begin("onCreate");
+		ManualTrace.time += 3 * MS;
+		trace.begin("inflate"); // Ends onCreate.
+		ManualTrace.time += 5 * MS / 2;
+		trace.end();
+		ManualTrace.time += 1 * MS; // Between phases: only in the total.
+		trace.begin("wire");
+		ManualTrace.time += MS / 2;
+		assertFalse(trace.isFinished());
+		assertEquals(-1, trace.getTotal());
+
+		String report = trace.finish("firstFrame"); // Ends wire.
+		assertEquals("ColdStart onCreate=3.0ms inflate=2.5ms wire=0.5ms firstFrame=7.0ms",
+				report);
+		assertTrue(trace.isFinished());
+		assertEquals(3, trace.getPhaseCount());
+		assertEquals("inflate", trace.getPhase(1));
+		assertEquals(5 * MS / 2, trace.getDuration(1));
+		assertEquals(7 * MS, trace.getTotal());
+
+		long phases = 0;
+		for (int i = 0; i < trace.getPhaseCount(); i++) {
+			phases += trace.getDuration(i);
+		}
+		assertEquals(6 * MS, phases);
+
+		assertEquals("[begin onCreate, end, begin inflate, end, begin wire, end, " + report
+				+ "]", trace.events.toString());
+	}
+
+	@Test
+	public void nothingIsTimedAfterFinish() {
+		ManualTrace.time = 0;
+		ManualTrace trace = new ManualTrace("Idle");
+		trace.end(); // No phase yet.
+		ManualTrace.time += MS;
+		assertEquals("Idle done=1.0ms", trace.finish("done"));
+
+		ManualTrace.time += MS;
+		trace.begin("late");
+		trace.end();
+		assertNull(trace.finish("again"));
+		assertEquals(0, trace.getPhaseCount());
+		assertEquals(MS, trace.getTotal());
+		assertEquals("[Idle done=1.0ms]", trace.events.toString());
+	}
+
+	@Test
+	public void phasesPastTheLimitOnlyCountTowardsTheTotal() {
+		ManualTrace.time = 0;
+		ManualTrace trace = new ManualTrace("Long");
+		for (int i = 0; i < PhaseTrace.MAX_PHASES + 4; i++) {
+			trace.begin("phase" + i);
+			ManualTrace.time += MS;
+		}
+		trace.finish("done");
+
+		assertEquals(PhaseTrace.MAX_PHASES, trace.getPhaseCount());
+		assertEquals("phase" + (PhaseTrace.MAX_PHASES - 1),
+				trace.getPhase(PhaseTrace.MAX_PHASES - 1));
+		assertEquals((PhaseTrace.MAX_PHASES + 4) * MS, trace.getTotal());
+	}
+}
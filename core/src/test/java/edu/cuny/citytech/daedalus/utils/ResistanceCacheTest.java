@@ -0,0 +1,145 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ResistanceCacheTest {
+
+	private static final String[] ODD_INPUTS = { "", ".", "0", "k", "4.7kΩ", "4.7Ω", "01",
+			"1.00000", "0.0047M", ".1", "99M", "100M", "1.5.5", "12k3", "abc", " 10k", "4,7k" };
+
+	@After
+	public void uninstall() {
+		Resistance.setCache(null);
+	}
+
+	private static List<String> inputs() {
+		List<String> inputs = new ArrayList<String>();
+		for (int msb = 0; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = -2; mult <= 9; mult++) {
+					inputs.add(ResistorTables.getFormatted(ResistorCode.pack(msb, lsb, mult, -1)));
+				}
+			}
+		}
+		for (String odd : ODD_INPUTS) {
+			inputs.add(odd);
+		}
+		return inputs;
+	}
+
+	private static String results(String s) {
+		return Resistance.isValid(s) + " " + Resistance.parse(s) + " " + Resistance.getMultiplier(s)
+				+ " " + Resistance.getFirstSigDigit(s) + " " + Resistance.getSecondSigDigit(s) + " "
+				+ Resistance.isStandard(s) + " " + Resistance.toCode(s);
+	}
+
+	@Test
+	public void cachedResultsAreIdentical() {
+		List<String> inputs = inputs();
+		List<String> expected = new ArrayList<String>();
+		for (String s : inputs) {
+			expected.add(results(s));
+		}
+
+		ResistanceCache cache = new ResistanceCache(4096);
+		Resistance.setCache(cache);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < inputs.size(); i++) {
+				assertEquals(inputs.get(i), expected.get(i), results(inputs.get(i)));
+			}
+		}
+		assertTrue(cache.getHitCount() > cache.getMissCount());
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		ResistanceCache cache = new ResistanceCache(100);
+		Resistance.setCache(cache);
+		Resistance.parse("10.0k");
+		Resistance.parse("10.0k");
+		Resistance.isStandard("10.0k"); // Not canonical, so not answered by CanonicalIndex.
+		Resistance.parse("22k");
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void staysBoundedAndKeepsFrequentStrings() {
+		ResistanceCache cache = new ResistanceCache(256);
+		Resistance.setCache(cache);
+		String[] popular = { "10k", "4.7k", "100", "2.2M", "33k", "1k" };
+		for (int i = 0; i < 20; i++) {
+			for (String s : popular) {
+				Resistance.parse(s);
+			}
+		}
+
+		// A scan of one-off strings, longer than the cache, must not push out the popular ones
+		// as long as they are still being asked for.
+		for (int i = 0; i < 10000; i++) {
+			Resistance.parse(i + "0");
+			if (i % 500 == 0) {
+				for (String s : popular) {
+					Resistance.parse(s);
+				}
+			}
+		}
+		assertTrue(cache.size() <= 256);
+
+		long misses = cache.getMissCount();
+		for (String s : popular) {
+			Resistance.parse(s);
+		}
+		assertEquals(misses, cache.getMissCount());
+	}
+
+	@Test
+	public void concurrentLookupsAgreeWithUncached() throws Exception {
+		final List<String> inputs = inputs();
+		final List<String> expected = new ArrayList<String>();
+		for (String s : inputs) {
+			expected.add(results(s));
+		}
+
+		Resistance.setCache(new ResistanceCache(512));
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int t = 0; t < 4; t++) {
+				final int seed = t;
+				futures.add(pool.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() {
+						int mismatches = 0;
+						for (int i = 0; i < 5000; i++) {
+							int index = (i * 31 + seed * 7) % inputs.size();
+							if (!expected.get(index).equals(results(inputs.get(index)))) {
+								mismatches++;
+							}
+						}
+						return mismatches;
+					}
+				}));
+			}
+
+			for (Future<Integer> future : futures) {
+				assertEquals(0, future.get().intValue());
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * The grammar Resistance accepts beyond ReferenceResistance; everything else is held to the
+ * reference by ConformanceTest.
+ */
+public class ResistanceTest {
+
+	@Test
+	public void rkmCodesParseLikeTheirDecimalSpelling() {
+		String[][] pairs = { { "4R7", "4.7" }, { "47R", "47" }, { "R47", "0.47" },
+				{ "0R22", "0.22" }, { "2k2", "2.2k" }, { "1M5", "1.5M" }, { "4k7Ω", "4.7k" },
+				{ "1G", "1000M" }, { "2G2", "2.2G" }, { "470m", "0.47" }, { "100m", "0.1" } };
+		for (String[] pair : pairs) {
+			assertTrue(pair[0], Resistance.isValid(pair[0]));
+			assertEquals(pair[0], 0, Resistance.parse(pair[1]).compareTo(
+					Resistance.parse(pair[0])));
+			assertEquals(pair[0], Resistance.toCode(pair[1]), Resistance.toCode(pair[0]));
+			assertEquals(pair[0], Resistance.isStandard(pair[1]), Resistance.isStandard(pair[0]));
+		}
+	}
+
+	@Test
+	public void malformedRkmCodesAreRejected() {
+		String[] invalid = { "R", "k", "4R7R", "4k7k", "4.7R", "4.7k7", "4R7.0", "4R.7", "4kR7",
+				"4k7M", "4m7m", "04R7", "4R75", "R", "Ω", "1mG", "4.k" };
+		for (String s : invalid) {
+			assertFalse(s, Resistance.isValid(s));
+			assertEquals(s, -1, Resistance.toCode(s));
+			assertEquals(s, new BigDecimal(-1), Resistance.parse(s));
+		}
+	}
+
+	@Test
+	public void rkmFormattingRoundTrips() {
+		assertEquals("4R7", ResistorCalculator.toRkmNotation(new BigDecimal("4.7")));
+		assertEquals("47R", ResistorCalculator.toRkmNotation(new BigDecimal("47")));
+		assertEquals("R47", ResistorCalculator.toRkmNotation(new BigDecimal("0.47")));
+		assertEquals("2k2", ResistorCalculator.toRkmNotation(new BigDecimal("2200")));
+		assertEquals("10k", ResistorCalculator.toRkmNotation(new BigDecimal("10000")));
+		assertEquals("1M5", ResistorCalculator.toRkmNotation(new BigDecimal("1500000")));
+		assertEquals("4G7", ResistorCalculator.toRkmNotation(new BigDecimal("4.7E+9")));
+		assertEquals("47m", ResistorCalculator.toRkmNotation(new BigDecimal("0.047")));
+		assertEquals("4m7", ResistorCalculator.toRkmNotation(new BigDecimal("0.0047")));
+		assertEquals(0, new BigDecimal("0.047").compareTo(Resistance.parse("47m")));
+
+		for (int msb = 1; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = -2; mult <= 9; mult++) {
+					BigDecimal resistance = ResistorCalculator.calculateResistance(msb, lsb, mult);
+					int code = ResistorCode.pack(msb, lsb, mult, -1);
+					String rkm = ResistorCalculator.toRkmNotation(resistance);
+					String engineering = ResistorCalculator.toEngineeringNotation(resistance);
+					assertEquals(rkm, code, Resistance.toCode(rkm));
+					assertEquals(engineering, code, Resistance.toCode(engineering));
+				}
+			}
+		}
+	}
+}
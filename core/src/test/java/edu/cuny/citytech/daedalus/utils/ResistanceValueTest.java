@@ -0,0 +1,115 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ResistanceValueTest {
+
+	private static final MathContext CONTEXT = new MathContext(ResistanceValue.MAX_DIGITS,
+			RoundingMode.HALF_UP);
+
+	private static long value(String s) {
+		return ResistanceValue.valueOf(new BigDecimal(s));
+	}
+
+	private static void assertSame(BigDecimal expected, long actual) {
+		assertEquals(expected.toString(), 0, expected.compareTo(
+				ResistanceValue.toBigDecimal(actual)));
+		assertEquals(expected.toString(), ResistanceValue.valueOf(expected), actual);
+	}
+
+	@Test
+	public void valuesAreNormalized() {
+		assertEquals(value("4700"), value("4.7E+3"));
+		assertEquals(value("4700.000"), ResistanceValue.valueOf(47, 2));
+		assertEquals(ResistanceValue.ZERO, value("0.000"));
+		assertEquals(47, ResistanceValue.getMantissa(value("4700")));
+		assertEquals(2, ResistanceValue.getExponent(value("4700")));
+		assertEquals(-3, ResistanceValue.getExponent(value("-0.001")));
+		assertEquals(ResistanceValue.valueOf(1, 17), ResistanceValue.valueOf(99999999999999950L, 0));
+	}
+
+	@Test
+	public void arithmeticMatchesBigDecimal() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			BigDecimal x = random(random);
+			BigDecimal y = random(random);
+			long a = ResistanceValue.valueOf(x);
+			long b = ResistanceValue.valueOf(y);
+
+			assertEquals(x + " ? " + y, Integer.signum(x.compareTo(y)),
+					Integer.signum(ResistanceValue.compare(a, b)));
+			assertSame(x.add(y, CONTEXT), ResistanceValue.add(a, b));
+			assertSame(x.subtract(y, CONTEXT), ResistanceValue.subtract(a, b));
+			assertSame(x.multiply(y, CONTEXT), ResistanceValue.multiply(a, b));
+			if (x.add(y).signum() != 0) {
+				assertSame(x.multiply(y).divide(x.add(y), CONTEXT),
+						ResistanceValue.parallel(a, b));
+			}
+		}
+	}
+
+	private static BigDecimal random(Random random) {
+		long mantissa;
+		switch (random.nextInt(3)) {
+		case 0:
+			mantissa = 1 + random.nextInt(99);
+			break;
+		case 1:
+			mantissa = random.nextInt(1000000) - 500000;
+			break;
+		default:
+			mantissa = (random.nextLong() >> 1) % 100000000000000L;
+		}
+		return BigDecimal.valueOf(mantissa, random.nextInt(40) - 20).round(CONTEXT);
+	}
+
+	@Test
+	public void seriesAndParallel() {
+		long r = ResistanceValue.valueOf(10, 3);
+		assertEquals(value("20000"), ResistanceValue.add(r, r));
+		assertEquals(value("5000"), ResistanceValue.parallel(r, r));
+		assertEquals(value("1498.5507246377"),
+				ResistanceValue.parallel(value("4700"), value("2200")));
+		assertEquals(value("4.7001"), ResistanceValue.add(value("4.7"), value("0.0001")));
+		assertEquals(value("1E+20"), ResistanceValue.add(value("1E+20"), value("1E-20")));
+		assertEquals(value("4.7"), ResistanceValue.scaleByPowerOfTen(value("4700"), -3));
+	}
+
+	@Test
+	public void formatting() {
+		assertEquals("4.7k", ResistanceValue.toEngineeringNotation(value("4700")));
+		assertEquals("1k", ResistanceValue.toEngineeringNotation(value("999.6")));
+		assertEquals("4.7G", ResistanceValue.toEngineeringNotation(value("4.7E+9")));
+		assertEquals("1G", ResistanceValue.toEngineeringNotation(value("999.6E+6")));
+		assertEquals("47m", ResistanceValue.toEngineeringNotation(value("0.047")));
+		assertEquals("4.7m", ResistanceValue.toEngineeringNotation(value("0.0047")));
+		assertEquals("470", ResistanceValue.toEngineeringNotation(value("470")));
+		assertEquals("1", ResistanceValue.toEngineeringNotation(value("1.0")));
+		assertEquals("0.5", ResistanceValue.toEngineeringNotation(value("0.5")));
+		assertEquals("10m", ResistanceValue.toEngineeringNotation(value("0.01")));
+		assertEquals("0", ResistanceValue.toEngineeringNotation(ResistanceValue.ZERO));
+		assertEquals("0.5", ResistorCalculator.toEngineeringNotation(new BigDecimal("0.5")));
+		assertEquals("50m", ResistorCalculator.toEngineeringNotation(new BigDecimal("0.05")));
+		assertEquals("0.47", ResistorCalculator.toEngineeringNotation(new BigDecimal("0.47")));
+		assertEquals("0.00047", ResistanceValue.toPlainString(value("4.7E-4")));
+		assertEquals("-4700", ResistanceValue.toPlainString(value("-4.7E+3")));
+	}
+
+	@Test
+	public void parseValueIsParse() {
+		for (String s : Conformance.validGrammar()) {
+			assertEquals(s, 0, Resistance.parse(s).compareTo(
+					ResistanceValue.toBigDecimal(Resistance.parseValue(s))));
+		}
+		assertTrue(ResistanceValue.signum(Resistance.parseValue("4k7x")) < 0);
+	}
+}
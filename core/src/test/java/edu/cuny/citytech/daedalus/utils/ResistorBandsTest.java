@@ -0,0 +1,193 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ResistorBandsTest {
+
+	private static final int ROUNDS = 20000;
+	private static final int[] BANDS = { BandGeometry.MSB, BandGeometry.LSB,
+			BandGeometry.MULTIPLIER, BandGeometry.TOLERANCE };
+
+	@Test
+	public void changesOneBandAtATime() {
+		ResistorBands bands = new ResistorBands(ResistorCode.pack(4, 7, 2, -1));
+		assertEquals(ResistorCode.pack(4, 7, 3, -1), bands.setBand(BandGeometry.MULTIPLIER, 3));
+		assertEquals(ResistorCode.pack(4, 8, 3, -1), bands.stepBand(BandGeometry.LSB, 1, 9));
+		assertEquals(ResistorCode.pack(2, 2, 1, -1),
+				bands.setValueBands(ResistorCode.pack(2, 2, 1, 5)));
+		assertEquals(ResistorCode.pack(2, 2, 1, -1), bands.get());
+
+		bands.setBand(BandGeometry.MSB, 9);
+		assertEquals(ResistorBands.UNCHANGED, bands.stepBand(BandGeometry.MSB, 1, 9));
+		assertEquals(9, BandGeometry.getBandValue(bands.get(), BandGeometry.MSB));
+
+		assertFalse(bands.compareAndSet(ResistorCode.pack(2, 2, 1, -1), 0));
+		assertTrue(bands.compareAndSet(ResistorCode.pack(9, 2, 1, -1), 0));
+		assertEquals(0, bands.get());
+	}
+
+	/**
+	 * One thread per band, each setting only its own band: a read-modify-write that is not
+	 * atomic would put back a stale value of another thread's band.
+	 */
+	@Test
+	public void concurrentSingleBandUpdatesAreNotLost() throws Exception {
+		final ResistorBands bands = new ResistorBands(ResistorCode.pack(0, 0, 0, 0));
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (final int band : BANDS) {
+			tasks.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					int lost = 0;
+					for (int i = 0; i < ROUNDS; i++) {
+						int value = i % 12 - 2;
+						int set = bands.setBand(band, value);
+						if (BandGeometry.getBandValue(set, band) != value) {
+							lost++;
+						}
+
+						// Only this thread writes the band, so it must still be there.
+						if (BandGeometry.getBandValue(bands.get(), band) != value) {
+							lost++;
+						}
+					}
+					return lost;
+				}
+			});
+		}
+
+		assertEquals(0, runAtOnce(tasks));
+		int last = (ROUNDS - 1) % 12 - 2;
+		assertEquals(ResistorCode.pack(last, last, last, last), bands.get());
+	}
+
+	/**
+	 * Every thread steps the same band up to its limit and back down: each step lands exactly
+	 * once, however the threads interleave.
+	 */
+	@Test
+	public void concurrentStepsOfOneBandAreCountedOnce() throws Exception {
+		final ResistorBands bands = new ResistorBands(ResistorCode.pack(0, 0, 0, -1));
+		final int rounds = 500;
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int t = 0; t < threads; t++) {
+			tasks.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					int steps = 0;
+					for (int r = 0; r < rounds; r++) {
+						while (bands.stepBand(BandGeometry.MSB, 1, 9) != ResistorBands.UNCHANGED) {
+							steps++;
+						}
+
+						while (bands.stepBand(BandGeometry.MSB, -1, 0) != ResistorBands.UNCHANGED) {
+							steps--;
+						}
+					}
+					return steps;
+				}
+			});
+		}
+
+		// Every thread ends on a step down to 0, so the steps that landed cancel out; a step
+		// counted twice or lost would not. The other bands are never touched.
+		assertEquals(0, runAtOnce(tasks));
+		assertEquals(ResistorCode.pack(0, 0, 0, -1), bands.get());
+	}
+
+	/**
+	 * Writers only ever set codes with the three value bands equal; a reader must never see
+	 * them differ.
+	 */
+	@Test
+	public void codesAreNeverTorn() throws Exception {
+		final ResistorBands bands = new ResistorBands(ResistorCode.pack(0, 0, 0, -1));
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int t = 0; t < 2; t++) {
+			final int offset = t * 5;
+			tasks.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					for (int i = 0; i < ROUNDS; i++) {
+						int value = (offset + i) % 10;
+						bands.setValueBands(ResistorCode.pack(value, value, value, 0));
+					}
+					writing.set(false);
+					return 0;
+				}
+			});
+		}
+
+		for (int t = 0; t < 2; t++) {
+			tasks.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					int torn = 0;
+					do {
+						int code = bands.get();
+						int msb = ResistorCode.getMSB(code);
+						if (ResistorCode.getLSB(code) != msb
+								|| ResistorCode.getMultiplier(code) != msb
+								|| ResistorCode.getTolerance(code) != -1) {
+							torn++;
+						}
+					} while (writing.get());
+					return torn;
+				}
+			});
+		}
+
+		assertEquals(0, runAtOnce(tasks));
+	}
+
+	/**
+	 * Runs the tasks on threads of their own, all started at once.
+	 * @return		The sum of their results.
+	 */
+	private static int runAtOnce(List<Callable<Integer>> tasks) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		try {
+			for (final Callable<Integer> task : tasks) {
+				results.add(pool.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() throws Exception {
+						start.await();
+						return task.call();
+					}
+				}));
+			}
+
+			start.countDown();
+			int sum = 0;
+			for (Future<Integer> result : results) {
+				sum += result.get();
+			}
+			return sum;
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ResistorStateTest {
+
+	@Test
+	public void formatsACodeOnlyWhenItChanges() {
+		ResistorState state = new ResistorState();
+		assertNull(state.getText());
+
+		state.setCode(Resistance.toCode("4.7k"));
+		String text = state.getText();
+		assertEquals("4.7kΩ", text);
+		assertTrue(state.isStandard());
+
+		// A rotation keeps the same state, and setting the same code does not format it again.
+		state.setCode(Resistance.toCode("4.7k"));
+		assertSame(text, state.getText());
+
+		state.setCode(Resistance.toCode("4.8k"));
+		assertEquals("4.8kΩ", state.getText());
+		assertFalse(state.isStandard());
+	}
+
+	@Test
+	public void formatsRkmCodes() {
+		ResistorState state = new ResistorState();
+		state.setRkm(true);
+		state.setCode(Resistance.toCode("4.7k"));
+		assertEquals("4k7", state.getText());
+
+		state.setRkm(false);
+		assertEquals("4.7kΩ", state.getText());
+		state.setRkm(true);
+		assertEquals("4k7", state.getText());
+		assertEquals(state.getCode(), Resistance.toCode(state.getText()));
+
+		ResistorState restored = new ResistorState();
+		restored.setCode(state.getCode());
+		assertTrue(restored.restore(state.save()));
+		assertTrue(restored.isRkm());
+		assertEquals("4k7", restored.getText());
+	}
+
+	@Test
+	public void restoresAfterProcessDeath() {
+		ResistorState state = new ResistorState();
+		state.setCode(Resistance.toCode("220"));
+		state.setTextColor(0xFF00FF00);
+		state.setClearTextOnTouch(false);
+		state.setFromTextToBands(false);
+		state.setChooser(2);
+
+		ResistorState restored = new ResistorState();
+		assertTrue(restored.restore(state.save()));
+		assertEquals(state.getCode(), restored.getCode());
+		assertEquals("220Ω", restored.getText());
+		assertTrue(restored.isStandard());
+		assertEquals(0xFF00FF00, restored.getTextColor());
+		assertFalse(restored.isClearTextOnTouch());
+		assertFalse(restored.isFromTextToBands());
+		assertEquals(2, restored.getChooser());
+	}
+
+	@Test
+	public void restoresTheStartingState() {
+		ResistorState restored = new ResistorState();
+		restored.setCode(Resistance.toCode("1k"));
+		assertTrue(restored.restore(new ResistorState().save()));
+		assertEquals(-1, restored.getCode());
+		assertNull(restored.getText());
+		assertTrue(restored.isClearTextOnTouch());
+		assertTrue(restored.isFromTextToBands());
+		assertEquals(ResistorState.NO_CHOOSER, restored.getChooser());
+	}
+
+	@Test
+	public void otherVersionsAreIgnored() {
+		ResistorState state = new ResistorState();
+		state.setChooser(1);
+		int[] block = new ResistorState().save();
+		block[0] = SavedState.VERSION + 1;
+		assertFalse(state.restore(block));
+		assertFalse(state.restore(null));
+		assertFalse(state.restore(new int[2]));
+		assertEquals(1, state.getChooser());
+	}
+}
@@ -0,0 +1,48 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SavedStateTest {
+
+	@Test
+	public void bandsRoundTrip() {
+		for (int msb = -2; msb <= 9; msb++) {
+			for (int lsb = -2; lsb <= 9; lsb++) {
+				for (int mult = -2; mult <= 9; mult++) {
+					for (int tol = -2; tol <= 9; tol++) {
+						int code = ResistorCode.pack(msb, lsb, mult, tol);
+						assertEquals(code, SavedState.unpackBands(SavedState.packBands(code)));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void otherVersionsAreIgnored() {
+		int code = Resistance.toCode("4.7k");
+		assertEquals(-1, SavedState.unpackBands(code));
+		assertEquals(-1, SavedState.unpackBands((SavedState.VERSION + 1) << 24 | code));
+
+		int[] block = SavedState.packHud(0, 40, 1, 2);
+		block[0] = SavedState.VERSION + 1;
+		assertFalse(SavedState.isHud(block));
+		assertFalse(SavedState.isHud(new int[2]));
+		assertFalse(SavedState.isHud(null));
+	}
+
+	@Test
+	public void hudRoundTrip() {
+		int[] block = SavedState.packHud(0xFF00FF00, 40, 360.5f, -0.0f);
+		assertTrue(SavedState.isHud(block));
+		assertEquals(0xFF00FF00, SavedState.getBorderColor(block));
+		assertEquals(40, SavedState.getTextSize(block));
+		assertEquals(360.5f, SavedState.getTextX(block), 0f);
+		assertEquals(Float.floatToIntBits(-0.0f),
+				Float.floatToIntBits(SavedState.getTextY(block)));
+	}
+}
@@ -0,0 +1,80 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+public class SmdCodeTest {
+
+	private static void assertValue(String expected, String marking) {
+		assertEquals(marking, 0, new BigDecimal(expected).compareTo(SmdCode.parse(marking)));
+	}
+
+	@Test
+	public void decodesEveryFormat() {
+		assertValue("4700", "472");
+		assertValue("10", "100");
+		assertValue("4700", "4701");
+		assertValue("4.7", "4R7");
+		assertValue("0.47", "R47");
+		assertValue("47", "47R");
+		assertValue("4.70", "4R70");
+		assertValue("10000", "01C");
+		assertValue("1.00", "01Y");
+		assertValue("976000", "96D");
+		assertValue("3010", "47B");
+		assertValue("3010", "47H");
+		assertValue("0", "000");
+	}
+
+	@Test
+	public void rejectsInvalidMarkings() {
+		String[] invalid = { null, "", "47", "47k", "4.7", "RR1", "97C", "00C", "12345", "4R7Ω",
+				"47G" };
+		for (String marking : invalid) {
+			assertFalse(marking, SmdCode.isValid(marking));
+			assertEquals(0, new BigDecimal(-1).compareTo(SmdCode.parse(marking)));
+			assertEquals(-1, SmdCode.toCode(marking));
+		}
+	}
+
+	@Test
+	public void convertsToColorCodes() {
+		assertEquals(Resistance.toCode("4.7k"), SmdCode.toCode("472"));
+		assertEquals(Resistance.toCode("4.7k"), SmdCode.toCode("4701"));
+		assertEquals(Resistance.toCode("4.7"), SmdCode.toCode("4R7"));
+		assertEquals(Resistance.toCode("10k"), SmdCode.toCode("01C"));
+		assertEquals(-1, SmdCode.toCode("4711"));
+		assertEquals(-1, SmdCode.toCode("1021"));
+		assertEquals(-1, SmdCode.toCode("000"));
+	}
+
+	@Test
+	public void encodesEveryCodeAndDecodesItBack() {
+		for (int msb = 1; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = -2; mult <= 9; mult++) {
+					int code = ResistorCode.pack(msb, lsb, mult, -1);
+					for (SmdCode.Format format : SmdCode.Format.values()) {
+						String marking = SmdCode.encode(code, format);
+						if (marking != null) {
+							assertEquals(marking, code, SmdCode.toCode(marking));
+						}
+					}
+				}
+			}
+		}
+
+		assertEquals("472", SmdCode.encode(Resistance.toCode("4.7k"), SmdCode.Format.THREE_DIGIT));
+		assertEquals("4701", SmdCode.encode(Resistance.toCode("4.7k"), SmdCode.Format.FOUR_DIGIT));
+		assertEquals("R47", SmdCode.encode(Resistance.toCode(".47"), SmdCode.Format.THREE_DIGIT));
+		assertEquals("01C", SmdCode.encode(Resistance.toCode("10k"), SmdCode.Format.EIA_96));
+		assertNull(SmdCode.encode(Resistance.toCode("4.7k"), SmdCode.Format.EIA_96));
+		assertNull(SmdCode.encode(new BigDecimal("4.75"), SmdCode.Format.THREE_DIGIT));
+		assertEquals("4R75", SmdCode.encode(new BigDecimal("4.75"), SmdCode.Format.FOUR_DIGIT));
+	}
+}
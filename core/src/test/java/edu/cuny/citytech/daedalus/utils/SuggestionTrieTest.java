@@ -0,0 +1,92 @@
+package edu.cuny.citytech.daedalus.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SuggestionTrieTest {
+
+	private static final char OMEGA = 'Ω';
+
+	private static List<String> suggest(CharSequence prefix) {
+		int[] codes = new int[200];
+		int n = SuggestionTrie.suggest(prefix, codes);
+		List<String> suggestions = new ArrayList<String>();
+		for (int i = 0; i < n; i++) {
+			suggestions.add(ResistorTables.getFormatted(codes[i]));
+		}
+		return suggestions;
+	}
+
+	@Test
+	public void suggestsStandardValuesWithThePrefix() {
+		assertEquals("[4.7, 4.7k, 4.7M, 4.7G]", suggest("4.").toString());
+		assertEquals("[47, 470, 47k, 470k, 47M, 470M, 47G]", suggest("47").toString());
+		assertEquals("[0.1, 0.12, 0.15, 0.18]", suggest("0").subList(0, 4).toString());
+		assertEquals("[]", suggest("48").toString());
+		assertEquals("[]", suggest("4k7").toString());
+	}
+
+	@Test
+	public void agreesWithAScanOfEveryStandardValue() {
+		final Map<String, Long> values = new HashMap<String, Long>();
+		List<String> all = new ArrayList<String>();
+		for (int code = 0; code <= 0xFFF; code++) {
+			int msb = ResistorCode.getMSB(code);
+			int lsb = ResistorCode.getLSB(code);
+			int mult = ResistorCode.getMultiplier(code);
+			if (msb >= 1 && msb <= 9 && lsb >= 0 && lsb <= 9
+					&& mult >= ResistorTables.MIN_MULTIPLIER && mult <= ResistorTables.MAX_MULTIPLIER
+					&& ResistorTables.isStandard(code)) {
+				String value = ResistorTables.getFormatted(code);
+				all.add(value);
+				values.put(value, ResistorCalculator.calculateValue(msb, lsb, mult));
+			}
+		}
+		assertEquals(144, all.size());
+		assertEquals(144, SuggestionTrie.count(""));
+
+		for (String value : all) {
+			for (int length = 1; length <= value.length(); length++) {
+				String prefix = value.substring(0, length);
+				List<String> expected = new ArrayList<String>();
+				for (String other : all) {
+					if (other.startsWith(prefix)) {
+						expected.add(other);
+					}
+				}
+				Collections.sort(expected, new Comparator<String>() {
+
+					@Override
+					public int compare(String a, String b) {
+						return ResistanceValue.compare(values.get(a), values.get(b));
+					}
+				});
+				assertEquals(prefix, expected, suggest(prefix));
+				assertEquals(expected.size(), SuggestionTrie.count(prefix));
+			}
+		}
+	}
+
+	@Test
+	public void trailingOmegaMatchesOnlyAWholeValue() {
+		assertEquals("[47]", suggest("47" + OMEGA).toString());
+		assertEquals("[]", suggest("4.7" + OMEGA + "k").toString());
+		assertEquals("[]", suggest("4." + OMEGA).toString());
+		assertEquals("[]", suggest(String.valueOf(OMEGA)).toString());
+	}
+
+	@Test
+	public void fillsNoMoreThanAsked() {
+		int[] codes = new int[2];
+		assertEquals(2, SuggestionTrie.suggest("1", codes));
+		assertEquals(ResistorCode.pack(1, 0, -1, -1), codes[0]); // "1.0"
+	}
+}
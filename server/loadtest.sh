@@ -0,0 +1,28 @@
+#!/bin/sh
+# Starts the conversion service on localhost, runs LoadTest against it and stops it again.
+#
+# Usage: server/loadtest.sh [client threads] [seconds] [port]
+
+set -e
+
+THREADS=${1:-32}
+SECONDS_TO_RUN=${2:-10}
+PORT=${3:-8080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+mvn -B -q -f "$ROOT/pom.xml" -DskipTests package
+CP="$ROOT/server/target/classes:$ROOT/core/target/classes"
+
+LOG=$(mktemp)
+java -cp "$CP" edu.cuny.citytech.daedalus.server.ConversionServer "$PORT" >"$LOG" 2>&1 &
+SERVER=$!
+trap 'kill $SERVER 2>/dev/null; rm -f "$LOG"' EXIT
+
+# Wait for the server to start listening.
+for i in 1 2 3 4 5 6 7 8 9 10; do
+    grep -q Listening "$LOG" && break
+    sleep 1
+done
+
+java -cp "$CP" edu.cuny.citytech.daedalus.server.LoadTest "http://localhost:$PORT" \
+    "$THREADS" "$SECONDS_TO_RUN"
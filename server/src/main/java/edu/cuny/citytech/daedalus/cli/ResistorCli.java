@@ -0,0 +1,128 @@
+/**
+ * A command line front end for the conversions of the service (see Conversion), made to be
+ * compiled ahead of time into a native executable that starts in a few milliseconds (see the
+ * native profile of server/pom.xml).
+ *
+ * 		resistor code 4.7k 220			yellow-violet-red-gold
+ * 										red-red-brown-gold
+ * 		resistor code					pipe mode: one input per line on stdin,
+ * 										one result per line on stdout
+ *
+ * Invalid inputs get the result "invalid", so in pipe mode the n-th line out always answers
+ * the n-th line in, and a long-lived process can be driven as a coprocess. Output is flushed
+ * whenever no more input is waiting: an interactive caller gets each answer as soon as its
+ * line is read, and a file piped in is answered in large writes.
+ *
+ * Nothing here or in the conversions uses reflection, resources or threads, and the tables
+ * the conversions read are built by static initializers of their own, so the native image
+ * initializes them at build time and starts with them already in its heap.
+ *
+ * Thread-safety: main() only; run() may be called from any number of threads with distinct
+ * streams.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import edu.cuny.citytech.daedalus.server.Conversion;
+
+public class ResistorCli {
+
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_INVALID = 1; // Some input was invalid.
+	public static final int EXIT_USAGE = 2;
+
+	private static final String INVALID = "invalid";
+	private static final String USAGE = "Usage: resistor <code|value|e12|format> [input...]\n"
+			+ "With no inputs, converts one input per line from stdin until it is closed.";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private ResistorCli() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		// Raw file descriptors: System.in and System.out are synchronized and System.out
+		// flushes on every line, which the pipe mode does for itself when it is useful.
+		Reader in = new InputStreamReader(new FileInputStream(FileDescriptor.in),
+				StandardCharsets.UTF_8);
+		Writer out = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+				StandardCharsets.UTF_8);
+		System.exit(run(args, in, out));
+	}
+
+	/**
+	 * Runs one command.
+	 * @param args		The conversion's path segment, then its inputs, if any.
+	 * @param in		Read for inputs when args has none.
+	 * @param out		Receives the results, one per line; it is flushed, not closed.
+	 * @return			The exit status: EXIT_OK, EXIT_INVALID or EXIT_USAGE.
+	 * @throws IOException	If in or out fails.
+	 */
+	public static int run(String[] args, Reader in, Writer out) throws IOException {
+		Conversion conversion = args.length == 0 ? null : Conversion.fromPath(args[0]);
+		if (conversion == null) {
+			out.write(USAGE);
+			out.write('\n');
+			out.flush();
+			return EXIT_USAGE;
+		}
+
+		BufferedWriter writer = new BufferedWriter(out, BUFFER_SIZE);
+		int status;
+		if (args.length > 1) {
+			status = EXIT_OK;
+			for (int i = 1; i < args.length; i++) {
+				if (!convert(conversion, args[i], writer)) {
+					status = EXIT_INVALID;
+				}
+			}
+		}
+
+		else {
+			status = pipe(conversion, new BufferedReader(in, BUFFER_SIZE), writer);
+		}
+		writer.flush();
+		return status;
+	}
+
+	private static int pipe(Conversion conversion, BufferedReader in, BufferedWriter out)
+			throws IOException {
+		int status = EXIT_OK;
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!convert(conversion, line, out)) {
+				status = EXIT_INVALID;
+			}
+
+			// ready() only looks at what is already buffered or available without blocking.
+			if (!in.ready()) {
+				out.flush();
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * Writes the result of one input and a line break.
+	 * @return		FALSE if the input was invalid.
+	 */
+	private static boolean convert(Conversion conversion, String input, Writer out)
+			throws IOException {
+		String result = conversion.apply(input.trim());
+		out.write(result == null ? INVALID : result);
+		out.write('\n');
+		return result != null;
+	}
+}
@@ -0,0 +1,310 @@
+/**
+ * A Flow.Processor that decodes a stream of resistance strings or packed codes into
+ * DecodedValues.
+ *
+ * Inputs are decoded in batches of up to batchSize on the given executor, with at most
+ * parallelism batches in flight; results are delivered in input order. The processor never
+ * holds more than batchSize * (parallelism + 1) items: it only requests more from upstream as
+ * results are delivered downstream, so a slow subscriber slows the publisher instead of
+ * growing a buffer.
+ *
+ * Thread-safety: follows the java.util.concurrent.Flow rules; signals to the subscriber are
+ * never concurrent.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.flow;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class ConversionProcessor<T> implements Flow.Processor<T, DecodedValue> {
+
+	private final Function<? super T, DecodedValue> decoder;
+	private final Executor executor;
+	private final int batchSize;
+	private final int parallelism;
+	private final long capacity;
+
+	// Written by upstream signals, read by the drain loop.
+	private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<T>();
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicInteger wip = new AtomicInteger();
+	private volatile Flow.Subscription upstream;
+	private volatile Flow.Subscriber<? super DecodedValue> downstream;
+	private volatile boolean upstreamDone;
+	private volatile Throwable error;
+	private volatile boolean cancelled;
+	private volatile Throwable failure; // Ends the stream at once, ie. a bad request(n).
+
+	// Only touched by the drain loop.
+	private final ArrayDeque<CompletableFuture<DecodedValue[]>> inFlight =
+			new ArrayDeque<CompletableFuture<DecodedValue[]>>();
+	private DecodedValue[] current;
+	private int currentIndex;
+	private long requested;
+	private long emitted;
+	private boolean terminated;
+
+	/**
+	 * Creates a processor for resistance strings, ie. "4.7k".
+	 */
+	public static ConversionProcessor<String> forStrings(Executor executor, int batchSize,
+			int parallelism) {
+		return new ConversionProcessor<String>(DecodedValue::fromString, executor, batchSize,
+				parallelism);
+	}
+
+	/**
+	 * Creates a processor for packed codes (see ResistorCode).
+	 */
+	public static ConversionProcessor<Integer> forCodes(Executor executor, int batchSize,
+			int parallelism) {
+		return new ConversionProcessor<Integer>(DecodedValue::fromCode, executor, batchSize,
+				parallelism);
+	}
+
+	/**
+	 * @param decoder		Decodes one input; must not throw.
+	 * @param executor		Runs the batch decodes.
+	 * @param batchSize		Maximum inputs decoded per task.
+	 * @param parallelism	Maximum batches decoded at once.
+	 */
+	public ConversionProcessor(Function<? super T, DecodedValue> decoder, Executor executor,
+			int batchSize, int parallelism) {
+		if (batchSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("batchSize and parallelism must be positive");
+		}
+
+		this.decoder = decoder;
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+		capacity = (long) batchSize * (parallelism + 1);
+	}
+
+	/**
+	 * The most items this processor holds at once.
+	 * @return		batchSize * (parallelism + 1)
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (upstream != null) {
+			subscription.cancel();
+			return;
+		}
+
+		upstream = subscription;
+		drain();
+	}
+
+	@Override
+	public void onNext(T item) {
+		pending.offer(item);
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		error = throwable;
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super DecodedValue> subscriber) {
+		if (downstream != null) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("only one subscriber is supported"));
+			return;
+		}
+
+		downstream = subscriber;
+		subscriber.onSubscribe(new Flow.Subscription() {
+
+			@Override
+			public void request(long n) {
+				if (n <= 0) {
+					failure = new IllegalArgumentException("non-positive request: " + n);
+				}
+
+				else {
+					addDemand(n);
+				}
+				drain();
+			}
+
+			@Override
+			public void cancel() {
+				cancelled = true;
+				Flow.Subscription s = upstream;
+				if (s != null) {
+					s.cancel();
+				}
+			}
+		});
+		drain();
+	}
+
+	private void addDemand(long n) {
+		for (;;) {
+			long d = demand.get();
+			long next = d + n < 0 ? Long.MAX_VALUE : d + n;
+			if (demand.compareAndSet(d, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Delivers ready results, starts batches and requests more input. Whichever thread gets
+	 * here first does the work for every signal that arrives meanwhile.
+	 */
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+		do {
+			Flow.Subscriber<? super DecodedValue> subscriber = downstream;
+			Flow.Subscription subscription = upstream;
+
+			if (cancelled) {
+				pending.clear();
+				inFlight.clear();
+				current = null;
+			}
+
+			else if (failure != null && subscriber != null && !terminated) {
+				terminated = true;
+				pending.clear();
+				inFlight.clear();
+				current = null;
+				if (subscription != null) {
+					subscription.cancel();
+				}
+				subscriber.onError(failure);
+			}
+
+			else if (subscriber != null && subscription != null && !terminated) {
+				emit(subscriber);
+				if (failure != null) {
+					continue; // A batch failed; report it on the next pass.
+				}
+				startBatches();
+
+				long want = capacity - (requested - emitted);
+				if (!upstreamDone && want > 0 && (want >= batchSize || requested == emitted)) {
+					requested += want;
+					subscription.request(want);
+				}
+
+				if (upstreamDone && pending.isEmpty() && inFlight.isEmpty() && current == null) {
+					terminated = true;
+					if (error != null) {
+						subscriber.onError(error);
+					}
+
+					else {
+						subscriber.onComplete();
+					}
+				}
+			}
+
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void emit(Flow.Subscriber<? super DecodedValue> subscriber) {
+		while (demand.get() > 0 && !cancelled) {
+			if (current != null && currentIndex < current.length) {
+				DecodedValue value = current[currentIndex];
+				current[currentIndex++] = null;
+				emitted++;
+				if (demand.get() != Long.MAX_VALUE) {
+					demand.decrementAndGet();
+				}
+				subscriber.onNext(value);
+				continue;
+			}
+
+			current = null;
+			CompletableFuture<DecodedValue[]> head = inFlight.peek();
+			if (head == null || !head.isDone()) {
+				return;
+			}
+
+			if (head.isCompletedExceptionally()) {
+				failure = head.handle((result, e) -> e.getCause() != null ? e.getCause() : e)
+						.join();
+				return;
+			}
+
+			current = head.join();
+			currentIndex = 0;
+			inFlight.poll();
+		}
+
+		if (current != null && currentIndex == current.length) {
+			current = null;
+		}
+	}
+
+	/**
+	 * Hands full batches (or the remainder, at the end of the stream or when nothing else is
+	 * coming for the subscriber) to the executor.
+	 */
+	private void startBatches() {
+		while (inFlight.size() < parallelism && !pending.isEmpty()) {
+			boolean idle = inFlight.isEmpty() && current == null && demand.get() > 0;
+			if (pending.size() < batchSize && !upstreamDone && !idle) {
+				return;
+			}
+
+			final Object[] batch = new Object[Math.min(batchSize, pending.size())];
+			for (int i = 0; i < batch.length; i++) {
+				batch[i] = pending.poll();
+			}
+
+			CompletableFuture<DecodedValue[]> future = CompletableFuture.supplyAsync(
+					() -> decode(batch), executor);
+			inFlight.offer(future);
+			future.whenComplete((result, e) -> drain());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private DecodedValue[] decode(Object[] batch) {
+		DecodedValue[] results = new DecodedValue[batch.length];
+		for (int i = 0; i < batch.length; i++) {
+			results[i] = decoder.apply((T) batch[i]);
+		}
+		return results;
+	}
+}
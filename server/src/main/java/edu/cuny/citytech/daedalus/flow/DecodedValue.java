@@ -0,0 +1,122 @@
+/**
+ * The result of decoding one resistance value or packed code: whether it is a valid 3 band code
+ * and, if it is, its digits, exponent, bands and E12 status.
+ *
+ * Thread-safety: immutable.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.flow;
+
+import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.ResistorTables;
+
+public final class DecodedValue {
+
+	private final Object input;
+	private final int code;
+
+	private DecodedValue(Object input, int code) {
+		this.input = input;
+		this.code = code;
+	}
+
+	/**
+	 * Decodes a resistance string, ie. "4.7k".
+	 * @param value		The resistance string.
+	 * @return			The decoded value; invalid if value is not a valid 3 band resistance.
+	 */
+	public static DecodedValue fromString(String value) {
+		return new DecodedValue(value, Resistance.toCode(value));
+	}
+
+	/**
+	 * Decodes a packed code (see ResistorCode).
+	 * @param code		The packed code.
+	 * @return			The decoded value; invalid if code is not a valid 3 band code.
+	 */
+	public static DecodedValue fromCode(int code) {
+		boolean valid = (code & ~0xFFFF) == 0 && ResistorCode.getMSB(code) >= 1
+				&& ResistorCode.getMSB(code) <= 9 && ResistorCode.getLSB(code) >= 0
+				&& ResistorCode.getLSB(code) <= 9 && ResistorCode.getMultiplier(code) <= 9
+				&& ResistorCode.getTolerance(code) <= 9; // Bands are never below -2 (silver).
+		return new DecodedValue(code, valid ? code : -1);
+	}
+
+	/**
+	 * @return		The string or Integer this value was decoded from.
+	 */
+	public Object getInput() {
+		return input;
+	}
+
+	/**
+	 * @return		TRUE if the input is a valid 3 band code.
+	 */
+	public boolean isValid() {
+		return code != -1;
+	}
+
+	/**
+	 * @return		The packed code, or -1 if the input is not valid.
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * @return		The first significant digit.
+	 */
+	public int getFirstDigit() {
+		checkValid();
+		return ResistorCode.getMSB(code);
+	}
+
+	/**
+	 * @return		The second significant digit.
+	 */
+	public int getSecondDigit() {
+		checkValid();
+		return ResistorCode.getLSB(code);
+	}
+
+	/**
+	 * @return		The power of ten the significant digits are multiplied by.
+	 */
+	public int getExponent() {
+		checkValid();
+		return ResistorCode.getMultiplier(code);
+	}
+
+	/**
+	 * @return		The four bands, most significant first.
+	 */
+	public ResistorColor[] getBands() {
+		checkValid();
+		return new ResistorColor[] { ResistorColor.fromValue(ResistorCode.getMSB(code)),
+				ResistorColor.fromValue(ResistorCode.getLSB(code)),
+				ResistorColor.fromValue(ResistorCode.getMultiplier(code)),
+				ResistorColor.fromValue(ResistorCode.getTolerance(code)) };
+	}
+
+	/**
+	 * @return		TRUE if the significant digits are a standard E12 value.
+	 */
+	public boolean isStandard() {
+		return isValid() && ResistorTables.isStandard(code);
+	}
+
+	private void checkValid() {
+		if (code == -1) {
+			throw new IllegalStateException("not a valid code: " + input);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return isValid() ? input + " " + ResistorTables.getFormatted(code)
+				+ (isStandard() ? " E12" : "") : input + " invalid";
+	}
+}
@@ -0,0 +1,323 @@
+/**
+ * Renders the picture of a resistor with its color bands, as PNG or SVG, without a display.
+ *
+ * The bands are placed with BandGeometry and colored from the ResistorColor palette, exactly
+ * as ResistorView paints them, on the same body image the app uses. The body image is decoded
+ * once and shared; each PNG starts from a copy of its pixels.
+ *
+ * An image depends only on its code and format, so rendered images are kept in a cache
+ * addressed by the two; rendering the same code again (in one batch or across requests)
+ * returns the stored bytes. Batches are encoded in parallel.
+ *
+ * Thread-safety: safe for any number of threads. Returned arrays are shared and must not be
+ * modified.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import edu.cuny.citytech.daedalus.utils.BandGeometry;
+import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.ResistorTables;
+
+public class BandRenderer {
+
+	/**
+	 * The image formats.
+	 */
+	public enum Format {
+		PNG("png", "image/png"), SVG("svg", "image/svg+xml");
+
+		private final String extension;
+		private final String contentType;
+
+		Format(String extension, String contentType) {
+			this.extension = extension;
+			this.contentType = contentType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * Returns the format with a file extension, ie. "png".
+		 * @return		The format or null if there is none.
+		 */
+		public static Format fromExtension(String extension) {
+			for (Format format : values()) {
+				if (format.extension.equals(extension)) {
+					return format;
+				}
+			}
+			return null;
+		}
+	}
+
+	/** The body image, copied onto the classpath from res/drawable-nodpi. */
+	public static final String BODY_RESOURCE = "/resistor_blank_moderate_crop.png";
+
+	private static final int DEFAULT_MAX_CACHED = 8192;
+
+	private final BufferedImage body;
+	private final String bodyDataUri;
+	private final Executor executor;
+	private final int maxCached;
+	private final ConcurrentHashMap<Integer, CompletableFuture<byte[]>> cache =
+			new ConcurrentHashMap<Integer, CompletableFuture<byte[]>>();
+
+	static {
+		ImageIO.setUseCache(false); // Encode in memory, not through temporary files.
+	}
+
+	/**
+	 * Creates a renderer for the body image on the classpath, encoding batches on the common
+	 * fork/join pool.
+	 * @throws IOException	If the body image can not be read.
+	 */
+	public BandRenderer() throws IOException {
+		this(readBody(), ForkJoinPool.commonPool(), DEFAULT_MAX_CACHED);
+	}
+
+	/**
+	 * @param bodyPng		The body image as PNG; BG_WIDTH x BG_HEIGHT as laid out by
+	 * 						BandGeometry, or any size with the same proportions.
+	 * @param executor		Runs the encodes of a batch.
+	 * @param maxCached		Maximum number of images kept; beyond it new images are encoded
+	 * 						but not kept.
+	 * @throws IOException	If bodyPng is not a readable image.
+	 */
+	public BandRenderer(byte[] bodyPng, Executor executor, int maxCached) throws IOException {
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bodyPng));
+		if (decoded == null) {
+			throw new IOException("not an image");
+		}
+
+		// Converted to ARGB once, so band colors are never quantized to the PNG's palette.
+		body = new BufferedImage(decoded.getWidth(), decoded.getHeight(),
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = body.createGraphics();
+		g.drawImage(decoded, 0, 0, null);
+		g.dispose();
+
+		bodyDataUri = "data:image/png;base64," + Base64.getEncoder().encodeToString(bodyPng);
+		this.executor = executor;
+		this.maxCached = maxCached;
+	}
+
+	private static byte[] readBody() throws IOException {
+		InputStream in = BandRenderer.class.getResourceAsStream(BODY_RESOURCE);
+		if (in == null) {
+			throw new IOException(BODY_RESOURCE + " is not on the classpath");
+		}
+
+		try {
+			return in.readAllBytes();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Renders one code.
+	 * @param code		A packed code (see ResistorCode).
+	 * @param format	The image format.
+	 * @return			The encoded image.
+	 */
+	public byte[] render(int code, Format format) {
+		return submit(code, format, Runnable::run).join();
+	}
+
+	/**
+	 * Renders many codes, encoding them in parallel on this renderer's executor.
+	 * @param codes		Packed codes; repeats are rendered once.
+	 * @param format	The image format.
+	 * @return			The encoded images, in the order of codes.
+	 */
+	public List<byte[]> renderAll(int[] codes, Format format) {
+		List<CompletableFuture<byte[]>> futures = new ArrayList<CompletableFuture<byte[]>>(
+				codes.length);
+		for (int code : codes) {
+			futures.add(submit(code, format, executor));
+		}
+
+		List<byte[]> images = new ArrayList<byte[]>(codes.length);
+		for (CompletableFuture<byte[]> future : futures) {
+			images.add(future.join());
+		}
+		return images;
+	}
+
+	/**
+	 * @return		Number of images in the cache.
+	 */
+	public int getCachedCount() {
+		return cache.size();
+	}
+
+	private CompletableFuture<byte[]> submit(int code, Format format, Executor on) {
+		checkCode(code);
+		Integer key = format.ordinal() << 16 | code;
+		CompletableFuture<byte[]> future = cache.get(key);
+		if (future != null) {
+			return future;
+		}
+
+		CompletableFuture<byte[]> created = new CompletableFuture<byte[]>();
+		if (cache.size() < maxCached) {
+			future = cache.putIfAbsent(key, created);
+			if (future != null) {
+				return future; // Another thread is already rendering it.
+			}
+		}
+
+		on.execute(() -> {
+			try {
+				created.complete(encode(code, format));
+			}
+			catch (RuntimeException e) {
+				cache.remove(key, created);
+				created.completeExceptionally(e);
+			}
+		});
+		return created;
+	}
+
+	private static void checkCode(int code) {
+		boolean valid = (code & ~0xFFFF) == 0;
+		for (int band = 0; band < BandGeometry.BANDS && valid; band++) {
+			valid = BandGeometry.getBandValue(code, band) <= 9;
+		}
+
+		if (!valid) {
+			throw new IllegalArgumentException("not a valid code: " + Integer.toHexString(code));
+		}
+	}
+
+	private byte[] encode(int code, Format format) {
+		return format == Format.PNG ? encodePng(code) : encodeSvg(code);
+	}
+
+	private byte[] encodePng(int code) {
+		BufferedImage image = new BufferedImage(body.getColorModel(), body.copyData(null),
+				body.isAlphaPremultiplied(), null);
+		Graphics2D g = image.createGraphics();
+		int[] bounds = new int[4];
+
+		for (int band = 0; band < BandGeometry.BANDS; band++) {
+			BandGeometry.scale(band, image.getWidth(), image.getHeight(), bounds);
+			g.setColor(new Color(getBandColor(code, band), true));
+			g.fillRect(bounds[0], bounds[1], bounds[2] - bounds[0], bounds[3] - bounds[1]);
+		}
+		g.dispose();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+		try {
+			ImageIO.write(image, "png", out);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e); // Not expected when writing to memory.
+		}
+		return out.toByteArray();
+	}
+
+	private byte[] encodeSvg(int code) {
+		int width = BandGeometry.BG_WIDTH;
+		int height = BandGeometry.BG_HEIGHT;
+		StringBuilder svg = new StringBuilder(bodyDataUri.length() + 512);
+		svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+				.append("\" height=\"").append(height).append("\" viewBox=\"0 0 ").append(width)
+				.append(' ').append(height).append("\">\n");
+		svg.append("<image width=\"").append(width).append("\" height=\"").append(height)
+				.append("\" href=\"").append(bodyDataUri).append("\"/>\n");
+
+		int[] bounds = new int[4];
+		for (int band = 0; band < BandGeometry.BANDS; band++) {
+			BandGeometry.scale(band, width, height, bounds);
+			svg.append("<rect x=\"").append(bounds[0]).append("\" y=\"").append(bounds[1])
+					.append("\" width=\"").append(bounds[2] - bounds[0]).append("\" height=\"")
+					.append(bounds[3] - bounds[1]).append("\" fill=\"")
+					.append(String.format("#%06X", getBandColor(code, band) & 0xFFFFFF))
+					.append("\"/>\n");
+		}
+		svg.append("</svg>\n");
+		return svg.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int getBandColor(int code, int band) {
+		return ResistorColor.fromValue(BandGeometry.getBandValue(code, band)).getColor();
+	}
+
+	/**
+	 * Renders one image per resistance read from standard input (one per line) into a
+	 * directory, named by the formatted value, ie. "4.7k.png".
+	 * @param args		png or svg, and the output directory.
+	 */
+	public static void main(String[] args) throws IOException {
+		Format format = args.length == 2 ? Format.fromExtension(args[0]) : null;
+		if (format == null) {
+			System.err.println("Usage: BandRenderer <png|svg> <output directory> < values");
+			System.exit(2);
+		}
+
+		File directory = new File(args[1]);
+		directory.mkdirs();
+		List<Integer> codes = new ArrayList<Integer>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in,
+				StandardCharsets.UTF_8));
+		String line;
+		while ((line = in.readLine()) != null) {
+			int code = Resistance.toCode(line.trim());
+			if (code == -1) {
+				System.err.println("skipped invalid value: " + line);
+			}
+
+			else {
+				codes.add(code);
+			}
+		}
+
+		int[] array = new int[codes.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = codes.get(i);
+		}
+
+		long start = System.nanoTime();
+		List<byte[]> images = new BandRenderer().renderAll(array, format);
+		for (int i = 0; i < array.length; i++) {
+			Files.write(new File(directory, ResistorTables.getFormatted(array[i]) + "."
+					+ format.getExtension()).toPath(), images.get(i));
+		}
+		System.out.printf("%d images in %.1f ms%n", array.length,
+				(System.nanoTime() - start) / 1e6);
+	}
+}
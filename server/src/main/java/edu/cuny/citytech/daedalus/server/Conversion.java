@@ -0,0 +1,134 @@
+/**
+ * The conversions offered by the service. Each one maps an input string to a result string, or
+ * to null if the input is not valid for that conversion.
+ *
+ * Thread-safety: stateless; safe to call from any number of threads.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.server;
+
+import java.util.Locale;
+
+import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.ResistorTables;
+
+public enum Conversion {
+
+	/** Resistance value to bands, ie. "4.7k" to "yellow-violet-red-gold". */
+	CODE("code") {
+		@Override
+		public String apply(String input) {
+			int code = Resistance.toCode(input);
+			return code == -1 ? null : toBands(code);
+		}
+	},
+
+	/** Bands to resistance value, ie. "yellow-violet-red" to "4.7k". */
+	VALUE("value") {
+		@Override
+		public String apply(String input) {
+			int code = fromBands(input);
+			return code == -1 ? null : ResistorTables.getFormatted(code);
+		}
+	},
+
+	/** Whether a resistance value is a standard E12 value, ie. "4.7k" to "true". */
+	E12("e12") {
+		@Override
+		public String apply(String input) {
+			return Resistance.isValid(input) ? String.valueOf(Resistance.isStandard(input)) : null;
+		}
+	},
+
+	/** Resistance value to its canonical engineering notation, ie. "4700" to "4.7k". */
+	FORMAT("format") {
+		@Override
+		public String apply(String input) {
+			int code = Resistance.toCode(input);
+			return code == -1 ? null : ResistorTables.getFormatted(code);
+		}
+	};
+
+	private static final char BAND_SEPARATOR = '-';
+
+	private final String path;
+
+	Conversion(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * The name of this conversion in request paths.
+	 * @return		The path segment, ie. "code".
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Converts one input.
+	 * @param input		The input string.
+	 * @return			The result or null if input is not valid.
+	 */
+	public abstract String apply(String input);
+
+	/**
+	 * Finds a conversion by its path segment.
+	 * @param path		The path segment.
+	 * @return			The conversion or null if there is none.
+	 */
+	public static Conversion fromPath(String path) {
+		for (Conversion conversion : values()) {
+			if (conversion.path.equals(path)) {
+				return conversion;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Formats the four bands of a code, ie. "yellow-violet-red-gold".
+	 */
+	static String toBands(int code) {
+		return new StringBuilder(32).append(name(ResistorCode.getMSB(code)))
+				.append(BAND_SEPARATOR).append(name(ResistorCode.getLSB(code)))
+				.append(BAND_SEPARATOR).append(name(ResistorCode.getMultiplier(code)))
+				.append(BAND_SEPARATOR).append(name(ResistorCode.getTolerance(code))).toString();
+	}
+
+	private static String name(int value) {
+		return ResistorColor.fromValue(value).name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Parses 3 or 4 band names separated by '-', ie. "yellow-violet-red".
+	 * @return		The packed code or -1 if the bands are not a valid code.
+	 */
+	static int fromBands(String bands) {
+		String[] names = bands.trim().split(String.valueOf(BAND_SEPARATOR));
+		if (names.length != 3 && names.length != 4) {
+			return -1;
+		}
+
+		int[] values = new int[4];
+		values[3] = ResistorColor.GOLD.getValue();
+		for (int i = 0; i < names.length; i++) {
+			try {
+				values[i] = ResistorColor.valueOf(names[i].trim().toUpperCase(Locale.ROOT))
+						.getValue();
+			}
+			catch (IllegalArgumentException e) {
+				return -1;
+			}
+		}
+
+		// The significant digit bands can not be gold or silver, and the first can not be black.
+		if (values[0] < 1 || values[1] < 0) {
+			return -1;
+		}
+		return ResistorCode.pack(values[0], values[1], values[2], values[3]);
+	}
+}
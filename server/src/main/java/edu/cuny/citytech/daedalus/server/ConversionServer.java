@@ -0,0 +1,295 @@
+/**
+ * A small embeddable HTTP service for resistor color code conversions, built on the JDK's
+ * HttpServer. Requests are handled on virtual threads when the runtime has them (Java 21+)
+ * and on a cached thread pool otherwise.
+ *
+ * Single conversions:
+ *
+ * 		GET /code?q=4.7k			yellow-violet-red-gold
+ * 		GET /value?q=yellow-violet-red		4.7k
+ * 		GET /e12?q=4.7k				true
+ * 		GET /format?q=4700			4.7k
+ *
+ * Invalid input answers 422. Batch conversions take one input per line in the request body and
+ * stream back one "input<TAB>result" line per input, as the inputs are read, so the size of a
+ * batch is not limited by memory. Invalid inputs get the result "invalid".
+ *
+ * 		POST /batch/code, /batch/value, /batch/e12, /batch/format
+ *
+ * Band images (see BandRenderer):
+ *
+ * 		GET /image.png?q=4.7k, /image.svg?q=4.7k
+ *
+ */
+
+package edu.cuny.citytech.daedalus.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.cuny.citytech.daedalus.render.BandRenderer;
+import edu.cuny.citytech.daedalus.utils.Resistance;
+
+public class ConversionServer {
+
+	public static final int DEFAULT_PORT = 8080;
+
+	private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+	private static final String BATCH_PREFIX = "/batch/";
+	private static final String IMAGE_PREFIX = "/image.";
+	private static final String QUERY_PARAMETER = "q=";
+	private static final String INVALID = "invalid";
+	private static final int BACKLOG = 1024;
+	private static final int FLUSH_EVERY = 256; // Lines per chunk of a streamed batch.
+	private static final int STATUS_OK = 200;
+	private static final int STATUS_BAD_REQUEST = 400;
+	private static final int STATUS_NOT_FOUND = 404;
+	private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+	private static final int STATUS_UNPROCESSABLE = 422;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final BandRenderer renderer;
+
+	/**
+	 * Creates a server bound to address. Call start() to begin serving.
+	 * @param address		Address to bind to; port 0 picks a free port.
+	 * @throws IOException	If the address can not be bound or the body image is missing.
+	 */
+	public ConversionServer(InetSocketAddress address) throws IOException {
+		renderer = new BandRenderer();
+		server = HttpServer.create(address, BACKLOG);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					route(exchange);
+				}
+				finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Starts serving requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server, giving in-flight requests up to delaySeconds to finish.
+	 * @param delaySeconds		Maximum time to wait for in-flight requests.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdown();
+	}
+
+	/**
+	 * The address the server is bound to, including the port picked for port 0.
+	 * @return		The bound address.
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * One virtual thread per request where available; every request blocks only on its own
+	 * socket, so there is no need to size a pool.
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	private void route(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String method = exchange.getRequestMethod();
+
+		if (path.startsWith(BATCH_PREFIX)) {
+			Conversion conversion = Conversion.fromPath(path.substring(BATCH_PREFIX.length()));
+			if (conversion == null) {
+				respond(exchange, STATUS_NOT_FOUND, "unknown conversion");
+			}
+
+			else if (!"POST".equals(method)) {
+				respond(exchange, STATUS_METHOD_NOT_ALLOWED, "use POST");
+			}
+
+			else {
+				batch(exchange, conversion);
+			}
+		}
+
+		else if (path.startsWith(IMAGE_PREFIX)) {
+			BandRenderer.Format format = BandRenderer.Format.fromExtension(
+					path.substring(IMAGE_PREFIX.length()));
+			if (format == null) {
+				respond(exchange, STATUS_NOT_FOUND, "unknown image format");
+			}
+
+			else if (!"GET".equals(method)) {
+				respond(exchange, STATUS_METHOD_NOT_ALLOWED, "use GET");
+			}
+
+			else {
+				image(exchange, format);
+			}
+		}
+
+		else {
+			Conversion conversion = Conversion.fromPath(path.substring(1));
+			if (conversion == null) {
+				respond(exchange, STATUS_NOT_FOUND, "unknown conversion");
+			}
+
+			else if (!"GET".equals(method)) {
+				respond(exchange, STATUS_METHOD_NOT_ALLOWED, "use GET");
+			}
+
+			else {
+				single(exchange, conversion);
+			}
+		}
+	}
+
+	private void single(HttpExchange exchange, Conversion conversion) throws IOException {
+		String input = getQueryParameter(exchange.getRequestURI().getRawQuery());
+		if (input == null) {
+			respond(exchange, STATUS_BAD_REQUEST, "missing q");
+			return;
+		}
+
+		String result = conversion.apply(input);
+		if (result == null) {
+			respond(exchange, STATUS_UNPROCESSABLE, INVALID);
+		}
+
+		else {
+			respond(exchange, STATUS_OK, result);
+		}
+	}
+
+	private void image(HttpExchange exchange, BandRenderer.Format format) throws IOException {
+		String input = getQueryParameter(exchange.getRequestURI().getRawQuery());
+		if (input == null) {
+			respond(exchange, STATUS_BAD_REQUEST, "missing q");
+			return;
+		}
+
+		int code = Resistance.toCode(input);
+		if (code == -1) {
+			respond(exchange, STATUS_UNPROCESSABLE, INVALID);
+			return;
+		}
+
+		byte[] image = renderer.render(code, format);
+		exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+		exchange.sendResponseHeaders(STATUS_OK, image.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(image);
+		out.close();
+	}
+
+	/**
+	 * Converts the request body line by line, streaming the results back as a chunked response.
+	 */
+	private void batch(HttpExchange exchange, Conversion conversion) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(STATUS_OK, 0);
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+				StandardCharsets.UTF_8));
+		Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+				StandardCharsets.UTF_8));
+		String line;
+		int lines = 0;
+
+		while ((line = in.readLine()) != null) {
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			String result = conversion.apply(line);
+			out.write(line);
+			out.write('\t');
+			out.write(result == null ? INVALID : result);
+			out.write('\n');
+
+			if (++lines % FLUSH_EVERY == 0) {
+				out.flush();
+			}
+		}
+		out.close();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body)
+			throws IOException {
+		byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	/**
+	 * Returns the decoded value of the q parameter, or null if there is none.
+	 */
+	static String getQueryParameter(String rawQuery) {
+		if (rawQuery == null) {
+			return null;
+		}
+
+		for (String parameter : rawQuery.split("&")) {
+			if (parameter.startsWith(QUERY_PARAMETER)) {
+				return URLDecoder.decode(parameter.substring(QUERY_PARAMETER.length()),
+						StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Runs the service until the process is stopped.
+	 * @param args		Optional port (default 8080).
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final ConversionServer server = new ConversionServer(new InetSocketAddress(port));
+		server.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				server.stop(1);
+			}
+		}));
+		System.out.println("Listening on " + server.getAddress());
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * A closed-loop load generator for ConversionServer. Each client thread sends single conversion
+ * requests back to back for a fixed time; at the end the requests per second and latency
+ * percentiles are printed.
+ *
+ * Usage: LoadTest [base url] [client threads] [seconds]
+ *
+ */
+
+package edu.cuny.citytech.daedalus.server;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+public class LoadTest {
+
+	private static final String[] VALUES = { "10k", "4.7k", "100Ω", "2.2M", "470", "0.47",
+			"33k", "1.5kΩ", "68", "8.2M", "12", "not valid" };
+
+	public static void main(String[] args) throws Exception {
+		String base = args.length > 0 ? args[0] : "http://localhost:" + ConversionServer.DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		final URI[] uris = new URI[VALUES.length * Conversion.values().length];
+		int u = 0;
+		for (Conversion conversion : Conversion.values()) {
+			for (String value : VALUES) {
+				String input = conversion == Conversion.VALUE ? Conversion.CODE.apply(value) : value;
+				uris[u++] = URI.create(base + "/" + conversion.getPath() + "?q="
+						+ URLEncoder.encode(input == null ? value : input, StandardCharsets.UTF_8));
+			}
+		}
+
+		final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.build();
+		final long deadline = System.nanoTime() + seconds * 1000000000L;
+		final long[][] latencies = new long[threads][];
+		final int[] counts = new int[threads];
+		final int[] errors = new int[threads];
+		final CountDownLatch done = new CountDownLatch(threads);
+
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			Thread worker = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					long[] samples = new long[1 << 16];
+					int n = 0;
+					int i = id;
+					try {
+						while (System.nanoTime() < deadline) {
+							HttpRequest request = HttpRequest.newBuilder(uris[i++ % uris.length])
+									.GET().build();
+							long begin = System.nanoTime();
+							try {
+								HttpResponse<Void> response = client.send(request,
+										HttpResponse.BodyHandlers.discarding());
+								if (response.statusCode() != 200 && response.statusCode() != 422) {
+									errors[id]++;
+								}
+							}
+							catch (Exception e) {
+								errors[id]++;
+							}
+
+							if (n == samples.length) {
+								samples = Arrays.copyOf(samples, n * 2);
+							}
+							samples[n++] = System.nanoTime() - begin;
+						}
+					}
+					finally {
+						latencies[id] = samples;
+						counts[id] = n;
+						done.countDown();
+					}
+				}
+			}, "load-" + t);
+			worker.start();
+		}
+		done.await();
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		int total = 0;
+		int failed = 0;
+		for (int t = 0; t < threads; t++) {
+			total += counts[t];
+			failed += errors[t];
+		}
+
+		long[] all = new long[total];
+		int offset = 0;
+		for (int t = 0; t < threads; t++) {
+			System.arraycopy(latencies[t], 0, all, offset, counts[t]);
+			offset += counts[t];
+		}
+		Arrays.sort(all);
+
+		System.out.printf("%d requests in %.1fs with %d clients, %d errors%n", total, elapsed,
+				threads, failed);
+		System.out.printf("requests/s: %.0f%n", total / elapsed);
+		System.out.printf("latency ms: p50 %.3f  p99 %.3f  max %.3f%n", percentile(all, 0.50),
+				percentile(all, 0.99), total == 0 ? 0 : all[total - 1] / 1e6);
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}
@@ -0,0 +1,92 @@
+package edu.cuny.citytech.daedalus.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class ResistorCliTest {
+
+	/** Counts its flushes. */
+	private static class CountingWriter extends StringWriter {
+		int flushes;
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+	}
+
+	/** A reader that, like a terminal, hands over one line at a time as it is typed. */
+	private static class InteractiveReader extends StringReader {
+
+		InteractiveReader(String s) {
+			super(s);
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			int n = 0;
+			while (n < length) {
+				int c = read();
+				if (c == -1) {
+					return n == 0 ? -1 : n;
+				}
+				buffer[offset + n++] = (char) c;
+				if (c == '\n') {
+					break;
+				}
+			}
+			return n;
+		}
+
+		@Override
+		public boolean ready() {
+			return false;
+		}
+	}
+
+	@Test
+	public void convertsArguments() throws IOException {
+		StringWriter out = new StringWriter();
+		assertEquals(ResistorCli.EXIT_OK, ResistorCli.run(new String[] {"code", "4.7k", "220"},
+				new StringReader(""), out));
+		assertEquals("yellow-violet-red-gold\nred-red-brown-gold\n", out.toString());
+	}
+
+	@Test
+	public void invalidInputsAnswerInPlace() throws IOException {
+		StringWriter out = new StringWriter();
+		assertEquals(ResistorCli.EXIT_INVALID, ResistorCli.run(new String[] {"format"},
+				new StringReader("4700\nabc\n\n 10k \n"), out));
+		assertEquals("4.7k\ninvalid\ninvalid\n10k\n", out.toString());
+	}
+
+	@Test
+	public void flushesOnlyWhenNoInputIsWaiting() throws IOException {
+		String input = "4.7k\n1k\n2.2M\n";
+		CountingWriter batch = new CountingWriter();
+		ResistorCli.run(new String[] {"e12"}, new StringReader(input), batch);
+		assertEquals("true\ntrue\ntrue\n", batch.toString());
+		assertEquals(1, batch.flushes);
+
+		CountingWriter interactive = new CountingWriter();
+		ResistorCli.run(new String[] {"e12"}, new InteractiveReader(input), interactive);
+		assertEquals("true\ntrue\ntrue\n", interactive.toString());
+		assertEquals(4, interactive.flushes);
+	}
+
+	@Test
+	public void usage() throws IOException {
+		StringWriter out = new StringWriter();
+		Reader in = new StringReader("4.7k\n");
+		assertEquals(ResistorCli.EXIT_USAGE, ResistorCli.run(new String[0], in, out));
+		assertEquals(ResistorCli.EXIT_USAGE, ResistorCli.run(new String[] {"ohms"}, in, out));
+		assertTrue(out.toString().startsWith("Usage:"));
+	}
+}
@@ -0,0 +1,113 @@
+package edu.cuny.citytech.daedalus.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+
+public class ConversionProcessorTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void decodesInOrderWithinCapacity() throws Exception {
+		final int count = 10000;
+		final ConversionProcessor<String> processor = ConversionProcessor.forStrings(executor, 64, 3);
+		final AtomicLong outstanding = new AtomicLong();
+		final AtomicLong maxOutstanding = new AtomicLong();
+
+		// A publisher that tracks how far ahead of the subscriber the processor asks it to be.
+		processor.onSubscribe(new Flow.Subscription() {
+			private int next;
+
+			@Override
+			public void request(long n) {
+				long now = outstanding.addAndGet(n);
+				maxOutstanding.accumulateAndGet(now, Math::max);
+				for (long i = 0; i < n && next < count; i++) {
+					outstanding.decrementAndGet();
+					processor.onNext(next++ % 2 == 0 ? "4.7k" : "abc");
+				}
+				if (next == count) {
+					next++;
+					processor.onComplete();
+				}
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+
+		final List<DecodedValue> received = new ArrayList<DecodedValue>();
+		final CountDownLatch done = new CountDownLatch(1);
+		processor.subscribe(new Flow.Subscriber<DecodedValue>() {
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(Flow.Subscription s) {
+				subscription = s;
+				s.request(1);
+			}
+
+			@Override
+			public void onNext(DecodedValue item) {
+				received.add(item);
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				done.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(count, received.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i % 2 == 0, received.get(i).isValid());
+		}
+		assertEquals(ResistorColor.YELLOW, received.get(0).getBands()[0]);
+		assertEquals(ResistorColor.RED, received.get(0).getBands()[2]);
+		assertTrue(received.get(0).isStandard());
+		assertFalse(received.get(1).isStandard());
+		assertTrue(maxOutstanding.get() <= processor.getCapacity());
+	}
+
+	@Test
+	public void decodesPackedCodes() {
+		DecodedValue value = DecodedValue.fromCode(ResistorCode.pack(1, 0, 3, -1));
+		assertTrue(value.isValid());
+		assertEquals(3, value.getExponent());
+		assertTrue(value.isStandard());
+		assertFalse(DecodedValue.fromCode(-5).isValid());
+		assertFalse(DecodedValue.fromCode(ResistorCode.pack(1, 0, 3, 12)).isValid());
+		assertFalse(DecodedValue.fromCode(ResistorCode.pack(1, 0, 3, 10)).isValid());
+		assertEquals(ResistorColor.WHITE,
+				DecodedValue.fromCode(ResistorCode.pack(1, 0, 3, 9)).getBands()[3]);
+	}
+}
@@ -0,0 +1,72 @@
+package edu.cuny.citytech.daedalus.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import edu.cuny.citytech.daedalus.utils.BandGeometry;
+import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+
+public class BandRendererTest {
+
+	@Test
+	public void pngHasBandColorsOnTheBody() throws Exception {
+		BandRenderer renderer = new BandRenderer();
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+				renderer.render(Resistance.toCode("4.7k"), BandRenderer.Format.PNG)));
+
+		assertEquals(BandGeometry.BG_WIDTH, image.getWidth());
+		assertEquals(BandGeometry.BG_HEIGHT, image.getHeight());
+		assertEquals(ResistorColor.YELLOW.getColor(), center(image, BandGeometry.MSB));
+		assertEquals(ResistorColor.VIOLET.getColor(), center(image, BandGeometry.LSB));
+		assertEquals(ResistorColor.RED.getColor(), center(image, BandGeometry.MULTIPLIER));
+		assertEquals(ResistorColor.GOLD.getColor(), center(image, BandGeometry.TOLERANCE));
+	}
+
+	@Test
+	public void svgHasOneRectPerBand() throws Exception {
+		String svg = new String(new BandRenderer().render(Resistance.toCode("10k"),
+				BandRenderer.Format.SVG), StandardCharsets.UTF_8);
+		assertTrue(svg.startsWith("<svg"));
+		assertTrue(svg.contains("data:image/png;base64,"));
+		assertEquals(4, svg.split("<rect ").length - 1);
+		assertTrue(svg.contains("fill=\"#8B4513\"")); // brown
+		assertTrue(svg.contains("fill=\"#FFA500\"")); // orange
+	}
+
+	@Test
+	public void identicalCodesAreRenderedOnce() throws Exception {
+		BandRenderer renderer = new BandRenderer();
+		int a = Resistance.toCode("4.7k");
+		int b = Resistance.toCode("220");
+		List<byte[]> images = renderer.renderAll(new int[] { a, b, a, a, b },
+				BandRenderer.Format.PNG);
+
+		assertEquals(5, images.size());
+		assertSame(images.get(0), images.get(2));
+		assertSame(images.get(1), images.get(4));
+		assertSame(images.get(0), renderer.render(a, BandRenderer.Format.PNG));
+		assertEquals(2, renderer.getCachedCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidCodes() throws Exception {
+		new BandRenderer().render(-1, BandRenderer.Format.PNG);
+	}
+
+	private static int center(BufferedImage image, int band) {
+		int[] bounds = new int[4];
+		BandGeometry.scale(band, image.getWidth(), image.getHeight(), bounds);
+		return image.getRGB((bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2);
+	}
+}
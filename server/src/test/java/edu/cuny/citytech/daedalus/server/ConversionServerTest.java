@@ -0,0 +1,95 @@
+package edu.cuny.citytech.daedalus.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConversionServerTest {
+
+	private ConversionServer server;
+	private HttpClient client;
+	private String base;
+
+	@Before
+	public void start() throws Exception {
+		server = new ConversionServer(new InetSocketAddress("localhost", 0));
+		server.start();
+		client = HttpClient.newHttpClient();
+		base = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stop() {
+		server.stop(0);
+	}
+
+	@Test
+	public void singleConversions() throws Exception {
+		assertEquals("yellow-violet-red-gold", get("/code?q=4.7k", 200));
+		assertEquals("yellow-violet-red-gold", get("/code?q=" + encode("4.7kΩ"), 200));
+		assertEquals("4.7k", get("/value?q=yellow-violet-red", 200));
+		assertEquals("true", get("/e12?q=4.7k", 200));
+		assertEquals("false", get("/e12?q=4.3k", 200));
+		assertEquals("4.7k", get("/format?q=4700", 200));
+	}
+
+	@Test
+	public void invalidInput() throws Exception {
+		assertEquals("invalid", get("/code?q=abc", 422));
+		assertEquals("invalid", get("/value?q=black-violet-red", 422));
+		assertEquals("missing q", get("/code", 400));
+		assertEquals("unknown conversion", get("/nothing?q=1k", 404));
+	}
+
+	@Test
+	public void bandImages() throws Exception {
+		HttpResponse<byte[]> response = client.send(
+				HttpRequest.newBuilder(URI.create(base + "/image.png?q=4.7k")).GET().build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+		assertEquals(200, response.statusCode());
+		assertEquals("image/png", response.headers().firstValue("Content-Type").orElse(null));
+		assertEquals(0x89, response.body()[0] & 0xFF);
+
+		assertEquals("invalid", get("/image.svg?q=abc", 422));
+		assertEquals("unknown image format", get("/image.gif?q=1k", 404));
+	}
+
+	@Test
+	public void batchStreamsOneLinePerInput() throws Exception {
+		StringBuilder body = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			body.append("10k\n4.3k\nabc\n");
+			expected.append("10k\ttrue\n4.3k\tfalse\nabc\tinvalid\n");
+		}
+
+		HttpResponse<String> response = client.send(
+				HttpRequest.newBuilder(URI.create(base + "/batch/e12"))
+						.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+				HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(200, response.statusCode());
+		assertEquals(expected.toString(), response.body());
+	}
+
+	private String get(String pathAndQuery, int status) throws Exception {
+		HttpResponse<String> response = client.send(
+				HttpRequest.newBuilder(URI.create(base + pathAndQuery)).GET().build(),
+				HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		assertEquals(status, response.statusCode());
+		return response.body().trim();
+	}
+
+	private static String encode(String s) {
+		return URLEncoder.encode(s, StandardCharsets.UTF_8);
+	}
+}
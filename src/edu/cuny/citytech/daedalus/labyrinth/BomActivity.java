@@ -0,0 +1,303 @@
+/**
+ * Shows a bill of materials, one resistor value per line (the first comma, semicolon or tab
+ * separated column of a CSV is used), as a scrolling list of band strips with each value and
+ * its E12 status.
+ *
+ * Rows are recycled ViewHolders around BandStripViews, which share one body bitmap. The file
+ * is read and its values decoded on a background thread; decoding starts at the rows on screen
+ * and runs DECODE_AHEAD rows past them, so scrolling never waits on Resistance and a long list
+ * costs one String and one int per line.
+ *
+ * @author Jason Warren
+ *
+ */
+
+package edu.cuny.citytech.daedalus.labyrinth;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistorTables;
+import edu.cuny.citytech.daedalus.widgets.BandStripView;
+import android.graphics.Color;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.v7.app.ActionBarActivity;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.AbsListView.OnScrollListener;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+
+public class BomActivity extends ActionBarActivity implements OnScrollListener {
+
+	private static final String TAG = "BomActivity";
+	private static final int UNDECODED = -2;
+	private static final int DECODE_AHEAD = 200; // Rows decoded past the last visible row.
+	private static final char OMEGA = '\u03A9';
+
+	private ListView list;
+	private TextView empty;
+	private BomAdapter adapter;
+	private HandlerThread worker;
+	private Handler workerHandler;
+	private Handler uiHandler;
+
+	// Written on the UI thread, read by the worker.
+	private volatile int decodeFrom;
+	private volatile int decodeTo;
+
+	@Override
+	protected void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setContentView(R.layout.activity_bom);
+
+		list = (ListView) findViewById(R.id.bomList);
+		empty = (TextView) findViewById(R.id.bomEmpty);
+		list.setEmptyView(empty);
+		adapter = new BomAdapter(LayoutInflater.from(this));
+		list.setAdapter(adapter);
+		list.setOnScrollListener(this);
+
+		uiHandler = new Handler();
+		worker = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+		worker.start();
+		workerHandler = new Handler(worker.getLooper());
+
+		final Uri uri = getIntent().getData();
+		if (uri == null) {
+			empty.setText(R.string.bom_no_file);
+			return;
+		}
+
+		empty.setText(R.string.bom_loading);
+		workerHandler.post(new Runnable() {
+
+			@Override
+			public void run() {
+				load(uri);
+			}
+		});
+	}
+
+	@Override
+	protected void onDestroy() {
+		worker.quit();
+		super.onDestroy();
+	}
+
+	/**
+	 * Reads the values of a BOM file. Runs on the worker.
+	 * @param uri		The file.
+	 */
+	private void load(Uri uri) {
+		final List<String> lines = new ArrayList<String>();
+		try {
+			InputStream in = getContentResolver().openInputStream(uri);
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String value = firstColumn(line);
+					if (value.length() > 0) {
+						lines.add(value);
+					}
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			Log.w(TAG, "Could not read " + uri, e);
+		}
+
+		final String[] values = lines.toArray(new String[lines.size()]);
+		final int[] codes = new int[values.length];
+		Arrays.fill(codes, UNDECODED);
+
+		uiHandler.post(new Runnable() {
+
+			@Override
+			public void run() {
+				empty.setText(R.string.bom_empty);
+				adapter.setValues(values, codes);
+				requestDecode(list.getFirstVisiblePosition(), list.getChildCount());
+			}
+		});
+	}
+
+	private static String firstColumn(String line) {
+		int end = line.length();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == ',' || c == ';' || c == '\t') {
+				end = i;
+				break;
+			}
+		}
+		return line.substring(0, end).trim();
+	}
+
+	/**
+	 * Has the worker decode the rows from first to DECODE_AHEAD past the visible ones. A newer
+	 * request replaces one that has not started.
+	 */
+	private void requestDecode(int first, int visible) {
+		decodeFrom = first;
+		decodeTo = Math.min(adapter.getCount(), first + Math.max(visible, 1) + DECODE_AHEAD);
+		workerHandler.removeCallbacks(decode);
+		workerHandler.post(decode);
+	}
+
+	/**
+	 * Decodes the requested rows in the background, then has the list rebind. Writes to the
+	 * codes array are published to the UI thread by the Handler post.
+	 */
+	private final Runnable decode = new Runnable() {
+
+		@Override
+		public void run() {
+			final String[] values = adapter.values;
+			final int[] codes = adapter.codes;
+			int to = Math.min(decodeTo, codes.length);
+			boolean changed = false;
+
+			for (int i = decodeFrom; i < to; i++) {
+				if (codes[i] == UNDECODED) {
+					codes[i] = Resistance.toCode(values[i]);
+					changed = true;
+				}
+			}
+
+			if (changed) {
+				uiHandler.post(new Runnable() {
+
+					@Override
+					public void run() {
+						adapter.notifyDataSetChanged();
+					}
+				});
+			}
+		}
+	};
+
+	@Override
+	public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+			int totalItemCount) {
+		if (totalItemCount > 0) {
+			int last = firstVisibleItem + visibleItemCount;
+			if (last + DECODE_AHEAD / 2 > decodeTo || firstVisibleItem < decodeFrom) {
+				requestDecode(firstVisibleItem, visibleItemCount);
+			}
+		}
+	}
+
+	@Override
+	public void onScrollStateChanged(AbsListView view, int scrollState) {
+
+	}
+
+	/**
+	 * Holds the views of one row so binding does not search the hierarchy.
+	 */
+	private static final class ViewHolder {
+		BandStripView strip;
+		TextView value;
+		TextView status;
+	}
+
+	/**
+	 * Binds BOM lines to recycled rows.
+	 */
+	private static final class BomAdapter extends BaseAdapter {
+
+		private final LayoutInflater inflater;
+		String[] values = new String[0];
+		int[] codes = new int[0];
+
+		BomAdapter(LayoutInflater inflater) {
+			this.inflater = inflater;
+		}
+
+		void setValues(String[] newValues, int[] newCodes) {
+			values = newValues;
+			codes = newCodes;
+			notifyDataSetChanged();
+		}
+
+		@Override
+		public int getCount() {
+			return values.length;
+		}
+
+		@Override
+		public Object getItem(int position) {
+			return values[position];
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return position;
+		}
+
+		@Override
+		public View getView(int position, View convertView, ViewGroup parent) {
+			ViewHolder holder;
+			if (convertView == null) {
+				convertView = inflater.inflate(R.layout.bom_row, parent, false);
+				holder = new ViewHolder();
+				holder.strip = (BandStripView) convertView.findViewById(R.id.bomStrip);
+				holder.value = (TextView) convertView.findViewById(R.id.bomValue);
+				holder.status = (TextView) convertView.findViewById(R.id.bomStatus);
+				convertView.setTag(holder);
+			}
+
+			else {
+				holder = (ViewHolder) convertView.getTag();
+			}
+
+			int code = codes[position];
+			if (code == UNDECODED) {
+				holder.strip.setCode(-1);
+				holder.value.setText(values[position]);
+				holder.status.setText("");
+			}
+
+			else if (code == -1) {
+				holder.strip.setCode(-1);
+				holder.value.setText(values[position]);
+				holder.status.setText(R.string.bom_invalid);
+				holder.status.setTextColor(Color.RED);
+			}
+
+			else {
+				holder.strip.setCode(code);
+				holder.value.setText(ResistorTables.getFormatted(code) + OMEGA);
+				if (ResistorTables.isStandard(code)) {
+					holder.status.setText(R.string.bom_standard);
+					holder.status.setTextColor(Color.GREEN);
+				}
+
+				else {
+					holder.status.setText(R.string.bom_non_standard);
+					holder.status.setTextColor(Color.BLACK);
+				}
+			}
+			return convertView;
+		}
+	}
+}
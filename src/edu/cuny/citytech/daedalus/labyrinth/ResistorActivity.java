@@ -7,22 +7,34 @@
 
 package edu.cuny.citytech.daedalus.labyrinth;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
+import java.io.File;
+import java.io.IOException;
 
+import edu.cuny.citytech.daedalus.utils.HistoryLog;
 import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistanceValue;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.ResistorState;
+import edu.cuny.citytech.daedalus.utils.ResistorTables;
+import edu.cuny.citytech.daedalus.utils.SmdCode;
+import edu.cuny.citytech.daedalus.utils.SuggestionTrie;
+import edu.cuny.citytech.daedalus.widgets.BandStripView;
 import edu.cuny.citytech.daedalus.widgets.HeadsUpDisplay;
 import edu.cuny.citytech.daedalus.widgets.ResistorView;
-import edu.cuny.citytech.daedalus.widgets.ResistorView.ResistorColor;
 import android.support.v7.app.ActionBarActivity;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.content.Intent;
 import android.content.res.Configuration;
 import android.graphics.Color;
 import android.graphics.RectF;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -32,60 +44,231 @@ import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.View.OnTouchListener;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver.OnPreDrawListener;
 import android.view.inputmethod.EditorInfo;
 import android.widget.EditText;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.TextView.OnEditorActionListener;
 import android.widget.Toast;
 
 public class ResistorActivity extends ActionBarActivity implements
 		ResistorView.OnValueChangedListener, TextWatcher, OnClickListener,
-		OnTouchListener, OnEditorActionListener {
+		OnTouchListener, OnEditorActionListener, OnPreDrawListener {
 	
 	private enum ResistorBand{
 		MSB, LSB, MULTIPLIER, TOLERANCE
 	}
 
-	private final char OMEGA = '\u03A9';
+	/**
+	 * Where the touch gesture in progress started.
+	 */
+	private enum Gesture{
+		IDLE, ON_BAND, ON_CHOOSER
+	}
+
+	/**
+	 * The statuses shown after a change, with their text and colors.
+	 */
+	private enum Status{
+		STANDARD("Standard", Color.WHITE, Color.GREEN),
+		NON_STANDARD("Non-standard", Color.WHITE, Color.BLACK),
+		INVALID_CODE("Invalid ResistorCode", Color.WHITE, Color.RED),
+		INVALID_RESISTANCE("Invalid Resistance", Color.WHITE, Color.RED);
+
+		final String text;
+		final int textColor;
+		final int bgColor;
+
+		Status(String text, int textColor, int bgColor){
+			this.text = text;
+			this.textColor = textColor;
+			this.bgColor = bgColor;
+		}
+	}
+
 	private final char NOT_EQUAL = '\u2260';
-	private static final int MEGA = 1000000;
-	private static final int KILO = 1000;
-	private static final MathContext PRECISION = new MathContext(2);
+	private static final String TAG = "ResistorActivity";
+	private static final String STATE_TAG = "state";
+	private static final String HISTORY_FILE = "history.log";
+	private static final int PICK_BOM = 1;
 	private ResistorView resistor;
 	private EditText msg;
 	private HeadsUpDisplay hud;
-	private boolean clearTextOnTouch = true;
-	private boolean fromTextToBands = true; // True when we are updating
-											// resistor bands based on text input.
+	private ResistorState state; // Held by a StateFragment, so it survives a rotation.
 	private boolean restored;
-	private int restoreColor;
-	private ResistorBand selected = null;
+	private ResistorBand selected = null; // The band whose chooser is shown, if any.
+	private Gesture gesture = Gesture.IDLE;
+	private int pressedIndex; // The chooser element an ON_CHOOSER gesture started on.
 	private Toast toasty;
+	private static final int SUGGESTIONS = 4; // Suggestions shown while typing.
+	private LinearLayout suggestions;
+	private final BandStripView[] suggestionStrips = new BandStripView[SUGGESTIONS];
+	private final TextView[] suggestionValues = new TextView[SUGGESTIONS];
+	private final int[] suggestionCodes = new int[SUGGESTIONS];
+	private final int[] statusStyles = new int[Status.values().length]; // HUD style of each Status.
+	private HistoryLog history;
+	private boolean restoringHistory; // The bands are being set from the history, not by the user.
+	private StartupTrace startup;
+	private boolean wired;
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
+		startup = new StartupTrace(savedInstanceState == null ? "ColdStart" : "Recreate");
+		startup.begin("onCreate");
 		super.onCreate(savedInstanceState);
+		startup.begin("setContentView");
 		setContentView(R.layout.activity_resistor);
 
 		// The activity is not being recreated from a previous state.
 		if (savedInstanceState == null) {
+			startup.begin("fragmentTransaction");
 			getSupportFragmentManager().beginTransaction()
 					.add(R.id.container, new ResistorFragment()).commit();
 		}
 
 		else {
 			restored = true;
-			clearTextOnTouch = savedInstanceState.getBoolean("firstInput");
-			fromTextToBands = savedInstanceState.getBoolean("fromTextToBands");
-			restoreColor = savedInstanceState.getInt("msgColor");
 		}
+
+		// A rotation hands over the retained state as it was. After the process was killed the
+		// fragment comes back empty, and the state is restored from the Bundle instead.
+		startup.begin("state");
+		FragmentManager fragments = getSupportFragmentManager();
+		StateFragment holder = (StateFragment) fragments.findFragmentByTag(STATE_TAG);
+		if (holder == null) {
+			holder = new StateFragment();
+			fragments.beginTransaction().add(holder, STATE_TAG).commit();
+		}
+		
+		if (!holder.inUse && savedInstanceState != null) {
+			holder.state.restore(savedInstanceState.getIntArray(STATE_TAG));
+		}
+		holder.inUse = true;
+		state = holder.state;
+
+		// Mapping the history only reads its header, so this is cheap enough for onCreate.
+		startup.begin("history");
+		try {
+			history = HistoryLog.open(new File(getFilesDir(), HISTORY_FILE));
+		}
+		catch (IOException e) {
+			Log.w(TAG, "History unavailable", e);
+		}
+		startup.end();
+		
+		getWindow().getDecorView().getViewTreeObserver().addOnPreDrawListener(this);
+	}
+
+	@Override
+	public boolean onPreDraw() {
+		
+		// The first frame is about to be drawn; anything not needed for it waits until idle.
+		getWindow().getDecorView().getViewTreeObserver().removeOnPreDrawListener(this);
+		startup.finish("firstFrame");
+		Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+			
+			@Override
+			public boolean queueIdle() {
+				warmUp();
+				return false;
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Work that is needed soon after start-up, but not for the first frame: the choosers and
+	 * the lookup tables. The Toast is not set up here; statuses show on the HeadsUpDisplay,
+	 * and the Toast is only built if one comes while the HeadsUpDisplay is not on screen.
+	 */
+	private void warmUp() {
+		StartupTrace idle = new StartupTrace("Idle");
+		idle.begin("choosers");
+		if (hud != null) {
+			hud.prepareChoosers();
+		}
+
+		// Loads the lookup tables and compiles the parsing code ahead of the first input.
+		idle.begin("tables");
+		ResistorTables.getFormatted(resistor.getCode());
+		Resistance.isStandard("4.7k");
+		idle.finish("done");
+	}
+
+	@Override
+	protected void onDestroy() {
+		if (history != null) {
+			history.close();
+			history = null;
+		}
+		super.onDestroy();
 	}
 
 	@Override
 	protected void onStart() {
 
+		// The fragment's views are inflated while the support library starts it.
+		startup.begin("fragmentViews");
 		super.onStart();
 
+		// The views outlive a stop/start, so they only need to be wired up once.
+		if(!wired){
+			startup.begin("wireViews");
+			wireViews();
+			wired = true;
+		}
+		startup.end();
+
+		// On a cold start show the last value the technician worked with.
+		if (!restored && history != null && history.getLast() != -1) {
+			restoreFromHistory(history.getLast());
+			restored = true;
+		}
+
+		// A chooser that was open before a rotation is opened again once the views are laid out.
+		else if (restored && selected == null && state.getChooser() != ResistorState.NO_CHOOSER) {
+			hud.post(new Runnable() {
+
+				@Override
+				public void run() {
+					reopenChooser(ResistorBand.values()[state.getChooser()]);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Shows the chooser of a band that was open when the activity was last destroyed.
+	 */
+	private void reopenChooser(ResistorBand band) {
+		RectF bounds;
+		if(band == ResistorBand.MSB){
+			bounds = resistor.getMSBBounds();
+		}
+		
+		else if(band == ResistorBand.LSB){
+			bounds = resistor.getLSBBounds();
+		}
+		
+		else if(band == ResistorBand.MULTIPLIER){
+			bounds = resistor.getMultiplierBounds();
+		}
+		
+		else{
+			setSelected(null);
+			return;
+		}
+		
+		selected = band;
+		showChooser(band, bounds);
+	}
+
+	/**
+	 * Finds the views of the fragment and attaches this activity's listeners to them.
+	 */
+	private void wireViews() {
+		
 		// Get the root view of the fragment.
 		FragmentManager fragManage = getSupportFragmentManager();
 		Fragment f = fragManage.findFragmentById(R.id.container);
@@ -98,23 +281,62 @@ public class ResistorActivity extends ActionBarActivity implements
 		msg = (EditText) rootView.findViewById(R.id.editText1);
 		msg.setOnClickListener(this);
 		if(restored){
-			msg.setTextColor(restoreColor);
+			msg.setTextColor(state.getTextColor());
 		}
 		msg.addTextChangedListener(this);
 		msg.setOnEditorActionListener(this);
 		
-		//toasty = Toast.makeText(getApplicationContext(),"", Toast.LENGTH_SHORT);
+		suggestions = (LinearLayout) rootView.findViewById(R.id.suggestions);
+		LayoutInflater inflater = getLayoutInflater();
+		for(int i = 0; i < SUGGESTIONS; i++){
+			View chip = inflater.inflate(R.layout.suggestion_chip, suggestions, false);
+			chip.setTag(i);
+			chip.setOnClickListener(pickSuggestion);
+			suggestionStrips[i] = (BandStripView) chip.findViewById(R.id.suggestionStrip);
+			suggestionValues[i] = (TextView) chip.findViewById(R.id.suggestionValue);
+			suggestions.addView(chip);
+		}
+		
 		hud = (HeadsUpDisplay) rootView.findViewById(R.id.headsUpDisplay1);
 		hud.setOnTouchListener(this);
-		
+		for(Status status : Status.values()){
+			statusStyles[status.ordinal()] = hud.addStatusStyle(status.textColor, status.bgColor);
+		}
+	}
+
+	/**
+	 * Sets the bands to a code taken from the history, showing its value without recording it
+	 * again or showing a status. The band bounds are not known until the ResistorView is
+	 * attached, so the update is posted to it.
+	 * @param code	A packed code (see ResistorCode).
+	 */
+	private void restoreFromHistory(final int code) {
+		resistor.post(new Runnable() {
+
+			@Override
+			public void run() {
+				state.setFromTextToBands(false);
+				restoringHistory = true;
+				resistor.setBands(code);
+				restoringHistory = false;
+			}
+		});
+	}
+
+	/**
+	 * Records the current bands in the history. The write happens off the UI thread.
+	 */
+	private void recordHistory() {
+		if (history != null) {
+			history.append(resistor.getCode());
+		}
 	}
 
 	@Override
 	public void onSaveInstanceState(Bundle savedInstanceState) {
 
-		savedInstanceState.putBoolean("clearTextOnTouch", clearTextOnTouch);
-		savedInstanceState.putBoolean("fromTextToBands", fromTextToBands);
-		savedInstanceState.putInt("msgColor", msg.getCurrentTextColor());
+		state.setTextColor(msg.getCurrentTextColor());
+		savedInstanceState.putIntArray(STATE_TAG, state.save());
 
 		super.onSaveInstanceState(savedInstanceState);
 	}
@@ -124,6 +346,7 @@ public class ResistorActivity extends ActionBarActivity implements
 
 		// Inflate the menu; this adds items to the action bar if it is present.
 		getMenuInflater().inflate(R.menu.resistor, menu);
+		menu.findItem(R.id.action_rkm).setChecked(state.isRkm());
 		return true;
 	}
 
@@ -136,9 +359,53 @@ public class ResistorActivity extends ActionBarActivity implements
 		if (id == R.id.action_settings) {
 			return true;
 		}
+		
+		if (id == R.id.action_rkm) {
+			state.setRkm(!item.isChecked());
+			item.setChecked(state.isRkm());
+
+			// Text that follows the bands was formatted from the code; typed text is left as is.
+			if(state.getCode() != -1 && !state.isFromTextToBands()){
+				msg.setText(state.getText());
+			}
+			return true;
+		}
+		
+		if (id == R.id.action_bom) {
+			Intent pick = new Intent(Intent.ACTION_GET_CONTENT);
+			pick.setType("text/*");
+			pick.addCategory(Intent.CATEGORY_OPENABLE);
+			startActivityForResult(pick, PICK_BOM);
+			return true;
+		}
 		return super.onOptionsItemSelected(item);
 	}
 
+	@Override
+	protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+		
+		if (requestCode == PICK_BOM && resultCode == RESULT_OK && data != null) {
+			startActivity(new Intent(Intent.ACTION_VIEW, data.getData(), this, BomActivity.class));
+		}
+		
+		else {
+			super.onActivityResult(requestCode, resultCode, data);
+		}
+	}
+
+	/**
+	 * Holds the ResistorState across configuration changes. It has no view.
+	 */
+	public static class StateFragment extends Fragment {
+
+		final ResistorState state = new ResistorState();
+		boolean inUse; // FALSE until an activity takes the state; it is new or was killed.
+
+		public StateFragment() {
+			setRetainInstance(true);
+		}
+	}
+
 	/**
 	 * A placeholder fragment containing a simple view.
 	 */
@@ -159,79 +426,29 @@ public class ResistorActivity extends ActionBarActivity implements
 	}
 
 	@Override
-	public void onValueChanged() {
-
-		BigDecimal resistance = calculateResistance(
-				resistor.getMSB(), resistor.getLSB(), resistor.getMultiplier(),
-				resistor.getTolerance());
-		String resistanceString;
-
-		if (!fromTextToBands) {
-			if(resistor.getMSB() != ResistorColor.BLACK){
-				resistanceString = toEngineeringNotation(resistance);
-				msg.setText(resistanceString);
-				msg.append(new String(new char[] { OMEGA }));
-				clearTextOnTouch = false;
-				if(Resistance.isStandard(resistanceString)){
-					msg.setTextColor(Color.GREEN);
-					toast("Standard", Color.WHITE, Color.GREEN);
-				}
-				
-				else{
-					msg.setTextColor(Color.BLACK);
-					toast("Non-standard", Color.WHITE, Color.BLACK);
+	public void onValueChanged(int code) {
+
+		if (!state.isFromTextToBands()) {
+			if(ResistorCode.getMSB(code) != ResistorColor.BLACK.getValue()){
+				state.setCode(code);
+				msg.setText(state.getText());
+				state.setClearTextOnTouch(false);
+				msg.setTextColor(state.isStandard() ? Color.GREEN : Color.BLACK);
+				if(!restoringHistory){
+					recordHistory();
+					status(state.isStandard() ? Status.STANDARD : Status.NON_STANDARD);
 				}
 			}
 			else{
-				clearTextOnTouch = true;
+				state.setClearTextOnTouch(true);
 				msg.setText("1st band " + NOT_EQUAL +" black");
 				msg.setTextColor(Color.RED);
-				toast("Invalid ResistorCode", Color.WHITE, Color.RED);
+				status(Status.INVALID_CODE);
 			}
 		}
 
 	}
 
-	/**
-	 * Converts a resistance string to engineering notation.
-	 * @param resistance
-	 * @return
-	 */
-	private String toEngineeringNotation(BigDecimal resistance) {
-		
-		String resistanceString;
-		BigDecimal mega = new BigDecimal(MEGA);
-		BigDecimal kilo = new BigDecimal(KILO);
-		
-		if(resistance.compareTo(mega) >= 0){
-			
-			resistance = resistance.divide(mega, PRECISION);
-			resistanceString = resistance.toPlainString() + "M";
-		}
-		
-		else if(resistance.compareTo(kilo) >= 0){
-			
-			resistance = resistance.divide(kilo, PRECISION);
-			resistanceString = resistance.toPlainString() + "k";
-		}
-		
-		else{
-			resistanceString = resistance.round(PRECISION).toPlainString();
-		}
-		
-		return resistanceString;
-	}
-
-	private BigDecimal calculateResistance(ResistorView.ResistorColor msb,
-			ResistorView.ResistorColor lsb, ResistorView.ResistorColor mult,
-			ResistorView.ResistorColor tol) {
-		
-		BigDecimal value = new BigDecimal((msb.getValue() * 10 + lsb.getValue())
-				* Math.pow(10, mult.getValue()));
-
-		return value;
-	}
-
 	@Override
 	public void beforeTextChanged(CharSequence s, int start, int count,
 			int after) {
@@ -246,11 +463,48 @@ public class ResistorActivity extends ActionBarActivity implements
 	@Override
 	public void afterTextChanged(Editable s) {
 
-		if (fromTextToBands) {
+		if (state.isFromTextToBands()) {
 			setResistanceBands(s.toString());
+			showSuggestions(s);
 		}
 	}
 
+	/**
+	 * Shows the first standard values that start with what has been typed, with their bands.
+	 * The lookup reads the text in place and allocates nothing.
+	 * @param typed		The text of editText1.
+	 */
+	private void showSuggestions(CharSequence typed) {
+		int count = typed.length() == 0 ? 0 : SuggestionTrie.suggest(typed, suggestionCodes);
+		for(int i = 0; i < SUGGESTIONS; i++){
+			View chip = suggestions.getChildAt(i);
+			if(i < count){
+				suggestionStrips[i].setCode(suggestionCodes[i]);
+				suggestionValues[i].setText(ResistorTables.getFormatted(suggestionCodes[i]));
+				chip.setVisibility(View.VISIBLE);
+			}
+			
+			else{
+				chip.setVisibility(View.GONE);
+			}
+		}
+		suggestions.setVisibility(count > 0 ? View.VISIBLE : View.INVISIBLE);
+	}
+
+	/**
+	 * Sets all the bands to the suggestion picked; the text then follows the bands.
+	 */
+	private final OnClickListener pickSuggestion = new OnClickListener() {
+
+		@Override
+		public void onClick(View v) {
+			int code = suggestionCodes[(Integer) v.getTag()];
+			suggestions.setVisibility(View.INVISIBLE);
+			state.setFromTextToBands(false);
+			resistor.setBands(code);
+		}
+	};
+
 	/**
 	 * Sets the bands of the ResistorView to the value of resistance.
 	 * @param resistance	Resistance value.
@@ -261,12 +515,12 @@ public class ResistorActivity extends ActionBarActivity implements
 		ResistorColor msbColor = null;
 		ResistorColor lsbColor = null;
 		ResistorColor multColor = null;
-		BigDecimal resistanceValue = Resistance.parse(resistance);
+		long resistanceValue = Resistance.parseValue(resistance);
 		int exponent;
 		int firstSignificantDigit;
 		int secondSignificantDigit;
 
-		if (resistanceValue.compareTo(new BigDecimal(0)) > 0) {
+		if (ResistanceValue.signum(resistanceValue) > 0) {
 			
 			exponent = Resistance.getMultiplier(resistance);
 
@@ -276,9 +530,8 @@ public class ResistorActivity extends ActionBarActivity implements
 				msbColor = ResistorColor.fromValue(firstSignificantDigit);				
 				secondSignificantDigit = Resistance.getSecondSigDigit(resistance);
 				lsbColor = ResistorColor.fromValue(secondSignificantDigit);
-				resistor.setMSB(msbColor);
-				resistor.setLSB(lsbColor);
-				resistor.setMultiplier(multColor);
+				resistor.setBands(ResistorCode.pack(msbColor.getValue(), lsbColor.getValue(),
+						multColor.getValue(), ResistorColor.GOLD.getValue()));
 				if(Resistance.isStandard(resistance)){
 					msg.setTextColor(Color.GREEN);
 				}
@@ -293,7 +546,30 @@ public class ResistorActivity extends ActionBarActivity implements
 		}
 
 		else {
-			badResistance();		
+			setSmdBands(resistance);
+		}
+	}
+
+	/**
+	 * Sets the bands of the ResistorView from an SMD marking (ie. "472"), for text that is not
+	 * a plain resistance.
+	 * @param marking		The SMD marking.
+	 */
+	private void setSmdBands(String marking) {
+		int code = SmdCode.toCode(marking);
+
+		if (code != -1) {
+			resistor.setBands(code);
+			if(ResistorTables.isStandard(code)){
+				msg.setTextColor(Color.GREEN);
+			}
+			else{
+				msg.setTextColor(Color.BLACK);
+			}
+		}
+
+		else {
+			badResistance();
 		}
 	}
 
@@ -302,9 +578,24 @@ public class ResistorActivity extends ActionBarActivity implements
 	 */
 	private void badResistance() {
 		msg.setTextColor(Color.RED);
-		resistor.setMSB(ResistorColor.BLACK);
-		resistor.setLSB(ResistorColor.BLACK);
-		resistor.setMultiplier(ResistorColor.BLACK);
+		resistor.setBands(ResistorCode.pack(ResistorColor.BLACK.getValue(),
+				ResistorColor.BLACK.getValue(), ResistorColor.BLACK.getValue(),
+				ResistorColor.GOLD.getValue()));
+	}
+
+	/**
+	 * Shows a status on the HeadsUpDisplay, which rate-limits and coalesces them. Falls back
+	 * to a Toast while the HeadsUpDisplay is not on screen.
+	 * @param status	The status to show.
+	 */
+	private void status(Status status) {
+		if(hud != null && hud.isShown() && hud.getWidth() > 0){
+			hud.showStatus(status.text, statusStyles[status.ordinal()]);
+		}
+		
+		else{
+			toast(status.text, status.textColor, status.bgColor);
+		}
 	}
 
 	/**
@@ -328,113 +619,200 @@ public class ResistorActivity extends ActionBarActivity implements
 	@Override
 	public void onClick(View v) {
 		if (v.getId() == R.id.editText1) {
-			fromTextToBands = true;
-			if (clearTextOnTouch) {
+			state.setFromTextToBands(true);
+			if (state.isClearTextOnTouch()) {
 				msg.setText("");
-				clearTextOnTouch = false;
+				state.setClearTextOnTouch(false);
 			}
 		}
 	}
 
+	/**
+	 * Handles the touch gestures on the resistor and the chooser. The HeadsUpDisplay lies on
+	 * top of the resistor, so it sees the ACTION_DOWN of every gesture first and decides the
+	 * whole gesture there: a press on the chooser is tracked to its ACTION_UP and picks the
+	 * color it is released on, a press on a band shows that band's chooser and a press anywhere
+	 * else dismisses the chooser. ACTION_MOVE never changes the chooser, so a gesture makes at
+	 * most one chooser change, and ACTION_CANCEL drops the gesture without one.
+	 */
 	@Override
 	public boolean onTouch(View v, MotionEvent event) {
 		
-		float width;
-		float height;
-		float x;
-		float y;
-		RectF bounds;
-		ResistorColor color;
-		int index;
-		if (v.getId() == R.id.resistorView1) {
-			fromTextToBands = false;
-			bounds = resistor.collides(event.getX(),event.getY());
-			if( bounds != null){
-				width = hud.getWidth();
-				height = hud.getWidth() / 9;
-				x = 0;
-				if(getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT){
-					
-					y = v.getBottom() + v.getHeight() / 2;
-				}
-				
-				else{
-					y = v.getTop() - v.getHeight();
-				}
-				
-				hud.setAnchor(v.getLeft() + bounds.centerX(), v.getTop() + bounds.centerY());
-				
-				if(resistor.getMSBBounds().contains(event.getX(), event.getY())){
-					selected = ResistorBand.MSB;
-					hud.displayChooser(x,y,x+width, y+height);
-				}
-				
-				else if(resistor.getLSBBounds().contains(event.getX(), event.getY())){
-					selected = ResistorBand.LSB;
-					hud.displayChooser(x,y,x+width, y+height);
-				}
-				
-				else if(resistor.getMultiplierBounds().contains(event.getX(), event.getY())){
-					selected = ResistorBand.MULTIPLIER;
-					hud.displayMultiplierChooser(x,y,x+width, y+height);
+		boolean handled = false;
+		int action = event.getAction() & MotionEvent.ACTION_MASK;
+
+		if(v.getId() == R.id.headsUpDisplay1){
+			switch(action){
+			case MotionEvent.ACTION_DOWN:
+				handled = onChooserDown(event.getX(), event.getY());
+				break;
+			
+			case MotionEvent.ACTION_UP:
+				if(gesture == Gesture.ON_CHOOSER){
+					onChooserUp(event.getX(), event.getY());
+					v.performClick();
 				}
+				gesture = Gesture.IDLE;
+				break;
+			
+			case MotionEvent.ACTION_CANCEL:
+				gesture = Gesture.IDLE;
+				break;
+			
+			default:
+				break;
 			}
+
+			// Once a press on the chooser is taken, the rest of its gesture is ours.
+			handled = handled || gesture == Gesture.ON_CHOOSER;
 		}
 		
-		else if(v.getId() == R.id.headsUpDisplay1){
-			bounds = hud.collides(event.getX(), event.getY());
+		else if(v.getId() == R.id.resistorView1){
+			if(action == MotionEvent.ACTION_DOWN){
+				state.setFromTextToBands(false);
+			}
 			
-			if(bounds != null){
-				index = hud.collidesIndex(event.getX(), event.getY());
-				color = hud.getColor(index);
-				if(selected == ResistorBand.MSB){
-					resistor.setMSB(color);
-					selected = null;
-					hud.dismissChooser();
-				}
-				
-				else if(selected == ResistorBand.LSB){
-					resistor.setLSB(color);
-					selected = null;
-					hud.dismissChooser();
-				}
-				
-				else if(selected == ResistorBand.MULTIPLIER){
-					resistor.setMultiplier(color);
-					selected = null;
-					hud.dismissChooser();
-				}
-				
+			else if(action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL){
+				gesture = Gesture.IDLE;
 			}
 			
-			else{
-				selected = null;
-				hud.dismissChooser();
+			if(action == MotionEvent.ACTION_UP){
+				v.performClick();
 			}
 		}
+		
+		return handled;
+	}
 
-		v.performClick();
+	/**
+	 * Starts a gesture at a point of the HeadsUpDisplay.
+	 * @return		TRUE if the press is on the chooser, so the HeadsUpDisplay takes the gesture.
+	 */
+	private boolean onChooserDown(float x, float y) {
+		
+		if(hud.collides(x, y) != null){
+			gesture = Gesture.ON_CHOOSER;
+			pressedIndex = hud.collidesIndex(x, y);
+			return true;
+		}
 		
+		// The HeadsUpDisplay and the resistor share a parent; move the point onto the resistor.
+		float resistorX = x + hud.getLeft() - resistor.getLeft();
+		float resistorY = y + hud.getTop() - resistor.getTop();
+		RectF bounds = resistor.collides(resistorX, resistorY);
+		ResistorBand band = null;
+		if(bounds == resistor.getMSBBounds()){
+			band = ResistorBand.MSB;
+		}
+		
+		else if(bounds == resistor.getLSBBounds()){
+			band = ResistorBand.LSB;
+		}
+		
+		else if(bounds == resistor.getMultiplierBounds()){
+			band = ResistorBand.MULTIPLIER;
+		}
+		
+		if(band == null){
+			gesture = Gesture.IDLE;
+			if(selected != null){
+				setSelected(null);
+				hud.dismissChooser();
+			}
+		}
+		
+		else{
+			gesture = Gesture.ON_BAND;
+			if(band != selected){
+				setSelected(band);
+				showChooser(band, bounds);
+			}
+		}
 		return false;
 	}
 
+	/**
+	 * Ends a gesture that started on the chooser: the color it is released on goes to the
+	 * selected band if the press started on the same color.
+	 */
+	private void onChooserUp(float x, float y) {
+		
+		if(hud.collides(x, y) == null || hud.collidesIndex(x, y) != pressedIndex){
+			return;
+		}
+		
+		ResistorColor color = hud.getColor(pressedIndex);
+		if(selected == ResistorBand.MSB){
+			resistor.setMSB(color);
+		}
+		
+		else if(selected == ResistorBand.LSB){
+			resistor.setLSB(color);
+		}
+		
+		else if(selected == ResistorBand.MULTIPLIER){
+			resistor.setMultiplier(color);
+		}
+		
+		setSelected(null);
+		hud.dismissChooser();
+	}
+
+	/**
+	 * Records the band whose chooser is open, in the state so a rotation reopens it.
+	 */
+	private void setSelected(ResistorBand band) {
+		selected = band;
+		state.setChooser(band == null ? ResistorState.NO_CHOOSER : band.ordinal());
+	}
+
+	/**
+	 * Shows the prebuilt chooser for a band, anchored to it.
+	 * @param band		The band.
+	 * @param bounds	The bounds of the band within the ResistorView.
+	 */
+	private void showChooser(ResistorBand band, RectF bounds) {
+		
+		float width = hud.getWidth();
+		float height = hud.getWidth() / 9;
+		float x = 0;
+		float y;
+		if(getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT){
+			y = resistor.getBottom() + resistor.getHeight() / 2;
+		}
+		
+		else{
+			y = resistor.getTop() - resistor.getHeight();
+		}
+		
+		hud.setAnchor(resistor.getLeft() + bounds.centerX(), resistor.getTop() + bounds.centerY());
+		if(band == ResistorBand.MULTIPLIER){
+			hud.displayMultiplierChooser(x, y, x + width, y + height);
+		}
+		
+		else{
+			hud.displayChooser(x, y, x + width, y + height);
+		}
+	}
+
 	@Override
 	public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
 		if(actionId == EditorInfo.IME_ACTION_DONE){
 			String resistance = msg.getText().toString();
-			int multiplier = Resistance.getMultiplier(resistance);
-			
-			if(Resistance.isStandard(resistance) && multiplier > - 3 && multiplier < 10){
-				toast("Standard", Color.WHITE, Color.GREEN);
+
+			// The same inputs setResistanceBands() accepts: a value, or else an SMD marking.
+			int code = Resistance.toCode(resistance);
+			if(code == -1){
+				code = SmdCode.toCode(resistance);
 			}
-			
-			else if(Resistance.isValid(resistance) && multiplier > -3 && multiplier < 10){
-				toast("Non-standard", Color.WHITE, Color.BLACK);
-				
+
+			if(code != -1){
+				status(ResistorTables.isStandard(code) ? Status.STANDARD : Status.NON_STANDARD);
+				recordHistory();
 			}
 		
-			else if(!clearTextOnTouch && !resistance.equals("")){
-				toast("Invalid Resistance", Color.WHITE, Color.RED);
+			else if(!state.isClearTextOnTouch() && !resistance.equals("")){
+				status(Status.INVALID_RESISTANCE);
 			}
 		}
 		return false;
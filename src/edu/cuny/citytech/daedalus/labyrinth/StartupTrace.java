@@ -0,0 +1,48 @@
+/**
+ * Times the phases of a start-up and reports them as one line in the log (see PhaseTrace).
+ * Each phase is also emitted as a systrace section on devices that support it (API 18+), so
+ * the same phases show up in a systrace capture.
+ *
+ */
+
+package edu.cuny.citytech.daedalus.labyrinth;
+
+import edu.cuny.citytech.daedalus.utils.PhaseTrace;
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+public class StartupTrace extends PhaseTrace {
+
+	private static final String TAG = "StartupTrace";
+
+	/**
+	 * Starts timing a start-up.
+	 * @param name		Name reported with the breakdown.
+	 */
+	public StartupTrace(String name) {
+		super(name);
+	}
+
+	@Override
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	protected void phaseBegan(String phase) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.beginSection(phase);
+		}
+	}
+
+	@Override
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	protected void phaseEnded() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.endSection();
+		}
+	}
+
+	@Override
+	protected void finished(String report) {
+		Log.i(TAG, report);
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * A lightweight, read-only picture of a resistor for list rows: the body image with the four
+ * bands of a packed code painted on it.
+ *
+ * Unlike ResistorView it has no listeners, touch handling or saved state. Every strip draws
+ * the same body bitmap, decoded once per process, and works out the band rectangles only when
+ * its size changes; binding a recycled row to another code only stores the code.
+ *
+ * @author Jason Warren
+ *
+ */
+
+package edu.cuny.citytech.daedalus.widgets;
+
+import edu.cuny.citytech.daedalus.labyrinth.R;
+import edu.cuny.citytech.daedalus.utils.BandGeometry;
+import edu.cuny.citytech.daedalus.utils.ResistorTables;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+
+public class BandStripView extends View {
+
+	private static Bitmap body; // Shared by every strip; only touched on the UI thread.
+
+	private final Paint paint = new Paint();
+	private final Rect bodyBounds = new Rect();
+	private final int[] bandBounds = new int[BandGeometry.BANDS * 4];
+	private int code = -1;
+
+	public BandStripView(Context context) {
+		super(context);
+		loadBody(context.getResources());
+	}
+
+	public BandStripView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		loadBody(context.getResources());
+	}
+
+	public BandStripView(Context context, AttributeSet attrs, int defStyleAttr) {
+		super(context, attrs, defStyleAttr);
+		loadBody(context.getResources());
+	}
+
+	/**
+	 * Decodes the body image the first time any strip is created.
+	 * @param res		Resources to decode from.
+	 */
+	private static void loadBody(Resources res) {
+		if (body == null) {
+			body = BitmapFactory.decodeResource(res, R.drawable.resistor_blank_moderate_crop);
+		}
+	}
+
+	/**
+	 * Shows the bands of a code.
+	 * @param newCode	A packed code (see ResistorCode), or -1 to show a blank body.
+	 */
+	public void setCode(int newCode) {
+		if (newCode != code) {
+			code = newCode;
+			invalidate();
+		}
+	}
+
+	/**
+	 * Accessor for the code shown.
+	 * @return		The packed code, or -1 if the body is blank.
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+
+		// Keep the proportions of the body image.
+		int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+		int height = width * BandGeometry.BG_HEIGHT / BandGeometry.BG_WIDTH;
+		setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+	}
+
+	@Override
+	public void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		bodyBounds.set(0, 0, w, h);
+		int[] scaled = new int[4];
+		for (int band = 0; band < BandGeometry.BANDS; band++) {
+			BandGeometry.scale(band, w, h, scaled);
+			System.arraycopy(scaled, 0, bandBounds, band * 4, 4);
+		}
+	}
+
+	@Override
+	public void onDraw(Canvas canvas) {
+		super.onDraw(canvas);
+
+		canvas.drawBitmap(body, null, bodyBounds, null);
+		if (code == -1) {
+			return;
+		}
+
+		for (int band = 0; band < BandGeometry.BANDS; band++) {
+			int i = band * 4;
+			paint.setColor(ResistorTables.getBandColor(BandGeometry.getBandValue(code, band)));
+			canvas.drawRect(bandBounds[i], bandBounds[i + 1], bandBounds[i + 2],
+					bandBounds[i + 3], paint);
+		}
+	}
+}
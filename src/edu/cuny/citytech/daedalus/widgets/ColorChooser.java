@@ -9,7 +9,7 @@ package edu.cuny.citytech.daedalus.widgets;
 
 import java.util.LinkedList;
 
-import edu.cuny.citytech.daedalus.widgets.ResistorView.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
 import android.graphics.RectF;
 
 public class ColorChooser extends LinkedList<ResistorColor>{
@@ -53,6 +53,17 @@ public class ColorChooser extends LinkedList<ResistorColor>{
 		bounds = new RectF(left,top,right,bottom);
 	}
 	
+	/**
+	 * Moves this ColorChooser to the rectangle specified by the input coordinates.
+	 * @param left		Left coordinate of bounding rectangle.
+	 * @param top		Top coordinate of bounding rectangle.
+	 * @param right		Right coordinate of bounding rectangle.
+	 * @param bottom	Bottom coordinate of bounding rectangle.
+	 */
+	public void setBounds(float left, float top, float right, float bottom){
+		bounds.set(left, top, right, bottom);
+	}
+	
 	/**
 	 * Accessor for this ColorChoosers bounds.
 	 * @return		The bounds of this ColorChooser.
@@ -1,6 +1,12 @@
 /**
  * This is a transparent overlay view that allows for drawing on top of other views. It
- * currently supports a menu for selecting a range of colors, and a simple text display.
+ * currently supports a menu for selecting a range of colors, a simple text display and a
+ * status line.
+ *
+ * The status line stands in for a Toast: it is drawn by this view, so showing a status costs
+ * no window and no inflation. Statuses are shown at most once every STATUS_INTERVAL ms; ones
+ * that arrive faster are coalesced and only the latest is shown. Their colors are registered
+ * once with addStatusStyle(), so showing one allocates nothing.
  * 
  * @author Jason Warren
  * 
@@ -10,7 +16,8 @@ package edu.cuny.citytech.daedalus.widgets;
 
 import java.util.Arrays;
 import edu.cuny.citytech.daedalus.utils.UnitConversion;
-import edu.cuny.citytech.daedalus.widgets.ResistorView.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.SavedState;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -21,6 +28,8 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.support.v4.util.LruCache;
 import android.util.AttributeSet;
 import android.view.View;
 
@@ -35,8 +44,71 @@ public class HeadsUpDisplay extends View {
 	private PointF textPos;
 	private Rect textBounds;
 	private ColorChooser chooser;
+	private ColorChooser digitChooser;
+	private ColorChooser multiplierChooser;
 	private int chooserBorderColor = Color.DKGRAY;
 	private PointF anchor;
+	private TextLayout layout; // Layout of text at textSize; null until first needed.
+	private final LayoutKey lookupKey = new LayoutKey();
+
+	private static final int STATUS_INTERVAL = 100; // Least ms between two shown statuses.
+	private static final int STATUS_DURATION = 2000; // Ms a status stays, as a short Toast.
+	private static final int STATUS_TEXT_SIZE = 16; // dp
+	private static final int STATUS_PADDING = 8; // dp
+	private static final int STATUS_MARGIN = 64; // dp from the bottom, where a Toast would be.
+	private static final int MAX_STATUS_STYLES = 8;
+	private final Paint[] statusText = new Paint[MAX_STATUS_STYLES];
+	private final Paint[] statusBackground = new Paint[MAX_STATUS_STYLES];
+	private int statusStyles;
+	private String status; // The status shown, or null.
+	private int statusStyle;
+	private String pendingStatus; // The latest status not yet shown, or null.
+	private int pendingStyle;
+	private long statusShownAt;
+	private final Rect statusBounds = new Rect();
+
+	// Shared by every HUD (ie. across rotations); messages repeat, so a few entries are enough.
+	private static final int LAYOUT_CACHE_SIZE = 32;
+	private static final LruCache<LayoutKey, TextLayout> LAYOUTS =
+			new LruCache<LayoutKey, TextLayout>(LAYOUT_CACHE_SIZE);
+
+	/**
+	 * Identifies a text layout: the text, its size in dp and the screen density.
+	 */
+	private static final class LayoutKey {
+		String text;
+		int size;
+		float density;
+
+		LayoutKey set(String text, int size, float density) {
+			this.text = text;
+			this.size = size;
+			this.density = density;
+			return this;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof LayoutKey)) {
+				return false;
+			}
+			LayoutKey k = (LayoutKey) o;
+			return size == k.size && density == k.density && text.equals(k.text);
+		}
+
+		@Override
+		public int hashCode() {
+			return (text.hashCode() * 31 + size) * 31 + Float.floatToIntBits(density);
+		}
+	}
+
+	/**
+	 * The measured bounds of a text and a Paint ready to draw it.
+	 */
+	private static final class TextLayout {
+		final Rect bounds = new Rect();
+		final Paint paint = new Paint();
+	}
 	
 	
 	/**
@@ -102,6 +174,9 @@ public class HeadsUpDisplay extends View {
 		textPos = new PointF();
 		anchor = new PointF();
 		
+		// The chooser labels are drawn with the shared paint at the message size.
+		paint.setTextAlign(Align.CENTER);
+		paint.setTextSize(UnitConversion.dpToPixels(textSize,SCALE));
 	}
 	
 	@Override
@@ -116,12 +191,9 @@ public class HeadsUpDisplay extends View {
 	protected Parcelable onSaveInstanceState(){
 		Bundle bundle = new Bundle();
 		bundle.putParcelable("instanceState", super.onSaveInstanceState());
-		bundle.putInt("borderColor", borderColor);
+		bundle.putIntArray("hud", SavedState.packHud(borderColor, textSize, textPos.x,
+				textPos.y));
 		bundle.putString("text", text);
-		bundle.putInt("textSize", textSize);
-		bundle.putFloat("textPosX", textPos.x);
-		bundle.putFloat("textPosY", textPos.y);
-		
 		
 		return bundle;
 	}
@@ -131,10 +203,16 @@ public class HeadsUpDisplay extends View {
 
 		if (state instanceof Bundle) {
 			Bundle bundle = (Bundle) state;
-			borderColor = bundle.getInt("borderColor");
-			text = bundle.getString("text");
-			textSize = bundle.getInt("textSize");
-			textPos = new PointF(bundle.getFloat("textPosX"), bundle.getFloat("textPosY"));
+			int[] block = bundle.getIntArray("hud");
+			if (SavedState.isHud(block)) {
+				borderColor = SavedState.getBorderColor(block);
+				textSize = SavedState.getTextSize(block);
+				textPos.set(SavedState.getTextX(block), SavedState.getTextY(block));
+				String saved = bundle.getString("text");
+				text = saved != null ? saved : "";
+				layout = null;
+				paint.setTextSize(UnitConversion.dpToPixels(textSize,SCALE));
+			}
 			
 			state = bundle.getParcelable("instanceState");
 		}
@@ -145,21 +223,31 @@ public class HeadsUpDisplay extends View {
 	@Override
 	public void onSizeChanged(int w, int h, int oldw, int oldh){
 		super.onSizeChanged(w, h, oldw, oldh);
-		myBounds = new Rect(0,0,w,h);			
+		myBounds.set(0,0,w,h);
 		float midX = myBounds.right/2f;
 		float midY = myBounds.bottom/2f;
-		textPos = new PointF(midX,midY);
-		paint.getTextBounds(text, 0, text.length(), textBounds);
+		textPos.set(midX,midY);
+		textBounds.set(getLayout().bounds);
 		textBounds.offsetTo((int)textPos.x, (int)textPos.y);
+		if(status != null){
+			layoutStatus();
+		}
 		postInvalidate();
 	}
 
+	@Override
+	protected void onDetachedFromWindow() {
+		clearStatus();
+		super.onDetachedFromWindow();
+	}
+
 	@Override
 	public void onDraw(Canvas canvas){
 		
 		super.onDraw(canvas);
 		drawBorder(canvas);
 		drawMsg(canvas);
+		drawStatus(canvas);
 		drawMenu(canvas);
 		
 	}
@@ -223,11 +311,138 @@ public class HeadsUpDisplay extends View {
 	 * @param canvas	Canvas to draw on.
 	 */
 	private void drawMsg(Canvas canvas) {
-		paint.setStrokeWidth(2);
-		paint.setTextSize(UnitConversion.dpToPixels(textSize,SCALE));
-		paint.setTextAlign(Align.CENTER);
-		paint.setShadowLayer(10, 5, 3, Color.BLACK);
-		canvas.drawText(text, textPos.x, textPos.y, paint);
+		Paint textPaint = getLayout().paint;
+		textPaint.setColor(paint.getColor());
+		textPaint.setStyle(paint.getStyle());
+		canvas.drawText(text, textPos.x, textPos.y, textPaint);
+	}
+
+	/**
+	 * Draws the status line, if a status is shown.
+	 * @param canvas	Canvas to draw on.
+	 */
+	private void drawStatus(Canvas canvas) {
+		if(status != null){
+			canvas.drawRect(statusBounds, statusBackground[statusStyle]);
+			canvas.drawText(status, statusBounds.exactCenterX(),
+					statusBounds.bottom - UnitConversion.dpToPixels(STATUS_PADDING, SCALE)
+					- statusText[statusStyle].descent(), statusText[statusStyle]);
+		}
+	}
+
+	/**
+	 * Registers the colors of a kind of status, so that showing one needs no new Paint.
+	 * @param textColor			The color of the text.
+	 * @param backgroundColor	The color behind the text.
+	 * @return					The style to pass to showStatus().
+	 */
+	public int addStatusStyle(int textColor, int backgroundColor) {
+		
+		if(statusStyles == MAX_STATUS_STYLES){
+			throw new IllegalStateException("More than " + MAX_STATUS_STYLES + " status styles");
+		}
+		
+		Paint text = new Paint(Paint.ANTI_ALIAS_FLAG);
+		text.setColor(textColor);
+		text.setTextAlign(Align.CENTER);
+		text.setTextSize(UnitConversion.dpToPixels(STATUS_TEXT_SIZE, SCALE));
+		Paint background = new Paint();
+		background.setColor(backgroundColor);
+		background.setStyle(Paint.Style.FILL);
+		statusText[statusStyles] = text;
+		statusBackground[statusStyles] = background;
+		return statusStyles++;
+	}
+
+	/**
+	 * Shows a status on the status line for STATUS_DURATION ms. Within STATUS_INTERVAL ms of
+	 * the last status shown, it is held back instead and replaces any status held back before
+	 * it. Call from the UI thread.
+	 * @param newStatus		The text of the status.
+	 * @param style			A style from addStatusStyle().
+	 */
+	public void showStatus(String newStatus, int style) {
+		
+		if(style < 0 || style >= statusStyles){
+			throw new IllegalArgumentException("Unknown status style " + style);
+		}
+		
+		boolean held = pendingStatus != null;
+		pendingStatus = newStatus;
+		pendingStyle = style;
+		if(!held){
+			long wait = statusShownAt + STATUS_INTERVAL - SystemClock.uptimeMillis();
+			if(wait > 0){
+				postDelayed(showPendingStatus, wait);
+			}
+			
+			else{
+				showPendingStatus.run();
+			}
+		}
+	}
+
+	/**
+	 * Shows the latest status held back by showStatus().
+	 */
+	private final Runnable showPendingStatus = new Runnable() {
+
+		@Override
+		public void run() {
+			if(pendingStatus == null){
+				return;
+			}
+			
+			// The old and new status lines both need repainting.
+			invalidateStatus();
+			status = pendingStatus;
+			statusStyle = pendingStyle;
+			pendingStatus = null;
+			statusShownAt = SystemClock.uptimeMillis();
+			layoutStatus();
+			invalidateStatus();
+			removeCallbacks(hideStatus);
+			postDelayed(hideStatus, STATUS_DURATION);
+		}
+	};
+
+	private final Runnable hideStatus = new Runnable() {
+
+		@Override
+		public void run() {
+			invalidateStatus();
+			status = null;
+		}
+	};
+
+	/**
+	 * Hides the status line and drops any status held back.
+	 */
+	public void clearStatus() {
+		removeCallbacks(showPendingStatus);
+		removeCallbacks(hideStatus);
+		pendingStatus = null;
+		hideStatus.run();
+	}
+
+	/**
+	 * Works out the bounds of the status line around the current status, centered near the
+	 * bottom of this view.
+	 */
+	private void layoutStatus() {
+		Paint text = statusText[statusStyle];
+		int padding = UnitConversion.dpToPixels(STATUS_PADDING, SCALE);
+		int width = Math.round(text.measureText(status)) + padding * 2;
+		int height = Math.round(text.descent() - text.ascent()) + padding * 2;
+		int bottom = getHeight() - UnitConversion.dpToPixels(STATUS_MARGIN, SCALE);
+		int left = (getWidth() - width) / 2;
+		statusBounds.set(left, bottom - height, left + width, bottom);
+	}
+
+	private void invalidateStatus() {
+		if(status != null){
+			invalidate(statusBounds);
+		}
 	}
 
 	/**
@@ -236,18 +451,39 @@ public class HeadsUpDisplay extends View {
 	 */
 	public void setText(String newText){
 		
-		Rect union = new Rect(textBounds);
 		text = newText;
-		paint.getTextBounds(text, 0, text.length(), textBounds);		
+		layout = null;
+		textBounds.set(getLayout().bounds);
 		int x = (int)textPos.x;
 		int y = (int)textPos.y;
 		textBounds.offsetTo(x, y);
-		union.union(textBounds);
 		super.postInvalidate();
-		//super.postInvalidate(union.left, union.top, union.right, union.bottom);
 		
 	}
 
+	/**
+	 * Returns the layout of the current text, measuring it only if no HUD has laid out the
+	 * same text at the same size and density before.
+	 * @return		The layout of the current text.
+	 */
+	private TextLayout getLayout() {
+		
+		if(layout == null){
+			layout = LAYOUTS.get(lookupKey.set(text, textSize, SCALE));
+			if(layout == null){
+				layout = new TextLayout();
+				layout.paint.setAntiAlias(paint.isAntiAlias());
+				layout.paint.setStrokeWidth(2);
+				layout.paint.setTextSize(UnitConversion.dpToPixels(textSize,SCALE));
+				layout.paint.setTextAlign(Align.CENTER);
+				layout.paint.setShadowLayer(10, 5, 3, Color.BLACK);
+				layout.paint.getTextBounds(text, 0, text.length(), layout.bounds);
+				LAYOUTS.put(new LayoutKey().set(text, textSize, SCALE), layout);
+			}
+		}
+		return layout;
+	}
+
 	/**
 	 * Creates a ColorChooser for a multiplier band. (All ResistorColor value used)
 	 * @param left		The left coordinate for the ColorChoosers bounds.
@@ -256,9 +492,9 @@ public class HeadsUpDisplay extends View {
 	 * @param bottom	The bottom coordinate for the ColorChoosers bounds.
 	 */
 	public void displayMultiplierChooser(float left, float top, float right, float bottom) {
-		RectF bounds = new RectF(left, top, right, bottom);
-		chooser = new ColorChooser(bounds);
-		chooser.addAll(Arrays.asList(ResistorColor.values()));
+		prepareChoosers();
+		chooser = multiplierChooser;
+		chooser.setBounds(left, top, right, bottom);
 		//TODO Invalidate more efficiently.
 		postInvalidate();
 		//postInvalidate(Math.round(bounds.left),Math.round(bounds.top),
@@ -275,14 +511,31 @@ public class HeadsUpDisplay extends View {
 	 */
 	public void displayChooser(float left, float top, float right, float bottom) {
 		
-		RectF bounds = new RectF(left,top,right,bottom);
-		chooser = new ColorChooser(bounds);
-		for(int i=2; i<ResistorColor.values().length; i++){
-			chooser.add(ResistorColor.values()[i]);
-		}
+		prepareChoosers();
+		chooser = digitChooser;
+		chooser.setBounds(left, top, right, bottom);
 		postInvalidate();
 	}
 	
+	/**
+	 * Builds the digit and multiplier ColorChoosers ahead of time so that displaying a chooser
+	 * only has to move it. Safe to call more than once.
+	 */
+	public void prepareChoosers() {
+		
+		if(digitChooser == null){
+			digitChooser = new ColorChooser(0, 0, 0, 0);
+			for(int i=2; i<ResistorColor.values().length; i++){
+				digitChooser.add(ResistorColor.values()[i]);
+			}
+		}
+		
+		if(multiplierChooser == null){
+			multiplierChooser = new ColorChooser(0, 0, 0, 0);
+			multiplierChooser.addAll(Arrays.asList(ResistorColor.values()));
+		}
+	}
+	
 	/**
 	 * Destroys the ColorChooser.
 	 */
@@ -2,6 +2,13 @@
  * 
  * Implements a Resistor View.
  * 
+ * The bands are one packed code in a ResistorBands, so they can be set from any thread, ie.
+ * by a decoder or a network feed: every change is a compare-and-set of the whole code, and a
+ * drawing or a notification reads it once, so it never sees some bands of one code and some
+ * of another. Redraws and notifications always happen on the UI thread;
+ * changes made on other threads are posted to it and coalesced, so the clients are told about
+ * the latest code once rather than about every code in between.
+ * 
  * @author Jason Warren
  * 
  */
@@ -9,16 +16,23 @@
 package edu.cuny.citytech.daedalus.widgets;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import edu.cuny.citytech.daedalus.labyrinth.R;
+import edu.cuny.citytech.daedalus.utils.BandGeometry;
+import edu.cuny.citytech.daedalus.utils.ResistorBands;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+import edu.cuny.citytech.daedalus.utils.ResistorColor;
+import edu.cuny.citytech.daedalus.utils.SavedState;
 import edu.cuny.citytech.daedalus.utils.UnitConversion;
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.View;
@@ -27,123 +41,32 @@ public class ResistorView extends View {
 
 	final float SCALE;
 
-	// Background image constants.
-	final int BG_WIDTH = 256; // The width of the background image in actual
-								// pixels
-	final int BG_HEIGHT = 80; // The height of the bg image in actual pixels.
-	final int MSB_LEFT = 72;
-	final int MSB_TOP = 18;
-	final int MSB_RIGHT = 87;
-	final int MSB_BOTTOM = 62;
-	final int LSB_LEFT = 105;
-	final int LSB_TOP = 21;
-	final int LSB_RIGHT = 119;
-	final int LSB_BOTTOM = 59;
-	final int MULT_LEFT = 135;
-	final int MULT_TOP = 21;
-	final int MULT_RIGHT = 151;
-	final int MULT_BOTTOM = 59;
-	final int TOL_LEFT = 169;
-	final int TOL_TOP = 17;
-	final int TOL_RIGHT = 183;
-	final int TOL_BOTTOM = 62;
-
 	/**
 	 * Interface to let clients know when the value of this resistor's color bands has changed.
+	 * Always called on the UI thread.
 	 *
 	 */
 	public interface OnValueChangedListener {
 
-		public void onValueChanged();
+		/**
+		 * @param code		The packed code of the bands (see ResistorCode), read once; later
+		 * 					changes, if any, are notified in turn.
+		 */
+		public void onValueChanged(int code);
 	}
 
-	ArrayList<OnValueChangedListener> onValueChangedListeners;
-
-	public enum ResistorColor {
-		SILVER(-2), GOLD(-1), BLACK(0), BROWN(1), RED(2), ORANGE(3), YELLOW(4), GREEN(5),
-		BLUE(6), VIOLET(7), GRAY(8), WHITE(9);
-		
-		private int value;
-		
-		ResistorColor(int v){
-			value = v;
-		}
-		
-		public int getValue(){
-			return value;
-		}
-		
-		public static ResistorColor fromValue(int v){
-			ResistorColor color;
-			
-			if(v == -2){
-				color = ResistorColor.SILVER;
-			}
-			
-			else if(v == -1){
-				color = ResistorColor.GOLD;
-			}
-			
-			else{
-				color = ResistorColor.values()[v+2];
-			}
-			
-			return color;
-		}
-		
-		public int getColor() {
+	private static final int INITIAL_CODE = ResistorCode.pack(ResistorColor.BLACK.getValue(),
+			ResistorColor.BLACK.getValue(), ResistorColor.BLACK.getValue(),
+			ResistorColor.GOLD.getValue());
+	private static final int ALL_BANDS = -1;
 
-			int color;
-			
-			switch (this) {
-			case BLACK:
-				color = Color.BLACK;
-				break;
-			case BROWN:
-				color = Color.rgb(139, 69, 19);
-				break;
-			case RED:
-				color = Color.RED;
-				break;
-			case ORANGE:
-				color = Color.rgb(255, 165, 0);
-				break;
-			case YELLOW:
-				color = Color.rgb(255, 255, 0);
-				break;
-			case GREEN:
-				color = Color.GREEN;
-				break;
-			case BLUE:
-				color = Color.BLUE;
-				break;
-			case VIOLET:
-				color = Color.rgb(148, 0, 211);
-				break;
-			case GRAY:
-				color = Color.GRAY;
-				break;
-			case WHITE:
-				color = Color.WHITE;
-				break;
-			case GOLD:
-				color = Color.rgb(255, 215, 0);
-				break;
-			case SILVER:
-				color = Color.rgb(192, 192, 192);
-				break;
-			default:
-				color = Color.TRANSPARENT;
-			}
-			return color;
-		}
-	}
+	ArrayList<OnValueChangedListener> onValueChangedListeners; // Only touched on the UI thread.
 
 	Paint paint;
-	ResistorColor msb;
-	ResistorColor lsb;
-	ResistorColor multiplier;
-	ResistorColor tolerance;
+	private final ResistorBands bands = new ResistorBands(INITIAL_CODE);
+	private final AtomicBoolean changePosted = new AtomicBoolean();
+	private final Handler uiHandler = new Handler(Looper.getMainLooper());
+	private int notifiedCode = INITIAL_CODE; // Last code the clients were told; UI thread only.
 	RectF msbBounds; // The bounds of the MSB band in absolute pixels
 	RectF lsbBounds; // The bounds of the LSB band in absolute pixels
 	RectF multiplierBounds; // The bounds of the Multiplier band in absolute
@@ -151,6 +74,12 @@ public class ResistorView extends View {
 	RectF toleranceBounds; // The bounds of the Tolerance band in absolute
 							// pixels.
 
+	// Band bounds of the last body image measured; only touched on the UI thread.
+	private static float[] cachedBounds;
+	private static int cachedWidth;
+	private static int cachedHeight;
+	private static float cachedScale;
+
 	/**
 	 * The following description is taken from the superclass documentation:
 	 * 
@@ -210,11 +139,6 @@ public class ResistorView extends View {
 	private void initialize() {
 		onValueChangedListeners = new ArrayList<OnValueChangedListener>();
 		paint = new Paint();
-		msb = ResistorColor.BLACK;
-		lsb = ResistorColor.BLACK;
-		multiplier = ResistorColor.BLACK;
-		tolerance = ResistorColor.GOLD;
-
 	}
 
 	@Override
@@ -222,10 +146,7 @@ public class ResistorView extends View {
 
 		Bundle bundle = new Bundle();
 		bundle.putParcelable("instanceState", super.onSaveInstanceState());
-		bundle.putSerializable("msb", msb);
-		bundle.putSerializable("lsb", lsb);
-		bundle.putSerializable("multiplier", multiplier);
-		bundle.putSerializable("tolerance", tolerance);
+		bundle.putInt("bands", SavedState.packBands(getCode()));
 
 		return bundle;
 	}
@@ -235,10 +156,11 @@ public class ResistorView extends View {
 
 		if (state instanceof Bundle) {
 			Bundle bundle = (Bundle) state;
-			msb = (ResistorColor) bundle.getSerializable("msb");
-			lsb = (ResistorColor) bundle.getSerializable("lsb");
-			multiplier = (ResistorColor) bundle.getSerializable("multiplier");
-			tolerance = (ResistorColor) bundle.getSerializable("tolerance");
+			int code = SavedState.unpackBands(bundle.getInt("bands"));
+			if (code != -1) {
+				bands.set(code);
+				notifiedCode = code;
+			}
 			
 			state = bundle.getParcelable("instanceState");
 		}
@@ -254,45 +176,56 @@ public class ResistorView extends View {
 		super.setHapticFeedbackEnabled(true);
 		super.setBackgroundResource(R.drawable.resistor_blank_moderate_crop);
 		Drawable d = super.getBackground();
-		Rect b = new Rect(0, 0, d.getIntrinsicWidth(), d.getIntrinsicHeight());
-		int left = Math.round(((float) MSB_LEFT / BG_WIDTH) * b.right);
-		int top = Math.round(((float) MSB_TOP / BG_HEIGHT) * b.bottom);
-		int right = Math.round(((float) MSB_RIGHT / BG_WIDTH) * b.right);
-		int bottom = Math.round(((float) MSB_BOTTOM / BG_HEIGHT) * b.bottom);
-		msbBounds = new RectF(dpToPixels(left), dpToPixels(top),
-				dpToPixels(right), dpToPixels(bottom));
-		left = Math.round(((float) LSB_LEFT / BG_WIDTH) * b.right);
-		top = Math.round(((float) LSB_TOP / BG_HEIGHT) * b.bottom);
-		right = Math.round(((float) LSB_RIGHT / BG_WIDTH) * b.right);
-		bottom = Math.round(((float) LSB_BOTTOM / BG_HEIGHT) * b.bottom);
-		lsbBounds = new RectF(dpToPixels(left), dpToPixels(top),
-				dpToPixels(right), dpToPixels(bottom));
-		left = Math.round(((float) MULT_LEFT / BG_WIDTH) * b.right);
-		top = Math.round(((float) MULT_TOP / BG_HEIGHT) * b.bottom);
-		right = Math.round(((float) MULT_RIGHT / BG_WIDTH) * b.right);
-		bottom = Math.round(((float) MULT_BOTTOM / BG_HEIGHT) * b.bottom);
-		multiplierBounds = new RectF(dpToPixels(left), dpToPixels(top),
-				dpToPixels(right), dpToPixels(bottom));
-		left = Math.round(((float) TOL_LEFT / BG_WIDTH) * b.right);
-		top = Math.round(((float) TOL_TOP / BG_HEIGHT) * b.bottom);
-		right = Math.round(((float) TOL_RIGHT / BG_WIDTH) * b.right);
-		bottom = Math.round(((float) TOL_BOTTOM / BG_HEIGHT) * b.bottom);
-		toleranceBounds = new RectF(dpToPixels(left), dpToPixels(top),
-				dpToPixels(right), dpToPixels(bottom));
+		float[] bands = getBandBounds(d.getIntrinsicWidth(), d.getIntrinsicHeight());
+		msbBounds = toRect(bands, BandGeometry.MSB);
+		lsbBounds = toRect(bands, BandGeometry.LSB);
+		multiplierBounds = toRect(bands, BandGeometry.MULTIPLIER);
+		toleranceBounds = toRect(bands, BandGeometry.TOLERANCE);
+	}
+
+	/**
+	 * Returns the bounds of the bands on a body image in screen pixels. They only depend on
+	 * the image and the density, so they are worked out once per process and reused by every
+	 * ResistorView after (ie. after a rotation).
+	 * @return		Left, top, right and bottom of each band, in BandGeometry order.
+	 */
+	private float[] getBandBounds(int width, int height) {
+		if(cachedBounds == null || cachedWidth != width || cachedHeight != height
+				|| cachedScale != SCALE){
+			float[] bands = new float[BandGeometry.BANDS * 4];
+			int[] scaled = new int[4];
+			for(int band = 0; band < BandGeometry.BANDS; band++){
+				BandGeometry.scale(band, width, height, scaled);
+				for(int i = 0; i < 4; i++){
+					bands[band * 4 + i] = dpToPixels(scaled[i]);
+				}
+			}
+			cachedWidth = width;
+			cachedHeight = height;
+			cachedScale = SCALE;
+			cachedBounds = bands;
+		}
+		return cachedBounds;
+	}
+
+	private static RectF toRect(float[] bands, int band) {
+		int i = band * 4;
+		return new RectF(bands[i], bands[i + 1], bands[i + 2], bands[i + 3]);
 	}
 
 	@Override
 	public void onDraw(Canvas canvas) {
 		super.onDraw(canvas);
 
+		int code = bands.get(); // One read, so all four bands are of the same code.
 		paint.setStrokeWidth(0); // Single pixel stroke.
-		paint.setColor(msb.getColor());
+		paint.setColor(ResistorColor.fromValue(ResistorCode.getMSB(code)).getColor());
 		canvas.drawRect(msbBounds, paint);
-		paint.setColor(lsb.getColor());
+		paint.setColor(ResistorColor.fromValue(ResistorCode.getLSB(code)).getColor());
 		canvas.drawRect(lsbBounds, paint);
-		paint.setColor(multiplier.getColor());
+		paint.setColor(ResistorColor.fromValue(ResistorCode.getMultiplier(code)).getColor());
 		canvas.drawRect(multiplierBounds, paint);
-		paint.setColor(tolerance.getColor());
+		paint.setColor(ResistorColor.fromValue(ResistorCode.getTolerance(code)).getColor());
 		canvas.drawRect(toleranceBounds, paint);
 
 	}
@@ -302,14 +235,7 @@ public class ResistorView extends View {
 	 */
 	public void incMSB() {
 
-		int value;
-		if (msb != ResistorColor.WHITE) {
-			value = msb.getValue();
-			msb = ResistorColor.fromValue(value + 1);
-			onValueChanged();
-			this.postInvalidate(msbBounds.left, msbBounds.top, msbBounds.right,
-					msbBounds.bottom);
-		}
+		stepBand(BandGeometry.MSB, 1, ResistorColor.WHITE.getValue());
 	}
 
 	/**
@@ -317,14 +243,7 @@ public class ResistorView extends View {
 	 */
 	public void decMSB() {
 
-		int value;
-		if (msb != ResistorColor.BLACK) {
-			value = msb.getValue();
-			msb = ResistorColor.fromValue(value - 1);
-			onValueChanged();
-			this.postInvalidate(msbBounds.left, msbBounds.top, msbBounds.right,
-					msbBounds.bottom);
-		}
+		stepBand(BandGeometry.MSB, -1, ResistorColor.BLACK.getValue());
 	}
 
 	/**
@@ -332,14 +251,7 @@ public class ResistorView extends View {
 	 */
 	public void incLSB() {
 
-		int value;
-		if (lsb != ResistorColor.WHITE) {
-			value = lsb.getValue();
-			lsb = ResistorColor.fromValue(value + 1);
-			onValueChanged();
-			this.postInvalidate(lsbBounds.left, lsbBounds.top, lsbBounds.right,
-					lsbBounds.bottom);
-		}
+		stepBand(BandGeometry.LSB, 1, ResistorColor.WHITE.getValue());
 	}
 
 	/**
@@ -347,14 +259,7 @@ public class ResistorView extends View {
 	 */
 	public void decLSB() {
 
-		int value;
-		if (lsb != ResistorColor.BLACK) {
-			value = lsb.getValue();
-			lsb = ResistorColor.fromValue(value - 1);
-			onValueChanged();
-			this.postInvalidate(lsbBounds.left, lsbBounds.top, lsbBounds.right,
-					lsbBounds.bottom);
-		}
+		stepBand(BandGeometry.LSB, -1, ResistorColor.BLACK.getValue());
 	}
 
 	/**
@@ -362,15 +267,7 @@ public class ResistorView extends View {
 	 */
 	public void incMultiplier() {
 
-		int value;
-		
-		if (multiplier != ResistorColor.WHITE) {
-			value = multiplier.getValue();
-			multiplier = ResistorColor.fromValue(value + 1);
-			onValueChanged();
-			this.postInvalidate(multiplierBounds.left, multiplierBounds.top,
-					multiplierBounds.right, multiplierBounds.bottom);
-		}
+		stepBand(BandGeometry.MULTIPLIER, 1, ResistorColor.WHITE.getValue());
 	}
 
 	/**
@@ -378,14 +275,7 @@ public class ResistorView extends View {
 	 */
 	public void decMultiplier() {
 
-		int value;
-		if (multiplier != ResistorColor.SILVER) {
-			value = multiplier.getValue();
-			multiplier = ResistorColor.fromValue(value - 1);
-			onValueChanged();
-			this.postInvalidate(multiplierBounds.left, multiplierBounds.top,
-					multiplierBounds.right, multiplierBounds.bottom);
-		}
+		stepBand(BandGeometry.MULTIPLIER, -1, ResistorColor.SILVER.getValue());
 	}
 
 	/**
@@ -394,7 +284,7 @@ public class ResistorView extends View {
 	 */
 	public ResistorColor getMSB() {
 
-		return msb;
+		return ResistorColor.fromValue(ResistorCode.getMSB(bands.get()));
 	}
 	
 	/**
@@ -412,7 +302,7 @@ public class ResistorView extends View {
 	 */
 	public ResistorColor getLSB() {
 
-		return lsb;
+		return ResistorColor.fromValue(ResistorCode.getLSB(bands.get()));
 	}
 	
 	/**
@@ -429,7 +319,7 @@ public class ResistorView extends View {
 	 */
 	public ResistorColor getMultiplier() {
 
-		return multiplier;
+		return ResistorColor.fromValue(ResistorCode.getMultiplier(bands.get()));
 	}
 
 	/**
@@ -466,67 +356,173 @@ public class ResistorView extends View {
 	}
 	
 	/**
-	 * Mutator for multiplier band.
+	 * Mutator for multiplier band. May be called from any thread.
 	 * @param color		The new band color.
 	 */
 	public void setMultiplier(ResistorColor color) {
 
-		multiplier = color;
-		this.postInvalidate(multiplierBounds.left, multiplierBounds.top,
-				multiplierBounds.right, multiplierBounds.bottom);
-		onValueChanged();
+		setBand(BandGeometry.MULTIPLIER, color.getValue());
 	}
 
 	/**
-	 * Mutator for most significant band.
+	 * Mutator for most significant band. May be called from any thread.
 	 * @param color		The new band color.
 	 */
 	public void setMSB(ResistorColor color) {
-		msb = color;
-		this.postInvalidate(msbBounds.left, msbBounds.top, msbBounds.right,
-				msbBounds.bottom);
-		onValueChanged();
+
+		setBand(BandGeometry.MSB, color.getValue());
 	}
 
 	/**
-	 * Mutator for least significant band.
+	 * Mutator for least significant band. May be called from any thread.
 	 * @param color		The new band color
 	 */
 	public void setLSB(ResistorColor color) {
-		lsb = color;
-		this.postInvalidate(lsbBounds.left, lsbBounds.top, lsbBounds.right,
-				lsbBounds.bottom);
-		onValueChanged();
+
+		setBand(BandGeometry.LSB, color.getValue());
+	}
+
+	/**
+	 * Sets the value bands of a code at once: one redraw and one notification of the clients,
+	 * instead of one for each band. May be called from any thread.
+	 * @param code		A packed code (see ResistorCode); its tolerance band is ignored.
+	 */
+	public void setBands(int code) {
+		changed(ALL_BANDS, bands.setValueBands(code));
+	}
+
+	/**
+	 * Sets all four bands to a code, but only if they are still another code. May be called
+	 * from any thread.
+	 * @param expected	The packed code the bands are expected to have.
+	 * @param code		The new packed code.
+	 * @return			TRUE if the bands were set; FALSE if they were not expected, and are
+	 * 					unchanged.
+	 */
+	public boolean compareAndSetCode(int expected, int code) {
+		if(!bands.compareAndSet(expected, code)){
+			return false;
+		}
+		changed(ALL_BANDS, code);
+		return true;
 	}
 
 	/**
 	 * Accessor for the tolerance band
-	 * @return		Always returns ResistorColor.GOLD
+	 * @return		The color of the tolerance band; gold unless a code with another tolerance
+	 * 				was set.
 	 */
 	public ResistorColor getTolerance() {
 
-		return tolerance;
+		return ResistorColor.fromValue(ResistorCode.getTolerance(bands.get()));
+	}
+
+	/**
+	 * Accessor for all four bands packed into a single int. Use this rather than the band
+	 * accessors to read several bands from another thread: they are read at once.
+	 * @return		The packed code of this resistor (see ResistorCode).
+	 */
+	public int getCode() {
+
+		return bands.get();
+	}
+
+	/**
+	 * Sets one band, keeping whatever the others are at the time.
+	 */
+	private void setBand(int band, int value) {
+		changed(band, bands.setBand(band, value));
+	}
+
+	/**
+	 * Steps one band by delta, unless it is already at limit.
+	 */
+	private void stepBand(int band, int delta, int limit) {
+		int updated = bands.stepBand(band, delta, limit);
+		if(updated != ResistorBands.UNCHANGED){
+			changed(band, updated);
+		}
+	}
+
+	/**
+	 * Redraws and notifies the clients of a change: right away on the UI thread, with the code
+	 * set; otherwise by posting to the UI thread, unless a change is already posted.
+	 * @param band		The band that changed, or ALL_BANDS.
+	 * @param code		The code the change set.
+	 */
+	private void changed(int band, int code) {
+		if(Looper.myLooper() == uiHandler.getLooper()){
+			invalidateBand(band);
+			onValueChanged(code);
+		}
+
+		else if(changePosted.compareAndSet(false, true)){
+			uiHandler.post(postedChange);
+		}
 	}
 
 	/**
-	 * A convience method to convert float values to int values and call postInvalidate().
-	 * @param left		Left coordinate of invalidated region.
-	 * @param top		Top coordinate of invalidated region.
-	 * @param right		Right coordinate of invalidated region.
-	 * @param bottom	Bottom coordinate of invalidated region.
+	 * Runs on the UI thread for the changes made on other threads since it was posted.
+	 */
+	private final Runnable postedChange = new Runnable() {
+
+		@Override
+		public void run() {
+			// Cleared first, so a change made from here on is posted again.
+			changePosted.set(false);
+			int code = bands.get();
+			invalidateBand(ALL_BANDS);
+			if(code != notifiedCode){
+				onValueChanged(code);
+			}
+		}
+	};
+
+	/**
+	 * Invalidates the bounds of a band, or of all the bands. Does nothing before the bounds
+	 * are known; the first layout draws the whole view.
 	 */
-	private void postInvalidate(float left, float top, float right, float bottom) {
-		super.postInvalidate(Math.round(left), Math.round(top),
-				Math.round(right), Math.round(bottom));
+	private void invalidateBand(int band) {
+		if(msbBounds == null){
+			return;
+		}
+
+		RectF bounds;
+		switch(band){
+		case BandGeometry.MSB:
+			bounds = msbBounds;
+			break;
+		case BandGeometry.LSB:
+			bounds = lsbBounds;
+			break;
+		case BandGeometry.MULTIPLIER:
+			bounds = multiplierBounds;
+			break;
+		default:
+			bounds = null;
+		}
+
+		if(bounds != null){
+			invalidate(Math.round(bounds.left), Math.round(bounds.top),
+					Math.round(bounds.right), Math.round(bounds.bottom));
+		}
+
+		else{
+			invalidate(Math.round(msbBounds.left),
+					Math.round(Math.min(msbBounds.top, toleranceBounds.top)),
+					Math.round(toleranceBounds.right),
+					Math.round(Math.max(msbBounds.bottom, toleranceBounds.bottom)));
+		}
 	}
 
 	/**
 	 * Notifies clients when this resistor has it's bands changed.
 	 */
-	private void onValueChanged() {
+	private void onValueChanged(int code) {
+		notifiedCode = code;
 		for (ResistorView.OnValueChangedListener l : onValueChangedListeners) {
 
-			l.onValueChanged();
+			l.onValueChanged(code);
 		}
 
 	}
@@ -543,7 +539,7 @@ public class ResistorView extends View {
 
 
 	/**
-	 * Attaches an OnValueChangedListner to this ResistorView.
+	 * Attaches an OnValueChangedListner to this ResistorView. Call on the UI thread.
 	 * @param l		The client.
 	 */
 	public void setOnValueChangedListner(ResistorView.OnValueChangedListener l) {
@@ -0,0 +1,52 @@
+/**
+ * Generates the combination index (see ComboIndex): every series and parallel combination of
+ * two or three E12 values over the encodable decades, gold tolerance.
+ *
+ * The index is about 32 MB, so it is written on demand rather than by every build.
+ *
+ * Usage: ComboGenerator <output file>
+ *
+ */
+
+package edu.cuny.citytech.daedalus.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.cuny.citytech.daedalus.utils.ComboIndex;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+
+public class ComboGenerator {
+
+	private static final int MIN_MULTIPLIER = -2;
+	private static final int MAX_MULTIPLIER = 9;
+	private static final int TOLERANCE = -1; // Gold.
+	private static final int[] E12 = { 10, 12, 15, 18, 22, 27, 33, 39, 47, 56, 68, 82 };
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 1) {
+			System.err.println("Usage: ComboGenerator <output file>");
+			System.exit(2);
+		}
+
+		int[] codes = new int[E12.length * (MAX_MULTIPLIER - MIN_MULTIPLIER + 1)];
+		int n = 0;
+		for (int mult = MIN_MULTIPLIER; mult <= MAX_MULTIPLIER; mult++) {
+			for (int digits : E12) {
+				codes[n++] = ResistorCode.pack(digits / 10, digits % 10, mult, TOLERANCE);
+			}
+		}
+
+		File file = new File(args[0]);
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Can not create " + dir);
+		}
+
+		long start = System.nanoTime();
+		int count = ComboIndex.write(codes, file);
+		System.out.println(count + " combinations of " + n + " parts written to " + file + " in "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ * Generates CanonicalIndexTables, the precomputed minimal perfect hash read by CanonicalIndex:
+ * the seed of every bucket, the code held in every slot, and the characters of every key.
+ *
+ * The keys are the canonical strings of CanonicalKeys, with and without a trailing '\u03A9';
+ * each bucket of keys, largest first, is given the first seed that puts all of them in free
+ * slots. Every key is looked up in the finished tables before anything is written; a miss
+ * fails the build.
+ *
+ * Runs before TableGenerator, which compiles Resistance and so CanonicalIndex.
+ *
+ * Usage: IndexGenerator <output source directory>
+ *
+ */
+
+package edu.cuny.citytech.daedalus.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import edu.cuny.citytech.daedalus.utils.CanonicalKeys;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+
+public class IndexGenerator {
+
+	private static final String PACKAGE = "edu.cuny.citytech.daedalus.utils";
+	private static final String CLASS = "CanonicalIndexTables";
+	private static final int KEYS_PER_BUCKET = 4;
+	private static final int MAX_SEED = 1 << 20;
+	private static final int PER_LINE = 12;
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 1) {
+			System.err.println("Usage: IndexGenerator <output source directory>");
+			System.exit(2);
+		}
+
+		String[] keys = new String[CanonicalKeys.CODES * 2];
+		int[] values = new int[CanonicalKeys.CODES * 2];
+		StringBuilder chars = new StringBuilder(CanonicalKeys.CODES * 6);
+		int[] starts = new int[CanonicalKeys.CODES + 1];
+		int maxLength = 0;
+
+		for (int msb = 1; msb <= 9; msb++) {
+			for (int lsb = 0; lsb <= 9; lsb++) {
+				for (int mult = CanonicalKeys.MIN_MULTIPLIER; mult <= CanonicalKeys.MAX_MULTIPLIER;
+						mult++) {
+					int code = ResistorCode.pack(msb, lsb, mult, CanonicalKeys.TOLERANCE);
+					int index = CanonicalKeys.index(code);
+					String key = CanonicalKeys.getKey(code);
+					starts[index] = chars.length();
+					chars.append(key);
+					keys[index * 2] = key;
+					values[index * 2] = code;
+					keys[index * 2 + 1] = key + CanonicalKeys.OMEGA;
+					values[index * 2 + 1] = code | CanonicalKeys.OMEGA_FLAG;
+					maxLength = Math.max(maxLength, key.length() + 1);
+				}
+			}
+		}
+		starts[CanonicalKeys.CODES] = chars.length();
+
+		int[] slots = new int[keys.length];
+		int[] seeds = build(keys, values, slots);
+		for (int i = 0; i < keys.length; i++) {
+			if (lookup(keys[i], seeds, slots) != values[i]) {
+				System.err.println("\"" + keys[i] + "\" is not found in the index");
+				System.exit(1);
+			}
+		}
+
+		write(new File(args[0]), seeds, slots, chars.toString(), starts, maxLength);
+	}
+
+	/**
+	 * Places every key in its own slot.
+	 * @param keys		The keys, all distinct.
+	 * @param values	The value of each key.
+	 * @param slots		Filled with the value of the key placed in each slot.
+	 * @return			The seed of each bucket.
+	 */
+	private static int[] build(String[] keys, int[] values, int[] slots) {
+		int n = keys.length;
+		int buckets = (n + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET;
+		int[] seeds = new int[buckets];
+
+		// Group the keys by bucket: bucketKeys[b] lists the indexes of its keys.
+		int[] sizes = new int[buckets];
+		int[] bucketOf = new int[n];
+		for (int i = 0; i < n; i++) {
+			bucketOf[i] = CanonicalKeys.reduce(CanonicalKeys.hash(keys[i], 0), buckets);
+			sizes[bucketOf[i]]++;
+		}
+
+		int[][] bucketKeys = new int[buckets][];
+		for (int b = 0; b < buckets; b++) {
+			bucketKeys[b] = new int[sizes[b]];
+			sizes[b] = 0;
+		}
+
+		for (int i = 0; i < n; i++) {
+			int b = bucketOf[i];
+			bucketKeys[b][sizes[b]++] = i;
+		}
+
+		// Largest buckets first, while most slots are still free.
+		Integer[] order = new Integer[buckets];
+		for (int b = 0; b < buckets; b++) {
+			order[b] = b;
+		}
+
+		final int[] bucketSizes = sizes;
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+				return bucketSizes[b] - bucketSizes[a];
+			}
+		});
+
+		boolean[] used = new boolean[n];
+		int[] placed = new int[KEYS_PER_BUCKET * 8];
+		for (Integer b : order) {
+			int[] members = bucketKeys[b];
+			if (members.length == 0) {
+				continue;
+			}
+
+			if (placed.length < members.length) {
+				placed = new int[members.length];
+			}
+
+			int seed = 1;
+			while (!fits(keys, members, seed, used, placed)) {
+				if (++seed > MAX_SEED) {
+					throw new IllegalStateException("no seed for bucket " + b);
+				}
+			}
+
+			seeds[b] = seed;
+			for (int j = 0; j < members.length; j++) {
+				used[placed[j]] = true;
+				slots[placed[j]] = values[members[j]];
+			}
+		}
+		return seeds;
+	}
+
+	/**
+	 * Determines if a seed puts the keys of a bucket in distinct free slots.
+	 * @param placed	Filled with the slot of each key.
+	 */
+	private static boolean fits(String[] keys, int[] members, int seed, boolean[] used,
+			int[] placed) {
+		for (int j = 0; j < members.length; j++) {
+			int slot = CanonicalKeys.reduce(CanonicalKeys.hash(keys[members[j]], seed),
+					used.length);
+			if (used[slot]) {
+				return false;
+			}
+
+			for (int i = 0; i < j; i++) {
+				if (placed[i] == slot) {
+					return false;
+				}
+			}
+			placed[j] = slot;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the value in a key's slot, the way CanonicalIndex.lookup() does.
+	 */
+	private static int lookup(String key, int[] seeds, int[] slots) {
+		int seed = seeds[CanonicalKeys.reduce(CanonicalKeys.hash(key, 0), seeds.length)];
+		return slots[CanonicalKeys.reduce(CanonicalKeys.hash(key, seed), slots.length)];
+	}
+
+	private static void write(File dir, int[] seeds, int[] slots, String chars, int[] starts,
+			int maxLength) throws IOException {
+
+		File packageDir = new File(dir, PACKAGE.replace('.', File.separatorChar));
+		if (!packageDir.isDirectory() && !packageDir.mkdirs()) {
+			throw new IOException("Can not create " + packageDir);
+		}
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(packageDir, CLASS + ".java")), "UTF-8"));
+		try {
+			out.println("/**");
+			out.println(" * The precomputed minimal perfect hash of CanonicalIndex.");
+			out.println(" *");
+			out.println(" * GENERATED by " + IndexGenerator.class.getName() + "; do not edit.");
+			out.println(" *");
+			out.println(" */");
+			out.println();
+			out.println("package " + PACKAGE + ";");
+			out.println();
+			out.println("final class " + CLASS + " {");
+			out.println();
+			out.println("\tstatic final int MAX_LENGTH = " + maxLength + ";");
+			out.println();
+			printInts(out, "SEEDS", seeds, false);
+			printInts(out, "SLOTS", slots, true);
+			printInts(out, "KEY_START", starts, false);
+			out.println("\tstatic final String KEY_CHARS =");
+			for (int i = 0; i < chars.length(); i += 80) {
+				out.print("\t\t\t" + (i == 0 ? "" : "+ ") + "\""
+						+ chars.substring(i, Math.min(chars.length(), i + 80)) + "\"");
+				out.println(i + 80 >= chars.length() ? ";" : "");
+			}
+			out.println();
+			out.println("\tprivate " + CLASS + "() {");
+			out.println("\t}");
+			out.println("}");
+		}
+		finally {
+			out.close();
+		}
+
+		if (out.checkError()) {
+			throw new IOException("Failed to write " + CLASS);
+		}
+	}
+
+	private static void printInts(PrintWriter out, String name, int[] table, boolean hex) {
+		out.println("\tstatic final int[] " + name + " = {");
+		for (int i = 0; i < table.length; i += PER_LINE) {
+			out.print("\t\t");
+			for (int j = i; j < Math.min(table.length, i + PER_LINE); j++) {
+				out.print((hex ? "0x" + Integer.toHexString(table[j]).toUpperCase()
+						: String.valueOf(table[j])) + ", ");
+			}
+			out.println();
+		}
+		out.println("\t};");
+		out.println();
+	}
+}
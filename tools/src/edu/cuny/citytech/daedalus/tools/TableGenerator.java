@@ -0,0 +1,256 @@
+/**
+ * Generates ResistorTables, the constant lookup tables used at runtime: the value and
+ * engineering notation string of every 3 band code, which digit pairs are standard (E12) values
+ * and the ARGB color of every band.
+ *
+ * The engineering notation strings are the canonical keys of CanonicalKeys, so they are the
+ * strings CanonicalIndex finds. Every table entry is checked against Resistance and
+ * CanonicalIndex before anything is written; a mismatch fails the build.
+ *
+ * Usage: TableGenerator <output source directory>
+ *
+ */
+
+package edu.cuny.citytech.daedalus.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cuny.citytech.daedalus.utils.CanonicalIndex;
+import edu.cuny.citytech.daedalus.utils.CanonicalKeys;
+import edu.cuny.citytech.daedalus.utils.Resistance;
+import edu.cuny.citytech.daedalus.utils.ResistorCode;
+
+public class TableGenerator {
+
+	private static final String PACKAGE = "edu.cuny.citytech.daedalus.utils";
+	private static final String CLASS = "ResistorTables";
+	private static final int MIN_MULTIPLIER = -2;
+	private static final int MAX_MULTIPLIER = 9;
+	private static final int MULTIPLIERS = MAX_MULTIPLIER - MIN_MULTIPLIER + 1;
+	private static final int[] E12 = { 10, 12, 15, 18, 22, 27, 33, 39, 47, 56, 68, 82 };
+
+	// Band colors by ResistorColor ordinal (SILVER, GOLD, BLACK ... WHITE).
+	private static final int[] BAND_ARGB = { 0xFFC0C0C0, 0xFFFFD700, 0xFF000000, 0xFF8B4513,
+			0xFFFF0000, 0xFFFFA500, 0xFFFFFF00, 0xFF00FF00, 0xFF0000FF, 0xFF9400D3, 0xFF888888,
+			0xFFFFFFFF };
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 1) {
+			System.err.println("Usage: TableGenerator <output source directory>");
+			System.exit(2);
+		}
+
+		String[] formatted = new String[100 * MULTIPLIERS];
+		String[] values = new String[100 * MULTIPLIERS];
+		boolean[] standard = new boolean[100];
+		List<String> errors = new ArrayList<String>();
+
+		for (int digits : E12) {
+			standard[digits] = true;
+		}
+
+		for (int digits = 0; digits < 100; digits++) {
+			for (int mult = MIN_MULTIPLIER; mult <= MAX_MULTIPLIER; mult++) {
+				int index = digits * MULTIPLIERS + mult - MIN_MULTIPLIER;
+				BigDecimal exact = BigDecimal.valueOf(digits).scaleByPowerOfTen(mult);
+				formatted[index] = CanonicalKeys.getKey(ResistorCode.pack(digits / 10, digits % 10,
+						mult, CanonicalKeys.TOLERANCE));
+				values[index] = Double.toString(exact.doubleValue());
+
+				// A black first band is not a valid code, so there is nothing to check.
+				if (digits >= 10) {
+					check(formatted[index], exact, digits, mult, standard[digits], errors);
+				}
+			}
+		}
+
+		if (!errors.isEmpty()) {
+			for (String error : errors) {
+				System.err.println(error);
+			}
+			System.err.println(errors.size() + " table entries disagree with Resistance");
+			System.exit(1);
+		}
+
+		write(new File(args[0]), formatted, values, standard);
+	}
+
+	/**
+	 * Checks that Resistance reads a formatted string back as the code it was made from.
+	 */
+	private static void check(String s, BigDecimal exact, int digits, int mult,
+			boolean standard, List<String> errors) {
+
+		String code = (digits / 10) + "" + (digits % 10) + " x10^" + mult + " -> \"" + s + "\": ";
+
+		if (!Resistance.isValid(s)) {
+			errors.add(code + "not valid");
+			return;
+		}
+
+		if (Resistance.parse(s).compareTo(exact) != 0) {
+			errors.add(code + "parses to " + Resistance.parse(s));
+		}
+
+		if (Resistance.getMultiplier(s) != mult) {
+			errors.add(code + "multiplier " + Resistance.getMultiplier(s));
+		}
+
+		if (Resistance.getFirstSigDigit(s) != digits / 10
+				|| Resistance.getSecondSigDigit(s) != digits % 10) {
+			errors.add(code + "digits " + Resistance.getFirstSigDigit(s)
+					+ Resistance.getSecondSigDigit(s));
+		}
+
+		if (Resistance.isStandard(s) != standard) {
+			errors.add(code + "isStandard " + Resistance.isStandard(s));
+		}
+
+		int packed = ResistorCode.pack(digits / 10, digits % 10, mult, CanonicalKeys.TOLERANCE);
+		if (CanonicalIndex.lookup(s) != packed) {
+			errors.add(code + "not found in CanonicalIndex");
+		}
+	}
+
+	private static void write(File dir, String[] formatted, String[] values, boolean[] standard)
+			throws IOException {
+
+		File packageDir = new File(dir, PACKAGE.replace('.', File.separatorChar));
+		if (!packageDir.isDirectory() && !packageDir.mkdirs()) {
+			throw new IOException("Can not create " + packageDir);
+		}
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(packageDir, CLASS + ".java")), "UTF-8"));
+		try {
+			out.println("/**");
+			out.println(" * Constant lookup tables for resistor color codes.");
+			out.println(" *");
+			out.println(" * GENERATED by " + TableGenerator.class.getName() + "; do not edit.");
+			out.println(" *");
+			out.println(" */");
+			out.println();
+			out.println("package " + PACKAGE + ";");
+			out.println();
+			out.println("public final class " + CLASS + " {");
+			out.println();
+			out.println("\tpublic static final int MIN_MULTIPLIER = " + MIN_MULTIPLIER + ";");
+			out.println("\tpublic static final int MAX_MULTIPLIER = " + MAX_MULTIPLIER + ";");
+			out.println("\tprivate static final int MULTIPLIERS = " + MULTIPLIERS + ";");
+			out.println();
+			printStrings(out, "FORMATTED", formatted);
+			printDoubles(out, "VALUE", values);
+			printBooleans(out, "STANDARD", standard);
+			printColors(out, "BAND_ARGB", BAND_ARGB);
+			out.print(ACCESSORS);
+			out.println("}");
+		}
+		finally {
+			out.close();
+		}
+
+		if (out.checkError()) {
+			throw new IOException("Failed to write " + CLASS);
+		}
+	}
+
+	private static void printStrings(PrintWriter out, String name, String[] table) {
+		out.println("\tprivate static final String[] " + name + " = {");
+		for (int i = 0; i < table.length; i += MULTIPLIERS) {
+			out.print("\t\t");
+			for (int j = i; j < i + MULTIPLIERS; j++) {
+				out.print("\"" + table[j] + "\", ");
+			}
+			out.println();
+		}
+		out.println("\t};");
+		out.println();
+	}
+
+	private static void printDoubles(PrintWriter out, String name, String[] table) {
+		out.println("\tprivate static final double[] " + name + " = {");
+		for (int i = 0; i < table.length; i += MULTIPLIERS) {
+			out.print("\t\t");
+			for (int j = i; j < i + MULTIPLIERS; j++) {
+				out.print(table[j] + ", ");
+			}
+			out.println();
+		}
+		out.println("\t};");
+		out.println();
+	}
+
+	private static void printBooleans(PrintWriter out, String name, boolean[] table) {
+		out.println("\tprivate static final boolean[] " + name + " = {");
+		for (int i = 0; i < table.length; i += 10) {
+			out.print("\t\t");
+			for (int j = i; j < i + 10; j++) {
+				out.print(table[j] + ", ");
+			}
+			out.println();
+		}
+		out.println("\t};");
+		out.println();
+	}
+
+	private static void printColors(PrintWriter out, String name, int[] table) {
+		out.println("\tprivate static final int[] " + name + " = {");
+		out.print("\t\t");
+		for (int color : table) {
+			out.print("0x" + Integer.toHexString(color).toUpperCase() + ", ");
+		}
+		out.println();
+		out.println("\t};");
+		out.println();
+	}
+
+	private static final String ACCESSORS =
+			"\t/**\n"
+			+ "\t * Returns the resistance of a code in engineering notation, ie. \"4.7k\".\n"
+			+ "\t * @param code\t\tA packed code (see ResistorCode).\n"
+			+ "\t * @return\t\t\tThe formatted resistance without the trailing '\\u03A9'.\n"
+			+ "\t */\n"
+			+ "\tpublic static String getFormatted(int code) {\n"
+			+ "\t\treturn FORMATTED[index(code)];\n"
+			+ "\t}\n"
+			+ "\n"
+			+ "\t/**\n"
+			+ "\t * Returns the resistance of a code in ohms.\n"
+			+ "\t * @param code\t\tA packed code (see ResistorCode).\n"
+			+ "\t * @return\t\t\tThe resistance in ohms.\n"
+			+ "\t */\n"
+			+ "\tpublic static double getValue(int code) {\n"
+			+ "\t\treturn VALUE[index(code)];\n"
+			+ "\t}\n"
+			+ "\n"
+			+ "\t/**\n"
+			+ "\t * Determines if the significant digits of a code are a standard (E12) value.\n"
+			+ "\t * @param code\t\tA packed code (see ResistorCode).\n"
+			+ "\t * @return\t\t\tTRUE if the digits are 10, 12, 15, 18, 22, 27, 33, 39, 47, 56, 68 or 82.\n"
+			+ "\t */\n"
+			+ "\tpublic static boolean isStandard(int code) {\n"
+			+ "\t\treturn STANDARD[ResistorCode.getMSB(code) * 10 + ResistorCode.getLSB(code)];\n"
+			+ "\t}\n"
+			+ "\n"
+			+ "\t/**\n"
+			+ "\t * Returns the ARGB color of a band.\n"
+			+ "\t * @param value\t\tThe value of the band (-2 to 9).\n"
+			+ "\t * @return\t\t\tThe color of the band.\n"
+			+ "\t */\n"
+			+ "\tpublic static int getBandColor(int value) {\n"
+			+ "\t\treturn BAND_ARGB[value + 2];\n"
+			+ "\t}\n"
+			+ "\n"
+			+ "\tprivate static int index(int code) {\n"
+			+ "\t\treturn (ResistorCode.getMSB(code) * 10 + ResistorCode.getLSB(code)) * MULTIPLIERS\n"
+			+ "\t\t\t\t+ ResistorCode.getMultiplier(code) - MIN_MULTIPLIER;\n"
+			+ "\t}\n";
+}